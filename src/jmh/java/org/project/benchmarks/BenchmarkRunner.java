@@ -0,0 +1,41 @@
+package org.project.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the benchmarks once per thread count and writes the results of every run as JSON, e.g.
+ * {@code target/jmh/threads-4.json}, so two commits can be compared run by run.
+ * <p>
+ * Takes the usual JMH arguments, the thread counts are read from {@code -Djmh.threads=1,4,16} and the
+ * result directory from {@code -Djmh.result.dir}.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        File resultDir = new File(System.getProperty("jmh.result.dir", "target/jmh"));
+        if (!resultDir.isDirectory() && !resultDir.mkdirs()) {
+            throw new IllegalStateException(String.format("Could not create %s", resultDir));
+        }
+
+        for (String threads : System.getProperty("jmh.threads", "1,4,16").split(",")) {
+            new Runner(new OptionsBuilder()
+                    .parent(commandLineOptions)
+                    .threads(Integer.parseInt(threads.trim()))
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDir, String.format("threads-%s.json", threads.trim())).getPath())
+                    .build())
+                    .run();
+        }
+    }
+}
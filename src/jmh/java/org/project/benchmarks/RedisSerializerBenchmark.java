@@ -0,0 +1,60 @@
+package org.project.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.project.lottery.config.RedisConfiguration;
+import org.project.lottery.serializer.BinaryRedisSerializer;
+import org.project.lottery.v1.dto.LotterySnapshot;
+import org.project.lottery.v1.entity.Lottery;
+import org.project.lottery.v1.entity.Ticket;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the JSON and the binary format of the values written to Redis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisSerializerBenchmark {
+
+    @Param({"json", "binary"})
+    private String serializer;
+
+    @Param({"lottery", "ticket", "lock-token"})
+    private String value;
+
+    private RedisSerializer<Object> redisSerializer;
+    private Object object;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        redisSerializer = new BinaryRedisSerializer(new RedisConfiguration().redisTypeRegistry(),
+                new GenericJackson2JsonRedisSerializer(), "binary".equals(serializer));
+
+        UUID lotteryId = UUID.randomUUID();
+        object = switch (value) {
+            case "lottery" -> new LotterySnapshot(lotteryId, "Summer draw", 100_000, 99_873, 127);
+            case "ticket" -> new Ticket(UUID.randomUUID(), UUID.randomUUID(), 99874L,
+                    new Lottery(lotteryId, "Summer draw", 100_000L, 99_873L, 127L, true));
+            default -> String.format("lottery_%s_ticket_lock_key", lotteryId);
+        };
+        bytes = redisSerializer.serialize(object);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return redisSerializer.serialize(object);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return redisSerializer.deserialize(bytes);
+    }
+}
@@ -0,0 +1,64 @@
+package org.project.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.project.lottery.v1.dto.LotteryResponse;
+import org.project.lottery.v1.dto.LotterySnapshot;
+import org.project.lottery.v1.dto.TicketResponse;
+import org.project.lottery.v1.entity.Lottery;
+import org.project.lottery.v1.entity.Ticket;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the mapping of the entities and the lottery snapshot into the response DTOs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseMappingBenchmark {
+
+    private Ticket ticket;
+    private Lottery lottery;
+    private LotterySnapshot snapshot;
+
+    @Setup
+    public void setUp() {
+        UUID lotteryId = UUID.randomUUID();
+        lottery = new Lottery(lotteryId, "Summer draw", 100_000L, 99_873L, 127L, true);
+        ticket = new Ticket(UUID.randomUUID(), UUID.randomUUID(), 99874L, lottery);
+        snapshot = new LotterySnapshot(lotteryId, "Summer draw", 100_000, 99_873, 127);
+    }
+
+    @Benchmark
+    public LotteryResponse lotteryFromEntity() {
+        return new LotteryResponse(
+                lottery.getName(),
+                lottery.getId(),
+                lottery.getTotalAllottedTickets(),
+                lottery.getTotalAvailableTickets()
+        );
+    }
+
+    @Benchmark
+    public LotteryResponse lotteryFromSnapshot() {
+        return snapshot.toResponse();
+    }
+
+    @Benchmark
+    public TicketResponse ticketFromEntity() {
+        return new TicketResponse(
+                ticket.getId(),
+                ticket.getUserId(),
+                ticket.getLotteryNumber(),
+                new LotteryResponse(
+                        ticket.getLottery().getName(),
+                        ticket.getLottery().getId(),
+                        ticket.getLottery().getTotalAllottedTickets(),
+                        ticket.getLottery().getTotalAvailableTickets()
+                ));
+    }
+}
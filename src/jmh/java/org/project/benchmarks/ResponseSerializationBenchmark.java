@@ -0,0 +1,64 @@
+package org.project.benchmarks;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.project.lottery.v1.dto.LotteryResponse;
+import org.project.lottery.v1.dto.TicketPage;
+import org.project.lottery.v1.dto.TicketResponse;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing the ticket list as one JSON page and as NDJSON, one ticket per line, the way the
+ * list and the stream endpoints of the lottery controller write them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    @Param({"100", "1000"})
+    private int tickets;
+
+    private final OutputStream out = OutputStream.nullOutputStream();
+    private ObjectWriter writer;
+    private TicketPage page;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        // The response stream is closed by the servlet container, not by Jackson.
+        writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        LotteryResponse lottery = new LotteryResponse("Summer draw", UUID.randomUUID(), 100_000L, 99_873L);
+        List<TicketResponse> ticketResponses = new ArrayList<>(tickets);
+        for (int i = 0; i < tickets; i++) {
+            ticketResponses.add(new TicketResponse(UUID.randomUUID(), UUID.randomUUID(), "lottery_number_" + i, lottery));
+        }
+        page = new TicketPage(ticketResponses, UUID.randomUUID());
+    }
+
+    @Benchmark
+    public void page() throws IOException {
+        writer.writeValue(out, page.tickets());
+    }
+
+    @Benchmark
+    public void ndjson() throws IOException {
+        for (TicketResponse ticket : page.tickets()) {
+            out.write(writer.writeValueAsBytes(ticket));
+            out.write('\n');
+        }
+    }
+}
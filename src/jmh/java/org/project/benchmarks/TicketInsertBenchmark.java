@@ -0,0 +1,134 @@
+package org.project.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.project.lottery.v1.entity.UuidV7Generator;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the insert throughput of the ticket schema with random UUIDv4 ids and the lottery number string
+ * ({@code v4-string}, the schema before) and with UUIDv7 ids and a numeric ticket number ({@code v7-bigint}).
+ * Needs a Postgres database, e.g. the one of docker-compose; the connection is set with
+ * {@code -p jdbcUrl=... -p user=... -p password=...}. The table is filled with {@code prefill} tickets first,
+ * so the primary key no longer fits the cache of a small database, and the sizes of the table and its
+ * indexes are printed once the benchmark is done.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TicketInsertBenchmark {
+    private static final String TABLE = "ticket_insert_benchmark";
+    private static final int BATCH_SIZE = 500;
+    private static final int LOTTERIES = 16;
+
+    @Param({"v4-string", "v7-bigint"})
+    private String schema;
+
+    @Param({"1000000"})
+    private long prefill;
+
+    @Param({"jdbc:postgresql://localhost:5432/lottery_db?reWriteBatchedInserts=true"})
+    private String jdbcUrl;
+
+    @Param({"user@0242ac120002"})
+    private String user;
+
+    @Param({"password@6fad8b42"})
+    private String password;
+
+    private final UUID[] lotteryIds = new UUID[LOTTERIES];
+    private final AtomicLong ticketNumber = new AtomicLong();
+
+    @State(Scope.Thread)
+    public static class Inserter {
+        private Connection connection;
+        private PreparedStatement insert;
+        private int lottery;
+
+        @Setup
+        public void setUp(final TicketInsertBenchmark benchmark) throws SQLException {
+            connection = benchmark.connect();
+            insert = connection.prepareStatement(benchmark.insertSql());
+        }
+
+        @TearDown
+        public void tearDown() throws SQLException {
+            connection.close();
+        }
+    }
+
+    @Setup
+    public void setUp() throws SQLException {
+        for (int i = 0; i < LOTTERIES; i++) {
+            lotteryIds[i] = UuidV7Generator.next();
+        }
+
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists " + TABLE);
+            statement.execute("create table " + TABLE + " (id uuid primary key, user_uuid uuid, "
+                    + (numeric() ? "ticket_number bigint not null" : "lottery_number varchar(255)")
+                    + ", lottery_id uuid not null, unique (lottery_id, user_uuid))");
+
+            // Fill the table the way the benchmark inserts, one lottery after the other.
+            try (PreparedStatement insert = connection.prepareStatement(insertSql())) {
+                for (long i = 0; i < prefill; i += BATCH_SIZE) {
+                    insertBatch(insert, (int) (i / BATCH_SIZE % LOTTERIES));
+                }
+            }
+            statement.execute("vacuum analyze " + TABLE);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("drop table " + TABLE);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int[] insert(final Inserter inserter) throws SQLException {
+        inserter.lottery = (inserter.lottery + 1) % LOTTERIES;
+        return insertBatch(inserter.insert, inserter.lottery);
+    }
+
+    private int[] insertBatch(final PreparedStatement insert, final int lottery) throws SQLException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            long number = ticketNumber.incrementAndGet();
+            insert.setObject(1, numeric() ? UuidV7Generator.next() : UUID.randomUUID());
+            insert.setObject(2, UUID.randomUUID());
+            if (numeric()) {
+                insert.setLong(3, number);
+            } else {
+                insert.setString(3, "lottery_number_" + number);
+            }
+            insert.setObject(4, lotteryIds[lottery]);
+            insert.addBatch();
+        }
+        return insert.executeBatch();
+    }
+
+    private boolean numeric() {
+        return "v7-bigint".equals(schema);
+    }
+
+    private String insertSql() {
+        return "insert into " + TABLE + " (id, user_uuid, " + (numeric() ? "ticket_number" : "lottery_number")
+                + ", lottery_id) values (?, ?, ?, ?)";
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(jdbcUrl, user, password);
+    }
+}
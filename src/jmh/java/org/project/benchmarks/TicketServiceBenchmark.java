@@ -0,0 +1,81 @@
+package org.project.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.project.benchmarks.support.InMemoryDistributedLocker;
+import org.project.benchmarks.support.InMemoryLotteryService;
+import org.project.benchmarks.support.InMemoryRepositories;
+import org.project.lottery.bloom.ParticipantBloomFilter;
+import org.project.lottery.v1.dto.CreateLotteryRequest;
+import org.project.lottery.v1.dto.IssueTicketRequest;
+import org.project.lottery.v1.dto.TicketResponse;
+import org.project.lottery.v1.service.ticket.TicketService;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TicketService#issueTicket} of the lock issuance mode with the repositories, the
+ * lottery service and the locker replaced by in-memory stand-ins, i.e. the cost of the service itself
+ * and of serializing the issuance of a lottery on its lock.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TicketServiceBenchmark {
+
+    /**
+     * The number of lotteries the threads issue tickets of, all threads contend for one lock with 1.
+     */
+    @Param({"1", "16"})
+    private int lotteries;
+
+    private TicketService ticketService;
+    private UUID[] lotteryIds;
+
+    @Setup
+    public void setUp() {
+        InMemoryLotteryService lotteryService = new InMemoryLotteryService();
+        ticketService = new TicketService(
+                InMemoryRepositories.ticketRepository(),
+                lotteryService,
+                new InMemoryDistributedLocker(),
+                new ParticipantBloomFilter(null, 600_000, 1_000),
+                new TransactionTemplate(new NoOpTransactionManager()));
+
+        lotteryIds = new UUID[lotteries];
+        for (int i = 0; i < lotteries; i++) {
+            lotteryIds[i] = lotteryService.createLottery(new CreateLotteryRequest("benchmark", Long.MAX_VALUE / 2)).id();
+        }
+    }
+
+    @Benchmark
+    public TicketResponse issueTicket() {
+        UUID lotteryId = lotteryIds[ThreadLocalRandom.current().nextInt(lotteries)];
+        return ticketService.issueTicket(new IssueTicketRequest(UUID.randomUUID(), lotteryId));
+    }
+
+    private static class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.project.benchmarks.support;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * The results of a store that holds nothing: no value, empty collections, zero counts and {@code false}
+ * checks, by the return type of the called method.
+ */
+final class EmptyResults {
+
+    private EmptyResults() {
+    }
+
+    /**
+     * Gets the empty result of the given return type.
+     *
+     * @param type The return type.
+     * @return The empty result, or {@code null} for a missing value or no result.
+     */
+    static Object of(final Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0.0;
+        }
+        if (type == Optional.class) {
+            return Optional.empty();
+        }
+        if (type == Stream.class) {
+            return Stream.empty();
+        }
+        if (type == Page.class || type == Slice.class) {
+            return Page.empty();
+        }
+        if (type == Set.class) {
+            return Set.of();
+        }
+        if (type == Map.class) {
+            return Map.of();
+        }
+        if (type == List.class || type == Collection.class || type == Iterable.class) {
+            return List.of();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,29 @@
+package org.project.benchmarks.support;
+
+import org.project.lottery.locker.IDistributedLocker;
+import org.project.lottery.locker.LockExecutionResult;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs the tasks of a key one at a time under a local lock, callers wait instead of retrying.
+ */
+public class InMemoryDistributedLocker implements IDistributedLocker {
+    private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    @Override
+    public <T> LockExecutionResult<T> lock(final String key, final int lockTimeoutSeconds, final Callable<T> task) {
+        final ReentrantLock lock = locks.computeIfAbsent(key, k -> new ReentrantLock());
+        lock.lock();
+        try {
+            return LockExecutionResult.buildLockAcquiredResult(task.call());
+        } catch (Exception e) {
+            return LockExecutionResult.buildLockAcquiredWithException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
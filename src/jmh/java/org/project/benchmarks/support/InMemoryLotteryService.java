@@ -0,0 +1,102 @@
+package org.project.benchmarks.support;
+
+import org.project.lottery.exceptions.NotFoundException;
+import org.project.lottery.v1.dto.CreateLotteryRequest;
+import org.project.lottery.v1.dto.LotteryResponse;
+import org.project.lottery.v1.dto.LotterySnapshot;
+import org.project.lottery.v1.dto.TicketPage;
+import org.project.lottery.v1.dto.TicketResponse;
+import org.project.lottery.v1.entity.Lottery;
+import org.project.lottery.v1.service.lottery.ILotteryService;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the available tickets of the lotteries in memory, but not their tickets.
+ */
+public class InMemoryLotteryService implements ILotteryService {
+    private final Map<UUID, String> names = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> allotted = new ConcurrentHashMap<>();
+    private final Map<UUID, AtomicLong> available = new ConcurrentHashMap<>();
+
+    @Override
+    public LotteryResponse createLottery(final CreateLotteryRequest request) {
+        final UUID id = UUID.randomUUID();
+        names.put(id, request.lotteryName());
+        allotted.put(id, request.totalLotteryTicketAllotted());
+        available.put(id, new AtomicLong(request.totalLotteryTicketAllotted()));
+        return findById(id).toResponse();
+    }
+
+    @Override
+    public void deleteLottery(final UUID id) {
+        names.remove(id);
+        allotted.remove(id);
+        available.remove(id);
+    }
+
+    @Override
+    public LotterySnapshot findById(final UUID id) {
+        return findCurrentById(id);
+    }
+
+    @Override
+    public LotterySnapshot findCurrentById(final UUID id) {
+        final AtomicLong availableTickets = available.get(id);
+        if (availableTickets == null) {
+            throw new NotFoundException(String.format("Lottery with lotteryId %s does not exist", id));
+        }
+        return new LotterySnapshot(id, names.get(id), allotted.get(id), availableTickets.get(), 0);
+    }
+
+    @Override
+    public Lottery getReference(final UUID id) {
+        final Lottery lottery = new Lottery();
+        lottery.setId(id);
+        return lottery;
+    }
+
+    @Override
+    public Set<UUID> findExistingIds(final Collection<UUID> ids) {
+        return ids.stream().filter(available::containsKey).collect(Collectors.toSet());
+    }
+
+    @Override
+    public TicketPage listTickets(final UUID uuid, final UUID after, final Integer limit) {
+        findCurrentById(uuid);
+        return new TicketPage(List.of(), null);
+    }
+
+    @Override
+    public void forEachTicket(final UUID uuid, final Consumer<TicketResponse> consumer) {
+        findCurrentById(uuid);
+    }
+
+    @Override
+    public boolean decrementAvailableTickets(final UUID id, final long count) {
+        final AtomicLong availableTickets = available.get(id);
+        return availableTickets != null
+                && availableTickets.getAndUpdate(left -> left >= count ? left - count : left) >= count;
+    }
+
+    @Override
+    public void subtractClaimedSlots(final UUID id, final long count) {
+        final AtomicLong availableTickets = available.get(id);
+        if (availableTickets != null) {
+            availableTickets.getAndUpdate(left -> Math.max(left - count, 0));
+        }
+    }
+
+    @Override
+    public void reconcileWithFreeSlots(final UUID id) {
+        // No slots are kept, the available tickets already are their count.
+    }
+}
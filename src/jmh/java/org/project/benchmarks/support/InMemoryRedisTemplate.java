@@ -0,0 +1,56 @@
+package org.project.benchmarks.support;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs the string commands the distributed lock uses, {@code GET}, {@code SET} with or without
+ * {@code NX}/{@code XX} and {@code DEL}, on a map, so the locker runs without Redis. Expiries are ignored,
+ * and any other command answers as for a missing key.
+ */
+public class InMemoryRedisTemplate extends RedisTemplate<String, Object> {
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, Object> valueOps = (ValueOperations<String, Object>) Proxy.newProxyInstance(
+            ValueOperations.class.getClassLoader(),
+            new Class<?>[]{ValueOperations.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "get" -> args.length == 1 ? values.get((String) args[0]) : null;
+                case "set" -> {
+                    // SET with an expiry, SETRANGE is a command of its own.
+                    if (!(args.length == 3 && args[2] instanceof Long)) {
+                        values.put((String) args[0], args[1]);
+                    }
+                    yield null;
+                }
+                case "setIfAbsent" -> values.putIfAbsent((String) args[0], args[1]) == null;
+                case "setIfPresent" -> values.replace((String) args[0], args[1]) != null;
+                case "getAndSet" -> values.put((String) args[0], args[1]);
+                case "getAndDelete" -> values.remove((String) args[0]);
+                case "getOperations" -> this;
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> "InMemoryValueOperations";
+                default -> EmptyResults.of(method.getReturnType());
+            });
+
+    @Override
+    public ValueOperations<String, Object> opsForValue() {
+        return valueOps;
+    }
+
+    @Override
+    public Boolean hasKey(final String key) {
+        return values.containsKey(key);
+    }
+
+    @Override
+    public Boolean delete(final String key) {
+        return values.remove(key) != null;
+    }
+}
@@ -0,0 +1,52 @@
+package org.project.benchmarks.support;
+
+import org.project.lottery.v1.entity.Ticket;
+import org.project.lottery.v1.repository.ITicketRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository stand-ins that keep nothing, so a benchmark measures the service around them and its
+ * heap does not grow with the number of issued tickets.
+ */
+public final class InMemoryRepositories {
+
+    private InMemoryRepositories() {
+    }
+
+    /**
+     * Creates a ticket repository that assigns ids on save and keeps nothing, so every query finds no
+     * ticket and every write is dropped.
+     *
+     * @return The ticket repository.
+     */
+    public static ITicketRepository ticketRepository() {
+        return (ITicketRepository) Proxy.newProxyInstance(
+                ITicketRepository.class.getClassLoader(),
+                new Class<?>[]{ITicketRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "save", "saveAndFlush" -> assignId((Ticket) args[0]);
+                    case "saveAll", "saveAllAndFlush" -> {
+                        final List<Ticket> tickets = new ArrayList<>();
+                        for (final Object ticket : (Iterable<?>) args[0]) {
+                            tickets.add(assignId((Ticket) ticket));
+                        }
+                        yield tickets;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryTicketRepository";
+                    default -> EmptyResults.of(method.getReturnType());
+                });
+    }
+
+    private static Ticket assignId(final Ticket ticket) {
+        if (ticket.getId() == null) {
+            ticket.setId(UUID.randomUUID());
+        }
+        return ticket;
+    }
+}
@@ -0,0 +1,296 @@
+package org.project.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Creates a lottery, lets unique users issue tickets of it and checks that exactly the allotted
+ * tickets were issued, each once:
+ * <pre>
+ * mvn -P loadgen test-compile exec:exec -Dloadgen.args="--users=10000 --tickets=5000 --concurrency=100"
+ * </pre>
+ * Exits with 1 if a check fails. In the open model the latency is measured from the time a request was
+ * due, so a backlog of requests waiting for a connection shows up in the latency rather than hiding in
+ * a lower arrival rate. Requests refused by the admission gate with {@code 429} are sent again after their
+ * {@code Retry-After}, as a client would, unless {@code --retry-rejected=false}.
+ */
+public final class LoadGenerator {
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private final LoadGeneratorOptions options;
+    private final OkHttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LoadReport report = new LoadReport();
+    private final ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor();
+
+    private LoadGenerator(final LoadGeneratorOptions options) {
+        this.options = options;
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(options.concurrency());
+        dispatcher.setMaxRequestsPerHost(options.concurrency());
+        this.client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(options.concurrency(), 5, TimeUnit.MINUTES))
+                .callTimeout(options.timeoutMs(), TimeUnit.MILLISECONDS)
+                .readTimeout(options.timeoutMs(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadGeneratorOptions options = LoadGeneratorOptions.parse(args);
+        LoadGenerator generator = new LoadGenerator(options);
+        boolean passed;
+        try {
+            passed = generator.run();
+        } finally {
+            generator.retries.shutdown();
+            generator.client.dispatcher().executorService().shutdown();
+            generator.client.connectionPool().evictAll();
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private boolean run() throws Exception {
+        // Create the lottery.
+        UUID lotteryId = createLottery();
+        System.out.printf("Created lottery '%s' with %d tickets%n", lotteryId, options.tickets());
+
+        // Issue the tickets.
+        long start = System.nanoTime();
+        if (options.model().equals("open")) {
+            runOpen(lotteryId);
+        } else {
+            runClosed(lotteryId);
+        }
+        report.elapsed(System.nanoTime() - start);
+
+        // Check the lottery.
+        check(lotteryId);
+        report.print(options, System.out);
+        if (options.report() != null) {
+            report.write(options, new File(options.report()));
+        }
+        return report.passed();
+    }
+
+    private UUID createLottery() throws IOException {
+        String body = objectMapper.writeValueAsString(Map.of(
+                "lottery_name", "load-" + System.currentTimeMillis(),
+                "available_lottery_ticket", options.tickets()));
+        Request request = new Request.Builder()
+                .url(options.baseUrl() + "/api/v1/lottery")
+                .post(RequestBody.create(body, JSON))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            if (response.code() != 201) {
+                throw new IllegalStateException(String.format("Creating the lottery failed with %d", response.code()));
+            }
+            return UUID.fromString(objectMapper.readTree(response.body().string()).get("lottery_id").asText());
+        }
+    }
+
+    /**
+     * Every worker issues tickets one after the other, the workers start evenly spread over the ramp-up.
+     */
+    private void runClosed(final UUID lotteryId) throws InterruptedException {
+        AtomicInteger nextUser = new AtomicInteger();
+        long rampUpNanos = (long) (options.rampUpSeconds() * 1e9);
+        long start = System.nanoTime();
+        Thread[] workers = new Thread[options.concurrency()];
+        for (int worker = 0; worker < workers.length; worker++) {
+            long startAt = start + rampUpNanos * worker / workers.length;
+            workers[worker] = new Thread(() -> {
+                parkUntil(startAt);
+                while (nextUser.getAndIncrement() < options.users()) {
+                    Request request = issueRequest(lotteryId);
+                    long retryAfterNanos;
+                    do {
+                        long sent = System.nanoTime();
+                        retryAfterNanos = -1;
+                        try (Response response = client.newCall(request).execute()) {
+                            response.body().close();
+                            report.record(response.code(), System.nanoTime() - sent);
+                            retryAfterNanos = retryAfterNanos(response);
+                        } catch (IOException e) {
+                            report.recordError(e, System.nanoTime() - sent);
+                        }
+                        if (retryAfterNanos >= 0) {
+                            parkUntil(System.nanoTime() + retryAfterNanos);
+                        }
+                    } while (retryAfterNanos >= 0);
+                }
+            }, "loadgen-" + worker);
+            workers[worker].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    /**
+     * Requests are due at the arrival rate, which rises linearly to its target over the ramp-up. At most
+     * {@code concurrency} requests are in flight, the others wait for a connection.
+     */
+    private void runOpen(final UUID lotteryId) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(options.users());
+        double rampUp = options.rampUpSeconds();
+        double rate = options.rate();
+        long start = System.nanoTime();
+        for (int user = 0; user < options.users(); user++) {
+            // Invert the number of arrivals until t, rate * t^2 / (2 * rampUp) during the ramp-up.
+            double seconds = user < rate * rampUp / 2
+                    ? Math.sqrt(2 * rampUp * user / rate)
+                    : rampUp + (user - rate * rampUp / 2) / rate;
+            long due = start + (long) (seconds * 1e9);
+            parkUntil(due);
+            sendOpen(issueRequest(lotteryId), due, done);
+        }
+        done.await();
+    }
+
+    /**
+     * Sends a request of the open model, and again after its {@code Retry-After} if it was refused.
+     */
+    private void sendOpen(final Request request, final long due, final CountDownLatch done) {
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+                report.record(response.code(), System.nanoTime() - due);
+                long retryAfterNanos = retryAfterNanos(response);
+                if (retryAfterNanos >= 0) {
+                    retries.schedule(() -> sendOpen(request, due, done), retryAfterNanos, TimeUnit.NANOSECONDS);
+                } else {
+                    done.countDown();
+                }
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                report.recordError(e, System.nanoTime() - due);
+                done.countDown();
+            }
+        });
+    }
+
+    /**
+     * Gets the time to wait before sending a request refused by the admission gate again.
+     *
+     * @return The time in nanoseconds, or {@code -1} if the request is not sent again.
+     */
+    private long retryAfterNanos(final Response response) {
+        if (response.code() != 429 || !options.retryRejected()) {
+            return -1;
+        }
+        String retryAfter = response.header("Retry-After");
+        try {
+            return TimeUnit.SECONDS.toNanos(retryAfter == null ? 1 : Math.max(0, Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException e) {
+            return TimeUnit.SECONDS.toNanos(1);
+        }
+    }
+
+    private Request issueRequest(final UUID lotteryId) {
+        String body = String.format("{\"user_id\":\"%s\",\"lottery_id\":\"%s\"}", UUID.randomUUID(), lotteryId);
+        return new Request.Builder()
+                .url(options.baseUrl() + "/api/" + options.api() + "/ticket")
+                .post(RequestBody.create(body, JSON))
+                .build();
+    }
+
+    /**
+     * Checks that exactly the allotted tickets, or one per user if there are fewer users, were issued and
+     * persisted, each with its own number and user, and that the lottery has the rest available. The
+     * available tickets are read from the statistics by default, which every issuance mode feeds, rather
+     * than from the cached lottery, which the optimistic and slots modes do not evict on issuance.
+     */
+    private void check(final UUID lotteryId) throws IOException, InterruptedException {
+        long issued = report.count(201);
+        long expected = Math.min(options.users(), options.tickets());
+
+        // Wait for the tickets to be persisted, e.g. by the write-behind writer.
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.settleMs());
+        PersistedTickets persisted = persistedTickets(lotteryId);
+        long available = availableTickets(lotteryId);
+        while ((persisted.tickets() != issued || available != options.tickets() - issued) && System.nanoTime() < deadline) {
+            Thread.sleep(200);
+            persisted = persistedTickets(lotteryId);
+            available = availableTickets(lotteryId);
+        }
+
+        report.check("issued tickets (201 responses)", expected, issued);
+        report.check("persisted tickets", issued, persisted.tickets());
+        report.check("distinct persisted ticket numbers", persisted.tickets(), persisted.numbers());
+        report.check("distinct persisted users", persisted.tickets(), persisted.users());
+        report.check("available tickets", options.tickets() - issued, available);
+    }
+
+    private record PersistedTickets(long tickets, long numbers, long users) {
+    }
+
+    private PersistedTickets persistedTickets(final UUID lotteryId) throws IOException {
+        Request request = new Request.Builder()
+                .url(options.baseUrl() + "/api/v1/lottery/" + lotteryId + "/ticket/stream")
+                .build();
+        long tickets = 0;
+        Set<String> numbers = new HashSet<>();
+        Set<String> users = new HashSet<>();
+        try (Response response = client.newCall(request).execute();
+             ResponseBody body = response.body();
+             BufferedReader reader = new BufferedReader(body.charStream())) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode ticket = objectMapper.readTree(line);
+                tickets++;
+                numbers.add(ticket.get("lottery_number").asText());
+                users.add(ticket.get("user_id").asText());
+            }
+        }
+        return new PersistedTickets(tickets, numbers.size(), users.size());
+    }
+
+    private long availableTickets(final UUID lotteryId) throws IOException {
+        boolean statistics = options.availableFrom().equals("statistics");
+        Request request = new Request.Builder()
+                .url(options.baseUrl() + "/api/v1/lottery/" + lotteryId + (statistics ? "/statistics" : ""))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            return objectMapper.readTree(response.body().string())
+                    .get(statistics ? "remaining_tickets" : "total_available_tickets").asLong();
+        }
+    }
+
+    private static void parkUntil(final long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.project.loadgen;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The options of a load generator run, parsed from {@code --name=value} arguments.
+ *
+ * @param baseUrl        The URL of the lottery service.
+ * @param api            The issuance API, {@code v1} or {@code v2}.
+ * @param users          The number of unique users, each requests one ticket.
+ * @param tickets        The allotted tickets of the lottery.
+ * @param concurrency    The number of users issuing at once (closed model) or of requests in flight (open model).
+ * @param model          {@code closed}: every user sends its request when the previous one finished, or
+ *                       {@code open}: requests arrive at a fixed rate whatever the response times.
+ * @param rate           The arrivals per second of the open model.
+ * @param rampUpSeconds  The time over which the users start (closed model) or the rate rises to its target (open model).
+ * @param timeoutMs      The timeout of a request.
+ * @param settleMs       The time the issued tickets may take to show up in the database, e.g. with write-behind.
+ * @param retryRejected  Whether requests refused with {@code 429} are sent again after their {@code Retry-After}.
+ * @param availableFrom  Where the available tickets are checked, {@code statistics}: the remaining tickets of the
+ *                       lottery statistics, or {@code lottery}: the cached lottery.
+ * @param report         The file to write the report to as JSON, or {@code null}.
+ */
+public record LoadGeneratorOptions(
+        String baseUrl,
+        String api,
+        int users,
+        long tickets,
+        int concurrency,
+        String model,
+        double rate,
+        double rampUpSeconds,
+        long timeoutMs,
+        long settleMs,
+        boolean retryRejected,
+        String availableFrom,
+        String report
+) {
+
+    public static LoadGeneratorOptions parse(final String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (arg.isBlank()) {
+                continue;
+            }
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException(String.format("Expected --name=value, got '%s'", arg));
+            }
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        int users = Integer.parseInt(values.getOrDefault("users", "1000"));
+        LoadGeneratorOptions options = new LoadGeneratorOptions(
+                values.getOrDefault("base-url", "http://localhost:8080"),
+                values.getOrDefault("api", "v1"),
+                users,
+                Long.parseLong(values.getOrDefault("tickets", String.valueOf(users))),
+                Integer.parseInt(values.getOrDefault("concurrency", "50")),
+                values.getOrDefault("model", "closed"),
+                Double.parseDouble(values.getOrDefault("rate", "500")),
+                Double.parseDouble(values.getOrDefault("ramp-up-seconds", "0")),
+                Long.parseLong(values.getOrDefault("timeout-ms", "10000")),
+                Long.parseLong(values.getOrDefault("settle-ms", "10000")),
+                Boolean.parseBoolean(values.getOrDefault("retry-rejected", "true")),
+                values.getOrDefault("available-from", "statistics"),
+                values.get("report")
+        );
+        if (!options.api().equals("v1") && !options.api().equals("v2")) {
+            throw new IllegalArgumentException(String.format("Unknown api '%s', expected v1 or v2", options.api()));
+        }
+        if (!options.model().equals("closed") && !options.model().equals("open")) {
+            throw new IllegalArgumentException(String.format("Unknown model '%s', expected closed or open", options.model()));
+        }
+        if (!options.availableFrom().equals("statistics") && !options.availableFrom().equals("lottery")) {
+            throw new IllegalArgumentException(String.format("Unknown available-from '%s', expected statistics or lottery",
+                    options.availableFrom()));
+        }
+        return options;
+    }
+}
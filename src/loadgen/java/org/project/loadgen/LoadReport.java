@@ -0,0 +1,125 @@
+package org.project.loadgen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the latencies and outcomes of a run and the checks of the lottery afterwards.
+ */
+public class LoadReport {
+
+    /**
+     * A check of the lottery after the run.
+     *
+     * @param name     What was checked.
+     * @param expected The expected value.
+     * @param actual   The actual value.
+     */
+    public record Check(String name, long expected, long actual) {
+
+        public boolean passed() {
+            return expected == actual;
+        }
+    }
+
+    private final Histogram latencies = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(5), 3);
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final List<Check> checks = new ArrayList<>();
+    private long elapsedNanos;
+
+    /**
+     * Records a response.
+     *
+     * @param status       The status code.
+     * @param latencyNanos The time from the intended send time until the response.
+     */
+    public void record(final int status, final long latencyNanos) {
+        latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), latencies.getHighestTrackableValue()));
+        outcomes.computeIfAbsent(String.valueOf(status), k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Records a request that got no response.
+     *
+     * @param error        The error.
+     * @param latencyNanos The time from the intended send time until the error.
+     */
+    public void recordError(final Exception error, final long latencyNanos) {
+        latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), latencies.getHighestTrackableValue()));
+        outcomes.computeIfAbsent(error.getClass().getSimpleName(), k -> new LongAdder()).increment();
+    }
+
+    public long count(final int status) {
+        LongAdder count = outcomes.get(String.valueOf(status));
+        return count == null ? 0 : count.sum();
+    }
+
+    public void elapsed(final long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public void check(final String name, final long expected, final long actual) {
+        checks.add(new Check(name, expected, actual));
+    }
+
+    public boolean passed() {
+        return !checks.isEmpty() && checks.stream().allMatch(Check::passed);
+    }
+
+    public void print(final LoadGeneratorOptions options, final PrintStream out) {
+        double seconds = elapsedNanos / 1e9;
+        out.printf("%n%s model, %s api, %d users, %d tickets, concurrency %d%n",
+                options.model(), options.api(), options.users(), options.tickets(), options.concurrency());
+        out.printf("Duration     %10.2f s%n", seconds);
+        out.printf("Throughput   %10.1f requests/s, %.1f tickets/s%n",
+                latencies.getTotalCount() / seconds, count(201) / seconds);
+        out.printf("Latency      p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+                percentileMillis(50), percentileMillis(99), percentileMillis(99.9), latencies.getMaxValue() / 1000.0);
+        out.println("Responses");
+        new TreeMap<>(outcomes).forEach((outcome, count) -> out.printf("  %-24s %10d%n", outcome, count.sum()));
+        out.println("Checks");
+        checks.forEach(check -> out.printf("  %-4s %-40s expected %d, was %d%n",
+                check.passed() ? "OK" : "FAIL", check.name(), check.expected(), check.actual()));
+        out.println(passed() ? "PASSED" : "FAILED");
+    }
+
+    public void write(final LoadGeneratorOptions options, final File file) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options);
+        report.put("duration_seconds", elapsedNanos / 1e9);
+        report.put("requests", latencies.getTotalCount());
+        report.put("throughput_per_second", latencies.getTotalCount() / (elapsedNanos / 1e9));
+        Map<String, Double> latencyMillis = new LinkedHashMap<>();
+        latencyMillis.put("p50", percentileMillis(50));
+        latencyMillis.put("p90", percentileMillis(90));
+        latencyMillis.put("p99", percentileMillis(99));
+        latencyMillis.put("p99.9", percentileMillis(99.9));
+        latencyMillis.put("max", latencies.getMaxValue() / 1000.0);
+        report.put("latency_ms", latencyMillis);
+        Map<String, Long> responses = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> responses.put(outcome, count.sum()));
+        report.put("responses", responses);
+        report.put("checks", checks.stream().map(check -> Map.of(
+                "name", check.name(), "expected", check.expected(), "actual", check.actual(), "passed", check.passed())).toList());
+        report.put("passed", passed());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+    }
+
+    private double percentileMillis(final double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
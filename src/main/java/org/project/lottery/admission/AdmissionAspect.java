@@ -0,0 +1,48 @@
+package org.project.lottery.admission;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.project.lottery.v1.dto.IssueTicketRequest;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs every ticket issuance through the {@link AdmissionGate} of its lottery. Ordered after the
+ * sold-out check, so sold-out lotteries never queue, and outside of the transaction of the ticket
+ * service, so waiting requests hold no connection.
+ */
+@Aspect
+@Component
+@Order(1)
+public class AdmissionAspect {
+
+    /**
+     * The admission gate.
+     */
+    private final AdmissionGate admissionGate;
+
+    /**
+     * Constructs a new AdmissionAspect instance.
+     *
+     * @param admissionGate The admission gate.
+     */
+    public AdmissionAspect(final AdmissionGate admissionGate) {
+        this.admissionGate = admissionGate;
+    }
+
+    /**
+     * Issues a ticket once the lottery has a free slot.
+     *
+     * @param joinPoint The ticket service call.
+     * @param request   The issue ticket request.
+     * @return The ticket response.
+     * @throws Throwable The exception of the ticket service.
+     */
+    @Around("execution(* org.project.lottery.v1.service.ticket.ITicketService+.issueTicket(..)) && args(request)")
+    public Object issueTicket(final ProceedingJoinPoint joinPoint, final IssueTicketRequest request) throws Throwable {
+        try (AdmissionGate.Permit ignored = admissionGate.enter(request.lotteryId())) {
+            return joinPoint.proceed();
+        }
+    }
+}
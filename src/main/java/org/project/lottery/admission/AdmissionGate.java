@@ -0,0 +1,239 @@
+package org.project.lottery.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.project.lottery.exceptions.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the issuance attempts of every lottery running at once on this node. A caller beyond the cap waits
+ * in arrival order in a bounded queue, a blocking caller on its own thread and a reactive caller without
+ * holding one, and is refused with a {@link TooManyRequestsException} if the queue is full or its time in
+ * the queue is up. The retry delay is the time the current backlog takes to drain at the rate the attempts
+ * of the lottery have been completing.
+ */
+@Component
+@Slf4j
+public class AdmissionGate {
+    /**
+     * The time after which the queue of a lottery without requests is dropped.
+     */
+    private static final Duration IDLE_QUEUE_EXPIRY = Duration.ofMinutes(10);
+
+    /**
+     * The longest retry delay handed out, in seconds.
+     */
+    private static final long MAX_RETRY_AFTER_SECONDS = 60;
+
+    private final Cache<UUID, LotteryQueue> queues = Caffeine.newBuilder().expireAfterAccess(IDLE_QUEUE_EXPIRY).build();
+    private final Counter rejected;
+
+    @Value("${lottery.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${lottery.admission.max-in-flight:16}")
+    private int maxInFlight;
+
+    @Value("${lottery.admission.max-queued:64}")
+    private int maxQueued;
+
+    @Value("${lottery.admission.queue-timeout-ms:2000}")
+    private long queueTimeoutMs;
+
+    /**
+     * The issuance attempts and the waiting requests of a lottery.
+     */
+    private static final class LotteryQueue {
+        private final Semaphore permits;
+        private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final DrainRate drainRate = new DrainRate();
+
+        private LotteryQueue(final int maxInFlight) {
+            this.permits = new Semaphore(maxInFlight);
+        }
+
+        /**
+         * Hands the free slots to the waiting requests in arrival order. Runs after every release and every
+         * new waiter, so a free slot and a waiting request never miss each other.
+         */
+        private void dispatch() {
+            while (!waiters.isEmpty() && permits.tryAcquire()) {
+                Waiter waiter = waiters.poll();
+                if (waiter == null || !waiter.admit(new Permit(this))) {
+                    permits.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * A request waiting for a slot, admitted or given up exactly once.
+     */
+    private static final class Waiter {
+        private final MonoSink<Permit> sink;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile Disposable timeout;
+
+        private Waiter(final MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+
+        private boolean admit(final Permit permit) {
+            if (!done.compareAndSet(false, true)) {
+                return false;
+            }
+            permit.queue.queued.decrementAndGet();
+            Disposable pending = timeout;
+            if (pending != null) {
+                pending.dispose();
+            }
+            sink.success(permit);
+            return true;
+        }
+
+        private boolean giveUp() {
+            return done.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * A running issuance attempt, closing it hands its slot to the next waiting request.
+     */
+    public static final class Permit implements AutoCloseable {
+        private static final Permit NONE = new Permit(null);
+
+        private final LotteryQueue queue;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Permit(final LotteryQueue queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void close() {
+            if (queue != null && closed.compareAndSet(false, true)) {
+                queue.drainRate.record();
+                queue.permits.release();
+                queue.dispatch();
+            }
+        }
+    }
+
+    /**
+     * Constructs a new AdmissionGate instance.
+     *
+     * @param meterRegistry The meter registry.
+     */
+    public AdmissionGate(final MeterRegistry meterRegistry) {
+        this.rejected = Counter.builder("lottery.admission.rejected")
+                .description("Issuance requests refused because too many were running or waiting")
+                .register(meterRegistry);
+        Gauge.builder("lottery.admission.queued", this, AdmissionGate::queued)
+                .description("Issuance requests waiting for their turn")
+                .register(meterRegistry);
+        Gauge.builder("lottery.admission.in-flight", this, AdmissionGate::inFlight)
+                .description("Issuance attempts running")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts an issuance attempt of the lottery, waiting on the calling thread for a slot in arrival order
+     * if the lottery has too many running. Shares the queue of {@link #enterAsync(UUID)}.
+     *
+     * @param lotteryId The lottery id.
+     * @return The permit of the attempt, to be closed once it completed.
+     * @throws TooManyRequestsException If the queue is full or the request waited too long.
+     */
+    public Permit enter(final UUID lotteryId) {
+        return enterAsync(lotteryId).block();
+    }
+
+    /**
+     * Starts an issuance attempt of the lottery, waiting for a slot in arrival order if the lottery has
+     * too many running. Waiting holds no thread.
+     *
+     * @param lotteryId The lottery id.
+     * @return The permit of the attempt, to be closed once it completed, or a {@link TooManyRequestsException}
+     * if the queue is full or the request waited too long.
+     */
+    public Mono<Permit> enterAsync(final UUID lotteryId) {
+        if (!enabled) {
+            return Mono.just(Permit.NONE);
+        }
+
+        return Mono.<Permit>create(sink -> {
+            LotteryQueue queue = queues.get(lotteryId, id -> new LotteryQueue(maxInFlight));
+
+            // Take a free slot unless requests are already waiting for one, so a new request never gets
+            // ahead of them, or refuse the request right away if the queue is full.
+            if (queue.waiters.isEmpty() && queue.permits.tryAcquire()) {
+                sink.success(new Permit(queue));
+                return;
+            }
+            if (queue.queued.incrementAndGet() > maxQueued) {
+                queue.queued.decrementAndGet();
+                sink.error(reject(queue));
+                return;
+            }
+
+            // Wait for a slot behind the requests that came first, giving up when the time is up or the
+            // request went away.
+            Waiter waiter = new Waiter(sink);
+            waiter.timeout = Schedulers.parallel().schedule(() -> {
+                if (giveUp(queue, waiter)) {
+                    sink.error(reject(queue));
+                }
+            }, queueTimeoutMs, TimeUnit.MILLISECONDS);
+            sink.onCancel(() -> giveUp(queue, waiter));
+            queue.waiters.add(waiter);
+            queue.dispatch();
+        }).doOnDiscard(Permit.class, Permit::close);
+    }
+
+    private boolean giveUp(final LotteryQueue queue, final Waiter waiter) {
+        if (!waiter.giveUp()) {
+            return false;
+        }
+        queue.waiters.remove(waiter);
+        queue.queued.decrementAndGet();
+        return true;
+    }
+
+    private TooManyRequestsException reject(final LotteryQueue queue) {
+        rejected.increment();
+
+        // The time the waiting and running attempts take to complete at the current drain rate.
+        double perSecond = queue.drainRate.perSecond();
+        long backlog = (long) queue.queued.get() + maxInFlight;
+        long retryAfter = perSecond > 0 ? (long) Math.ceil(backlog / perSecond) : 1;
+        return new TooManyRequestsException("Too many requests for this lottery, retry later",
+                Math.max(1, Math.min(retryAfter, MAX_RETRY_AFTER_SECONDS)));
+    }
+
+    private double queued() {
+        return queues.asMap().values().stream().mapToInt(queue -> queue.queued.get()).sum();
+    }
+
+    private double inFlight() {
+        return queues.asMap().values().stream().mapToInt(queue -> maxInFlight - queue.permits.availablePermits()).sum();
+    }
+}
@@ -0,0 +1,58 @@
+package org.project.lottery.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The rate at which the issuance attempts of a lottery complete, as an exponentially weighted moving
+ * average over one-second ticks with a five-second window. Ticks are folded in lazily by the callers,
+ * so idle lotteries cost nothing.
+ */
+final class DrainRate {
+    private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * The weight of the last tick, for a five-second window.
+     */
+    private static final double ALPHA = 1 - Math.exp(-1.0 / 5);
+
+    private final LongAdder completions = new LongAdder();
+    private final AtomicLong lastTick = new AtomicLong(System.nanoTime());
+    private volatile double perSecond;
+    private volatile boolean initialized;
+
+    /**
+     * Records a completed attempt.
+     */
+    void record() {
+        tickIfNecessary();
+        completions.increment();
+    }
+
+    /**
+     * Returns the completed attempts per second.
+     *
+     * @return The drain rate.
+     */
+    double perSecond() {
+        tickIfNecessary();
+        return perSecond;
+    }
+
+    private void tickIfNecessary() {
+        long tick = lastTick.get();
+        long now = System.nanoTime();
+        long age = now - tick;
+        if (age < TICK_NANOS || !lastTick.compareAndSet(tick, now - age % TICK_NANOS)) {
+            return;
+        }
+
+        // The completions belong to the first elapsed tick, the others were idle.
+        long ticks = age / TICK_NANOS;
+        double last = completions.sumThenReset();
+        double rate = initialized ? perSecond + ALPHA * (last - perSecond) : last;
+        perSecond = rate * Math.pow(1 - ALPHA, ticks - 1);
+        initialized = true;
+    }
+}
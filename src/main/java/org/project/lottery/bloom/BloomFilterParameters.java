@@ -0,0 +1,53 @@
+package org.project.lottery.bloom;
+
+import java.util.UUID;
+
+/**
+ * The size of a Bloom filter and its number of hash functions.
+ *
+ * @param bits   The number of bits.
+ * @param hashes The number of hash functions.
+ */
+public record BloomFilterParameters(long bits, int hashes) {
+    /**
+     * Redis bitmaps are limited to 2^32 bits.
+     */
+    private static final long MAX_BITS = 1L << 32;
+
+    /**
+     * Sizes a Bloom filter for the expected number of elements and false positive probability.
+     *
+     * @param expectedElements          The expected number of elements.
+     * @param falsePositiveProbability  The false positive probability.
+     * @return The parameters.
+     */
+    public static BloomFilterParameters of(final long expectedElements, final double falsePositiveProbability) {
+        long elements = Math.max(1, expectedElements);
+        long bits = (long) Math.ceil(-elements * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        bits = Math.min(MAX_BITS, Math.max(64, bits));
+        int hashes = (int) Math.max(1, Math.round((double) bits / elements * Math.log(2)));
+        return new BloomFilterParameters(bits, hashes);
+    }
+
+    /**
+     * Computes the bit offsets of a user with double hashing.
+     *
+     * @param userId The user id.
+     * @return The bit offsets.
+     */
+    public long[] offsets(final UUID userId) {
+        long hash1 = mix(userId.getMostSignificantBits() ^ Long.rotateLeft(userId.getLeastSignificantBits(), 32));
+        long hash2 = mix(userId.getLeastSignificantBits() + 0x9E3779B97F4A7C15L) | 1;
+        long[] offsets = new long[hashes];
+        for (int i = 0; i < hashes; i++) {
+            offsets[i] = Math.floorMod(hash1 + i * hash2, bits);
+        }
+        return offsets;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+}
@@ -0,0 +1,296 @@
+package org.project.lottery.bloom;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter of the users holding a ticket of a lottery, kept as a Redis bitmap shared by all nodes.
+ * A miss is definite, so the duplicate user lookup in the database only runs for possible hits.
+ * Small filters are mirrored in memory; since bits are never cleared, a hit in the mirror is a hit in
+ * Redis and saves the Redis round trip, while a miss in the mirror is confirmed against Redis. Only the
+ * filters of the lotteries used recently are kept, and only their mirrors are refreshed.
+ */
+@Component
+@Slf4j
+public class ParticipantBloomFilter {
+    /**
+     * The key of the Bloom filter bitmap of a lottery.
+     */
+    private static final String LOTTERY_PARTICIPANTS_BLOOM_KEY = "lottery_%s_participants_bloom";
+
+    /**
+     * The key of the hash holding the parameters of the Bloom filter of a lottery.
+     */
+    private static final String LOTTERY_PARTICIPANTS_BLOOM_PARAMETERS_KEY = "lottery_%s_participants_bloom_parameters";
+
+    /**
+     * The number of users added by one script call of {@link #addAll(UUID, Collection)}.
+     */
+    private static final int ADD_ALL_CHUNK_SIZE = 1000;
+
+    private static final RedisScript<Long> MIGHT_CONTAIN_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/bloom_might_contain.lua"), Long.class);
+
+    private static final RedisScript<Long> ADD_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/bloom_add.lua"), Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final Cache<UUID, BloomFilterParameters> parameters;
+    private final Cache<UUID, AtomicLongArray> mirrors;
+
+    /**
+     * The lotteries whose filter was used since the last refresh of the mirrors.
+     */
+    private final Set<UUID> touched = ConcurrentHashMap.newKeySet();
+
+    @Value("${lottery.ticket.bloom-filter.enabled:false}")
+    private boolean enabled;
+
+    @Value("${lottery.ticket.bloom-filter.false-positive-probability:0.01}")
+    private double falsePositiveProbability;
+
+    @Value("${lottery.ticket.bloom-filter.local-max-bits:67108864}")
+    private long localMaxBits;
+
+    /**
+     * Constructs a new ParticipantBloomFilter instance.
+     *
+     * @param redisTemplate     The Redis template.
+     * @param expireAfterAccess The time after which the filter of a lottery not used any more is forgotten, in milliseconds.
+     * @param maxLotteries      The number of lotteries whose filter is kept on this node.
+     */
+    public ParticipantBloomFilter(final StringRedisTemplate redisTemplate,
+                                  @Value("${lottery.ticket.bloom-filter.expire-after-access-ms:600000}") final long expireAfterAccess,
+                                  @Value("${lottery.ticket.bloom-filter.max-lotteries:1000}") final long maxLotteries) {
+        this.redisTemplate = redisTemplate;
+        this.parameters = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMillis(expireAfterAccess))
+                .maximumSize(maxLotteries)
+                .build();
+        this.mirrors = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMillis(expireAfterAccess))
+                .maximumSize(maxLotteries)
+                .build();
+    }
+
+    /**
+     * Creates the Bloom filter of a new lottery, sized from its allotted tickets.
+     *
+     * @param lotteryId            The lottery id.
+     * @param totalAllottedTickets The total allotted tickets.
+     */
+    public void create(final UUID lotteryId, final long totalAllottedTickets) {
+        if (!enabled) {
+            return;
+        }
+
+        BloomFilterParameters filterParameters = BloomFilterParameters.of(totalAllottedTickets, falsePositiveProbability);
+        redisTemplate.opsForHash().putAll(String.format(LOTTERY_PARTICIPANTS_BLOOM_PARAMETERS_KEY, lotteryId), Map.of(
+                "bits", String.valueOf(filterParameters.bits()),
+                "hashes", String.valueOf(filterParameters.hashes())
+        ));
+        // Setting the last bit allocates the whole bitmap once.
+        redisTemplate.opsForValue().setBit(String.format(LOTTERY_PARTICIPANTS_BLOOM_KEY, lotteryId), filterParameters.bits() - 1, false);
+        parameters.put(lotteryId, filterParameters);
+        log.info("Created participant Bloom filter of lottery '{}' with {} bits and {} hashes",
+                lotteryId, filterParameters.bits(), filterParameters.hashes());
+    }
+
+    /**
+     * Checks whether the user might hold a ticket of the lottery.
+     *
+     * @param lotteryId The lottery id.
+     * @param userId    The user id.
+     * @return {@code false} if the user definitely holds no ticket, {@code true} otherwise, including
+     * when the lottery has no Bloom filter.
+     */
+    public boolean mightContain(final UUID lotteryId, final UUID userId) {
+        BloomFilterParameters filterParameters = enabled ? parameters(lotteryId) : null;
+        if (filterParameters == null) {
+            return true;
+        }
+
+        long[] offsets = filterParameters.offsets(userId);
+        AtomicLongArray mirror = mirror(lotteryId, filterParameters);
+        if (mirror != null && allSet(mirror, offsets)) {
+            return true;
+        }
+
+        Long result = redisTemplate.execute(MIGHT_CONTAIN_SCRIPT,
+                List.of(String.format(LOTTERY_PARTICIPANTS_BLOOM_KEY, lotteryId)), (Object[]) toArgs(offsets));
+        return result == null || result != 0;
+    }
+
+    /**
+     * Adds the user to the Bloom filter of the lottery. Must be called before the ticket is saved, so a
+     * failure can only cause a false positive.
+     *
+     * @param lotteryId The lottery id.
+     * @param userId    The user id.
+     */
+    public void add(final UUID lotteryId, final UUID userId) {
+        BloomFilterParameters filterParameters = enabled ? parameters(lotteryId) : null;
+        if (filterParameters == null) {
+            return;
+        }
+
+        long[] offsets = filterParameters.offsets(userId);
+        redisTemplate.execute(ADD_SCRIPT, List.of(String.format(LOTTERY_PARTICIPANTS_BLOOM_KEY, lotteryId)), (Object[]) toArgs(offsets));
+        AtomicLongArray mirror = mirror(lotteryId, filterParameters);
+        if (mirror != null) {
+            for (long offset : offsets) {
+                setBit(mirror, offset);
+            }
+        }
+    }
+
+    /**
+     * Adds the users to the filter of the lottery with one script call per chunk of users.
+     *
+     * @param lotteryId The lottery id.
+     * @param userIds   The user ids.
+     */
+    public void addAll(final UUID lotteryId, final Collection<UUID> userIds) {
+        BloomFilterParameters filterParameters = enabled ? parameters(lotteryId) : null;
+        if (filterParameters == null || userIds.isEmpty()) {
+            return;
+        }
+
+        AtomicLongArray mirror = mirror(lotteryId, filterParameters);
+        List<String> args = new ArrayList<>();
+        int users = 0;
+        for (UUID userId : userIds) {
+            long[] offsets = filterParameters.offsets(userId);
+            args.addAll(Arrays.asList(toArgs(offsets)));
+            if (mirror != null) {
+                for (long offset : offsets) {
+                    setBit(mirror, offset);
+                }
+            }
+            if (++users % ADD_ALL_CHUNK_SIZE == 0 || users == userIds.size()) {
+                redisTemplate.execute(ADD_SCRIPT, List.of(String.format(LOTTERY_PARTICIPANTS_BLOOM_KEY, lotteryId)),
+                        args.toArray());
+                args.clear();
+            }
+        }
+    }
+
+    /**
+     * Refreshes the in-memory mirrors of the lotteries used since the last refresh with the bits set by
+     * other nodes.
+     */
+    @Scheduled(fixedDelayString = "${lottery.ticket.bloom-filter.refresh-interval-ms:5000}")
+    public void refreshMirrors() {
+        for (UUID lotteryId : touched) {
+            touched.remove(lotteryId);
+            AtomicLongArray mirror = mirrors.getIfPresent(lotteryId);
+            if (mirror == null) {
+                continue;
+            }
+
+            byte[] bitmap = redisTemplate.execute((RedisCallback<byte[]>) connection -> get(connection,
+                    String.format(LOTTERY_PARTICIPANTS_BLOOM_KEY, lotteryId)));
+            if (bitmap == null) {
+                continue;
+            }
+            for (int word = 0; word < mirror.length() && word * Long.BYTES < bitmap.length; word++) {
+                long bits = 0;
+                for (int i = 0; i < Long.BYTES && word * Long.BYTES + i < bitmap.length; i++) {
+                    // Redis numbers bits from the most significant bit of each byte.
+                    long reversed = Integer.reverse(bitmap[word * Long.BYTES + i] & 0xFF) >>> 24;
+                    bits |= reversed << (i * 8);
+                }
+                if (bits != 0) {
+                    mirror.accumulateAndGet(word, bits, (current, update) -> current | update);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets the filter of a lottery on this node, e.g. once it sold out. It is loaded again from Redis
+     * if the lottery is used again.
+     *
+     * @param lotteryId The lottery id.
+     */
+    public void forget(final UUID lotteryId) {
+        parameters.invalidate(lotteryId);
+        mirrors.invalidate(lotteryId);
+        touched.remove(lotteryId);
+    }
+
+    /**
+     * Deletes the filter of a deleted lottery.
+     *
+     * @param lotteryId The lottery id.
+     */
+    public void delete(final UUID lotteryId) {
+        forget(lotteryId);
+        redisTemplate.delete(List.of(String.format(LOTTERY_PARTICIPANTS_BLOOM_KEY, lotteryId),
+                String.format(LOTTERY_PARTICIPANTS_BLOOM_PARAMETERS_KEY, lotteryId)));
+    }
+
+    private BloomFilterParameters parameters(final UUID lotteryId) {
+        BloomFilterParameters filterParameters = parameters.getIfPresent(lotteryId);
+        if (filterParameters != null) {
+            touched.add(lotteryId);
+            return filterParameters;
+        }
+
+        List<Object> values = redisTemplate.opsForHash().multiGet(
+                String.format(LOTTERY_PARTICIPANTS_BLOOM_PARAMETERS_KEY, lotteryId), List.of("bits", "hashes"));
+        if (values.get(0) == null || values.get(1) == null) {
+            // Lotteries created without a Bloom filter always go to the database.
+            return null;
+        }
+        filterParameters = new BloomFilterParameters(
+                Long.parseLong((String) values.get(0)), Integer.parseInt((String) values.get(1)));
+        parameters.put(lotteryId, filterParameters);
+        touched.add(lotteryId);
+        return filterParameters;
+    }
+
+    private AtomicLongArray mirror(final UUID lotteryId, final BloomFilterParameters filterParameters) {
+        if (filterParameters.bits() > localMaxBits) {
+            return null;
+        }
+        return mirrors.get(lotteryId, id -> new AtomicLongArray((int) ((filterParameters.bits() + 63) / 64)));
+    }
+
+    private static boolean allSet(final AtomicLongArray mirror, final long[] offsets) {
+        return Arrays.stream(offsets).allMatch(offset -> (mirror.get((int) (offset >>> 6)) & (1L << offset)) != 0);
+    }
+
+    private static void setBit(final AtomicLongArray mirror, final long offset) {
+        mirror.accumulateAndGet((int) (offset >>> 6), 1L << offset, (current, bit) -> current | bit);
+    }
+
+    private static String[] toArgs(final long[] offsets) {
+        return Arrays.stream(offsets).mapToObj(String::valueOf).toArray(String[]::new);
+    }
+
+    private static byte[] get(final RedisConnection connection, final String key) {
+        return connection.stringCommands().get(key.getBytes(StandardCharsets.UTF_8));
+    }
+}
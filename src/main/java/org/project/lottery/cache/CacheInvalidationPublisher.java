@@ -0,0 +1,21 @@
+package org.project.lottery.cache;
+
+/**
+ * Tells the other nodes to drop their local copies of cache entries.
+ */
+public interface CacheInvalidationPublisher {
+    /**
+     * Publishes that an entry changed.
+     *
+     * @param cacheName The cache name.
+     * @param key       The cache key.
+     */
+    void evicted(String cacheName, Object key);
+
+    /**
+     * Publishes that a cache was cleared.
+     *
+     * @param cacheName The cache name.
+     */
+    void cleared(String cacheName);
+}
@@ -0,0 +1,150 @@
+package org.project.lottery.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.concurrent.Callable;
+
+/**
+ * A cache reading from a bounded local Caffeine cache first and from the shared Redis cache on a local
+ * miss. Writes and evictions go to Redis first. Only evictions and clears tell every other node to drop its
+ * local copy: entries are never changed in place but evicted when the lottery changes, so a put is the fill
+ * of a value that was just loaded, and publishing it would make every node drop and reload its copy in turn.
+ */
+@Slf4j
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+    private final String name;
+    private final Cache<String, Object> localCache;
+    private final RedisCache remoteCache;
+    private final CacheInvalidationPublisher invalidationPublisher;
+
+    /**
+     * Constructs a new TwoLevelCache instance.
+     *
+     * @param name                  The cache name.
+     * @param localCache            The local cache, holding store values.
+     * @param remoteCache           The shared Redis cache.
+     * @param invalidationPublisher Tells the other nodes to drop their local copies.
+     */
+    public TwoLevelCache(final String name,
+                         final Cache<String, Object> localCache,
+                         final RedisCache remoteCache,
+                         final CacheInvalidationPublisher invalidationPublisher) {
+        super(remoteCache.isAllowNullValues());
+        this.name = name;
+        this.localCache = localCache;
+        this.remoteCache = remoteCache;
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    /**
+     * Gets the local cache.
+     *
+     * @return The local cache.
+     */
+    public Cache<String, Object> getLocalCache() {
+        return localCache;
+    }
+
+    /**
+     * Gets the shared Redis cache.
+     *
+     * @return The Redis cache.
+     */
+    public RedisCache getRemoteCache() {
+        return remoteCache;
+    }
+
+    @Override
+    protected Object lookup(final Object key) {
+        // Read the local copy first.
+        String localKey = String.valueOf(key);
+        Object value = localCache.getIfPresent(localKey);
+        if (value != null) {
+            return value;
+        }
+
+        // Fall back to Redis and keep a local copy of what was found. An entry this node can not read,
+        // e.g. written by a newer node during a rolling upgrade, is a miss.
+        ValueWrapper wrapper;
+        try {
+            wrapper = remoteCache.get(key);
+        } catch (SerializationException e) {
+            log.warn("Ignoring unreadable entry '{}' of cache '{}': {}", key, name, e.getMessage());
+            return null;
+        }
+        if (wrapper == null) {
+            return null;
+        }
+        value = toStoreValue(wrapper.get());
+        localCache.put(localKey, value);
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(final Object key, final Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(final Object key, final Object value) {
+        remoteCache.put(key, value);
+        localCache.put(String.valueOf(key), toStoreValue(value));
+    }
+
+    @Override
+    public void evict(final Object key) {
+        remoteCache.evict(key);
+        localCache.invalidate(String.valueOf(key));
+        invalidationPublisher.evicted(name, key);
+    }
+
+    @Override
+    public void clear() {
+        remoteCache.clear();
+        localCache.invalidateAll();
+        invalidationPublisher.cleared(name);
+    }
+
+    /**
+     * Drops the local copy after another node changed the entry.
+     *
+     * @param key The cache key.
+     */
+    void evictLocal(final String key) {
+        localCache.invalidate(key);
+    }
+
+    /**
+     * Drops all local copies after another node cleared the cache.
+     */
+    void clearLocal() {
+        localCache.invalidateAll();
+    }
+}
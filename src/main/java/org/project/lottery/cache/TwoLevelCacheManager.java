@@ -0,0 +1,140 @@
+package org.project.lottery.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.metrics.cache.RedisCacheMetrics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Creates {@link TwoLevelCache}s on top of a {@link RedisCacheManager} and keeps their local tiers in
+ * sync across nodes. Changes are published on {@code lottery_cache_invalidation} as
+ * {@code <node> <cache> [<key>]}, and every other node drops its local copy of the key, or of the whole
+ * cache when the key is missing.
+ */
+@Slf4j
+public class TwoLevelCacheManager extends AbstractTransactionSupportingCacheManager implements CacheInvalidationPublisher, MessageListener {
+    /**
+     * The channel the cache invalidations are published to.
+     */
+    private static final String CACHE_INVALIDATION_CHANNEL = "lottery_cache_invalidation";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final RedisCacheManager remoteCacheManager;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final long localMaximumSize;
+    private final Duration localExpireAfterWrite;
+
+    /**
+     * Constructs a new TwoLevelCacheManager instance.
+     *
+     * @param remoteCacheManager    The Redis cache manager.
+     * @param redisTemplate         The Redis template.
+     * @param listenerContainer     The Redis message listener container.
+     * @param meterRegistry         The meter registry.
+     * @param localMaximumSize      The maximum number of entries of every local cache.
+     * @param localExpireAfterWrite The time after which local entries expire.
+     */
+    public TwoLevelCacheManager(final RedisCacheManager remoteCacheManager,
+                                final StringRedisTemplate redisTemplate,
+                                final RedisMessageListenerContainer listenerContainer,
+                                final MeterRegistry meterRegistry,
+                                final long localMaximumSize,
+                                final Duration localExpireAfterWrite) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.localMaximumSize = localMaximumSize;
+        this.localExpireAfterWrite = localExpireAfterWrite;
+        listenerContainer.addMessageListener(this, new ChannelTopic(CACHE_INVALIDATION_CHANNEL));
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        return List.of();
+    }
+
+    @Override
+    protected Cache getMissingCache(final String name) {
+        RedisCache remoteCache = (RedisCache) remoteCacheManager.getCache(name);
+        if (remoteCache == null) {
+            return null;
+        }
+
+        com.github.benmanes.caffeine.cache.Cache<String, Object> localCache = Caffeine.newBuilder()
+                .maximumSize(localMaximumSize)
+                .expireAfterWrite(localExpireAfterWrite)
+                .recordStats()
+                .build();
+
+        // Expose the hits and misses of both tiers.
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, name, Tags.of("tier", "local"));
+        new RedisCacheMetrics(remoteCache, Tags.of("tier", "remote")).bindTo(meterRegistry);
+
+        return new TwoLevelCache(name, localCache, remoteCache, this);
+    }
+
+    @Override
+    public void evicted(final String cacheName, final Object key) {
+        publish(nodeId + " " + cacheName + " " + key);
+    }
+
+    @Override
+    public void cleared(final String cacheName) {
+        publish(nodeId + " " + cacheName);
+    }
+
+    /**
+     * Drops the local copies changed by another node.
+     *
+     * @param message The invalidation message.
+     * @param pattern The channel pattern.
+     */
+    @Override
+    public void onMessage(final Message message, final byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(" ", 3);
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+
+        // Only caches this node already used can hold local copies.
+        Cache cache = lookupCache(parts[1]);
+        if (cache instanceof TransactionAwareCacheDecorator decorator) {
+            cache = decorator.getTargetCache();
+        }
+        if (cache instanceof TwoLevelCache twoLevelCache) {
+            if (parts.length == 3) {
+                twoLevelCache.evictLocal(parts[2]);
+            } else {
+                twoLevelCache.clearLocal();
+            }
+        }
+    }
+
+    private void publish(final String message) {
+        try {
+            redisTemplate.convertAndSend(CACHE_INVALIDATION_CHANNEL, message);
+        } catch (RuntimeException e) {
+            // The local copies of the other nodes still expire.
+            log.warn("Failed to publish cache invalidation '{}'", message, e);
+        }
+    }
+}
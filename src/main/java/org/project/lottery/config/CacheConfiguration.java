@@ -0,0 +1,59 @@
+package org.project.lottery.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.project.lottery.cache.TwoLevelCacheManager;
+import org.project.lottery.serializer.BinaryRedisSerializer;
+import org.project.lottery.serializer.RedisTypeRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+
+import java.time.Duration;
+
+@Configuration
+public class CacheConfiguration {
+
+    @Value("${lottery.cache.local.maximum-size:10000}")
+    private long localMaximumSize;
+
+    @Value("${lottery.cache.local.expire-after-write-ms:60000}")
+    private long localExpireAfterWriteMs;
+
+    @Value("${lottery.cache.remote.ttl-ms:600000}")
+    private long remoteTtlMs;
+
+    @Value("${lottery.redis.serializer:binary}")
+    private String redisSerializer;
+
+    @Bean
+    public CacheManager cacheManager(final LettuceConnectionFactory redisConnectionFactory,
+                                     final StringRedisTemplate stringRedisTemplate,
+                                     final RedisMessageListenerContainer redisMessageListenerContainer,
+                                     final MeterRegistry meterRegistry,
+                                     final RedisTypeRegistry redisTypeRegistry) {
+        // The shared tier, entries expire so that lotteries nobody reads anymore leave Redis.
+        final BinaryRedisSerializer valueSerializer = new BinaryRedisSerializer(redisTypeRegistry,
+                new GenericJackson2JsonRedisSerializer(), "binary".equals(redisSerializer));
+        final RedisCacheManager remoteCacheManager = RedisCacheManager.builder(redisConnectionFactory)
+                .cacheDefaults(RedisCacheConfiguration.defaultCacheConfig()
+                        .entryTtl(Duration.ofMillis(remoteTtlMs))
+                        .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer)))
+                .enableStatistics()
+                .build();
+        remoteCacheManager.afterPropertiesSet();
+        final TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(remoteCacheManager, stringRedisTemplate,
+                redisMessageListenerContainer, meterRegistry, localMaximumSize, Duration.ofMillis(localExpireAfterWriteMs));
+        // Evict after commit, an eviction inside the transaction lets a concurrent read cache the old row again.
+        cacheManager.setTransactionAware(true);
+        return cacheManager;
+    }
+
+}
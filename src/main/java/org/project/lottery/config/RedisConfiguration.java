@@ -1,11 +1,29 @@
 package org.project.lottery.config;
 
+import io.lettuce.core.metrics.MicrometerCommandLatencyRecorder;
+import io.lettuce.core.metrics.MicrometerOptions;
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.resource.DefaultClientResources;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.project.lottery.idempotency.IdempotencyRecord;
+import org.project.lottery.serializer.BinaryRedisSerializer;
+import org.project.lottery.serializer.IdempotencyRecordCodec;
+import org.project.lottery.serializer.LotterySnapshotCodec;
+import org.project.lottery.serializer.NullValueCodec;
+import org.project.lottery.serializer.RedisTypeRegistry;
+import org.project.lottery.serializer.StringCodec;
+import org.project.lottery.serializer.TicketCodec;
+import org.project.lottery.v1.dto.LotterySnapshot;
+import org.project.lottery.v1.entity.Ticket;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.support.NullValue;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -18,23 +36,63 @@ public class RedisConfiguration {
     @Value("${spring.redis.port}")
     private int redisPort;
 
+    @Value("${lottery.redis.serializer:binary}")
+    private String redisSerializer;
+
+
+    @Bean(destroyMethod = "shutdown")
+    public ClientResources lettuceClientResources(final MeterRegistry meterRegistry) {
+        // Record the latency of every Redis command, tagged by command type, as lettuce.command.* timers.
+        return DefaultClientResources.builder()
+                .commandLatencyRecorder(new MicrometerCommandLatencyRecorder(meterRegistry,
+                        MicrometerOptions.builder().histogram(true).build()))
+                .build();
+    }
 
     @Bean
-    public LettuceConnectionFactory redisConnectionFactory() {
+    public LettuceConnectionFactory redisConnectionFactory(final ClientResources lettuceClientResources) {
         final RedisStandaloneConfiguration config = new RedisStandaloneConfiguration();
         config.setHostName(redisHost);
         config.setPort(redisPort);
-        return new LettuceConnectionFactory(config);
+        final LettuceClientConfiguration clientConfig = LettuceClientConfiguration.builder()
+                .clientResources(lettuceClientResources)
+                .build();
+        final LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(config, clientConfig);
+        // Open the shared connection at startup, it is established in a synchronized block that would
+        // otherwise pin the virtual threads of the first requests.
+        connectionFactory.setEagerInitialization(true);
+        return connectionFactory;
     }
 
     @Bean
-    public RedisTemplate<String, Object> redisTemplate() {
+    public RedisTypeRegistry redisTypeRegistry() {
+        // The ids are stored with the values, never reuse one for another type.
+        return new RedisTypeRegistry()
+                .register(1, String.class, new StringCodec())
+                .register(2, NullValue.class, new NullValueCodec())
+                .register(3, LotterySnapshot.class, new LotterySnapshotCodec())
+                .register(4, Ticket.class, new TicketCodec())
+                .register(5, IdempotencyRecord.class, new IdempotencyRecordCodec());
+    }
+
+    @Bean
+    public RedisTemplate<String, Object> redisTemplate(final LettuceConnectionFactory redisConnectionFactory,
+                                                       final RedisTypeRegistry redisTypeRegistry) {
         final RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
-        redisTemplate.setConnectionFactory(redisConnectionFactory());
+        redisTemplate.setConnectionFactory(redisConnectionFactory);
         redisTemplate.setKeySerializer(new StringRedisSerializer());
         redisTemplate.setHashKeySerializer(new StringRedisSerializer());
-        redisTemplate.setDefaultSerializer(new GenericJackson2JsonRedisSerializer());
+        // Write the registered types in the binary format, both settings read values of either format.
+        redisTemplate.setDefaultSerializer(new BinaryRedisSerializer(redisTypeRegistry,
+                new GenericJackson2JsonRedisSerializer(), "binary".equals(redisSerializer)));
         return redisTemplate;
     }
 
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(final LettuceConnectionFactory redisConnectionFactory) {
+        final RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        return container;
+    }
+
 }
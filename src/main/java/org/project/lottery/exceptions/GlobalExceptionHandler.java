@@ -1,5 +1,7 @@
 package org.project.lottery.exceptions;
 
+import jakarta.validation.ConstraintViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -80,6 +82,78 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(body, HttpStatus.FORBIDDEN);
     }
 
+    /**
+     * Handles {@link WriteBehindQueueFullException} exceptions.
+     *
+     * @param ex the exception
+     * @return a {@link ResponseEntity} with the error message and status code
+     */
+    @ExceptionHandler(WriteBehindQueueFullException.class)
+    public ResponseEntity<Object> handleResourceWriteBehindQueueFullException(WriteBehindQueueFullException ex) {
+        // Create a map to store the error message and status code
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        body.put("status", HttpStatus.SERVICE_UNAVAILABLE);
+
+        // Return a {@link ResponseEntity} with the error message and status code
+        return new ResponseEntity<>(body, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Handles {@link TooManyRequestsException} exceptions.
+     *
+     * @param ex the exception
+     * @return a {@link ResponseEntity} with the error message, status code and retry delay
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Object> handleResourceTooManyRequestsException(TooManyRequestsException ex) {
+        // Create a map to store the error message and status code
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        body.put("status", HttpStatus.TOO_MANY_REQUESTS);
+
+        // Return a {@link ResponseEntity} with the error message, status code and retry delay
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(body);
+    }
+
+    /**
+     * Handles {@link InvalidIdempotencyKeyException} exceptions.
+     *
+     * @param ex the exception
+     * @return a {@link ResponseEntity} with the error message and status code
+     */
+    @ExceptionHandler(InvalidIdempotencyKeyException.class)
+    public ResponseEntity<Object> handleResourceInvalidIdempotencyKeyException(InvalidIdempotencyKeyException ex) {
+        // Create a map to store the error message and status code
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        body.put("status", HttpStatus.UNPROCESSABLE_ENTITY);
+
+        // Return a {@link ResponseEntity} with the error message and status code
+        return new ResponseEntity<>(body, HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    /**
+     * Handles {@link IdempotentRequestInProgressException} exceptions.
+     *
+     * @param ex the exception
+     * @return a {@link ResponseEntity} with the error message, status code and retry delay
+     */
+    @ExceptionHandler(IdempotentRequestInProgressException.class)
+    public ResponseEntity<Object> handleResourceIdempotentRequestInProgressException(IdempotentRequestInProgressException ex) {
+        // Create a map to store the error message and status code
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        body.put("status", HttpStatus.CONFLICT);
+
+        // Return a {@link ResponseEntity} with the error message, status code and retry delay
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(body);
+    }
+
     /**
      * Handles method arg exceptions.
      *
@@ -105,4 +179,27 @@ public class GlobalExceptionHandler {
         // Return a {@link ResponseEntity} with the error messages and status code
         return ResponseEntity.badRequest().body(errors);
     }
+
+    /**
+     * Handles constraint violations of method parameters, e.g. of the elements of a request body list.
+     *
+     * @param ex the exception
+     * @return a {@link ResponseEntity} with the error messages and status code
+     */
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<Map<String, String>> handleConstraintViolationExceptions(ConstraintViolationException ex) {
+
+        // Create a map to store the error messages
+        Map<String, String> errors = new HashMap<>(ex.getConstraintViolations().size());
+
+        // Iterate over the violations and add them to the map
+        ex.getConstraintViolations().forEach(violation ->
+                errors.put(violation.getPropertyPath().toString(), violation.getMessage()));
+
+        // Add the status code to the map
+        errors.put("status", HttpStatus.BAD_REQUEST.toString());
+
+        // Return a {@link ResponseEntity} with the error messages and status code
+        return ResponseEntity.badRequest().body(errors);
+    }
 }
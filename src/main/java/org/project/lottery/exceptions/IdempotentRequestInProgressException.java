@@ -0,0 +1,16 @@
+package org.project.lottery.exceptions;
+
+import lombok.Getter;
+
+@Getter
+public class IdempotentRequestInProgressException extends RuntimeException {
+    /**
+     * The number of seconds after which the client should retry.
+     */
+    private final long retryAfterSeconds;
+
+    public IdempotentRequestInProgressException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,7 @@
+package org.project.lottery.exceptions;
+
+public class WriteBehindQueueFullException extends RuntimeException {
+    public WriteBehindQueueFullException(String message) {
+        super(message);
+    }
+}
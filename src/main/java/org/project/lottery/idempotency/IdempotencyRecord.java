@@ -0,0 +1,26 @@
+package org.project.lottery.idempotency;
+
+import org.project.lottery.v1.dto.TicketResponse;
+
+import java.util.UUID;
+
+/**
+ * The state of an idempotency key: the request it was first used for and, once that request completed,
+ * its response.
+ *
+ * @param fingerprint The user and lottery of the request.
+ * @param owner       The token of the request holding the key while it is in progress, or {@code null} once
+ *                    it completed.
+ * @param response    The ticket response, or {@code null} while the request is in progress.
+ */
+public record IdempotencyRecord(String fingerprint, UUID owner, TicketResponse response) {
+
+    /**
+     * Tells whether the request completed.
+     *
+     * @return Whether the response is known.
+     */
+    public boolean completed() {
+        return response != null;
+    }
+}
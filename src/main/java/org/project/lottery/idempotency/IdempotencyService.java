@@ -0,0 +1,149 @@
+package org.project.lottery.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.project.lottery.exceptions.IdempotentRequestInProgressException;
+import org.project.lottery.exceptions.InvalidIdempotencyKeyException;
+import org.project.lottery.v1.dto.IssueTicketRequest;
+import org.project.lottery.v1.dto.TicketResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Makes ticket issuance safe to retry. The first request with an idempotency key marks the key as in
+ * progress in Redis and stores its response under the key once it completed; later requests with the
+ * same key get that response back without issuing again, and requests arriving while the first one is
+ * still running are told to retry later, without waiting on a thread. A request that fails releases the
+ * key if it still holds it, so it can be retried.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+    /**
+     * The request header carrying the idempotency key.
+     */
+    public static final String KEY_HEADER = "Idempotency-Key";
+
+    /**
+     * The response header set on responses replayed for a known idempotency key.
+     */
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    /**
+     * The key of the idempotency record of a ticket issuance.
+     */
+    private static final String IDEMPOTENCY_KEY = "idempotency_ticket_%s";
+
+    /**
+     * The longest idempotency key accepted.
+     */
+    private static final int MAX_KEY_LENGTH = 255;
+
+    /**
+     * Deletes an idempotency record if it is still the in-progress record of the request releasing it.
+     */
+    private static final RedisScript<Long> RELEASE_KEY_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/release_idempotency_key.lua"), Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${lottery.idempotency.ttl-ms:86400000}")
+    private long ttlMs;
+
+    @Value("${lottery.idempotency.in-progress-ttl-ms:30000}")
+    private long inProgressTtlMs;
+
+    @Value("${lottery.idempotency.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    /**
+     * Constructs a new IdempotencyService instance.
+     *
+     * @param redisTemplate The Redis template.
+     */
+    public IdempotencyService(final RedisTemplate<String, Object> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Issues a ticket once per idempotency key.
+     *
+     * @param idempotencyKey The idempotency key, or {@code null} to issue without one.
+     * @param request        The issue ticket request.
+     * @param issuer         Issues the ticket.
+     * @return The ticket response, replayed if the key was used before.
+     * @throws InvalidIdempotencyKeyException        If the key is too long or was used for another request.
+     * @throws IdempotentRequestInProgressException If the first request with the key is still running.
+     */
+    public IdempotentResult issue(final String idempotencyKey,
+                                  final IssueTicketRequest request,
+                                  final Supplier<TicketResponse> issuer) {
+        if (idempotencyKey == null) {
+            return new IdempotentResult(issuer.get(), false);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException(
+                    String.format("Idempotency-Key must have 1 to %d characters", MAX_KEY_LENGTH));
+        }
+
+        String key = String.format(IDEMPOTENCY_KEY, idempotencyKey);
+        String fingerprint = request.userId() + " " + request.lotteryId();
+
+        while (true) {
+            // Claim the key, the request holding it is the only one issuing.
+            IdempotencyRecord inProgress = new IdempotencyRecord(fingerprint, UUID.randomUUID(), null);
+            Boolean claimed = redisTemplate.opsForValue().setIfAbsent(key, inProgress, inProgressTtlMs, TimeUnit.MILLISECONDS);
+            if (Boolean.TRUE.equals(claimed)) {
+                return new IdempotentResult(issueAndStore(key, inProgress, issuer), false);
+            }
+
+            // Replay the stored response, or refuse the request while the one holding the key runs.
+            IdempotencyRecord record = (IdempotencyRecord) redisTemplate.opsForValue().get(key);
+            if (record == null) {
+                continue;
+            }
+            if (!fingerprint.equals(record.fingerprint())) {
+                throw new InvalidIdempotencyKeyException("Idempotency-Key was already used for another request");
+            }
+            if (record.completed()) {
+                log.info("Replaying the response of idempotency key {}", idempotencyKey);
+                return new IdempotentResult(record.response(), true);
+            }
+            throw new IdempotentRequestInProgressException("A request with this Idempotency-Key is still in progress",
+                    retryAfterSeconds);
+        }
+    }
+
+    private TicketResponse issueAndStore(final String key,
+                                         final IdempotencyRecord inProgress,
+                                         final Supplier<TicketResponse> issuer) {
+        TicketResponse response;
+        try {
+            response = issuer.get();
+        } catch (RuntimeException e) {
+            // Release the key, nothing was issued. A retry that claimed the expired key meanwhile keeps it.
+            try {
+                redisTemplate.execute(RELEASE_KEY_SCRIPT, List.of(key), inProgress);
+            } catch (RuntimeException releaseFailure) {
+                log.warn("Failed to release idempotency key {}", key, releaseFailure);
+            }
+            throw e;
+        }
+
+        try {
+            redisTemplate.opsForValue().set(key, new IdempotencyRecord(inProgress.fingerprint(), null, response),
+                    ttlMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // The ticket was issued, a retry fails as a duplicate once the in-progress marker expired.
+            log.warn("Failed to store the response of idempotency key {}", key, e);
+        }
+        return response;
+    }
+}
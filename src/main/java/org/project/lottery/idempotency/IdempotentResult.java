@@ -0,0 +1,12 @@
+package org.project.lottery.idempotency;
+
+import org.project.lottery.v1.dto.TicketResponse;
+
+/**
+ * The response of an issuance request made with an idempotency key.
+ *
+ * @param response The ticket response.
+ * @param replayed Whether the response is the stored one of an earlier request with the same key.
+ */
+public record IdempotentResult(TicketResponse response, boolean replayed) {
+}
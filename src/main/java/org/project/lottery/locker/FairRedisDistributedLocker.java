@@ -0,0 +1,179 @@
+package org.project.lottery.locker;
+
+import lombok.extern.slf4j.Slf4j;
+import org.project.lottery.exceptions.FailedToAcquireLockException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands the lock to its waiters in the order they asked for it. Waiters queue up in Redis, and the
+ * holder publishes the token of the next waiter when it releases the lock, so the next waiter takes
+ * it right away instead of on its next retry. Waiters also poll on a jittered interval, which covers
+ * lost notifications and locks that expired, and give up once their wait timeout passed.
+ */
+@Service
+@Slf4j
+@Primary
+@ConditionalOnProperty(name = "lottery.lock.wait-mode", havingValue = "fair")
+public class FairRedisDistributedLocker implements IDistributedLocker, MessageListener {
+    /**
+     * The key of the queue of the tokens waiting for a lock.
+     */
+    private static final String LOCK_QUEUE_KEY = "%s_queue";
+
+    /**
+     * The key of the hash holding the deadline of every token waiting for a lock.
+     */
+    private static final String LOCK_WAITERS_KEY = "%s_waiters";
+
+    /**
+     * The channel the token of the next waiter is published to when a lock becomes free.
+     */
+    private static final String LOCK_RELEASED_CHANNEL = "lottery_lock_released";
+
+    /**
+     * The number of waiters looked at to find the position of a waiter in the queue.
+     */
+    private static final int POSITION_SCAN_LIMIT = 64;
+
+    private static final RedisScript<Long> ACQUIRE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/fair_lock_acquire.lua"), Long.class);
+
+    private static final RedisScript<Long> LEAVE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/fair_lock_leave.lua"), Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final LockMetrics lockMetrics;
+    private final Map<String, Semaphore> waiters = new ConcurrentHashMap<>();
+
+    @Value("${lottery.lock.fair.wait-timeout-ms:5000}")
+    private long waitTimeoutMs;
+
+    @Value("${lottery.lock.fair.poll-interval-ms:50}")
+    private long pollIntervalMs;
+
+    /**
+     * Constructs a new FairRedisDistributedLocker instance.
+     *
+     * @param redisTemplate     The Redis template.
+     * @param lockMetrics       The lock metrics.
+     * @param listenerContainer The Redis message listener container.
+     */
+    public FairRedisDistributedLocker(final StringRedisTemplate redisTemplate,
+                                      final LockMetrics lockMetrics,
+                                      final RedisMessageListenerContainer listenerContainer) {
+        this.redisTemplate = redisTemplate;
+        this.lockMetrics = lockMetrics;
+        listenerContainer.addMessageListener(this, new ChannelTopic(LOCK_RELEASED_CHANNEL));
+    }
+
+    @Override
+    public <T> LockExecutionResult<T> lock(final String key,
+                                           final int lockTimeoutSeconds,
+                                           final Callable<T> task) {
+        final String token = UUID.randomUUID().toString();
+        final List<String> keys = List.of(key, String.format(LOCK_QUEUE_KEY, key), String.format(LOCK_WAITERS_KEY, key));
+
+        // Wait in the queue until the lock is handed to this caller or the wait timeout passed.
+        final long firstAttempt = System.nanoTime();
+        final long deadline = firstAttempt + TimeUnit.MILLISECONDS.toNanos(waitTimeoutMs);
+        final Semaphore wakeUp = new Semaphore(0);
+        waiters.put(token, wakeUp);
+        int polls = 0;
+        try {
+            while (true) {
+                final long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    throw giveUp(key, keys, token, firstAttempt);
+                }
+
+                final Long position = redisTemplate.execute(ACQUIRE_SCRIPT, keys, token,
+                        String.valueOf(TimeUnit.SECONDS.toMillis(lockTimeoutSeconds)), String.valueOf(remainingMs),
+                        String.valueOf(POSITION_SCAN_LIMIT));
+                lockMetrics.attempt(key, position != null && position == 0);
+                if (position != null && position == 0) {
+                    break;
+                }
+
+                // Sleep until woken up by the release of the lock, or until the next jittered poll. Waiters
+                // further back in the queue poll less often, they cannot take the lock before the ones ahead.
+                polls++;
+                final long interval = pollIntervalMs * (position == null ? 1 : position);
+                final long pollMs = interval / 2 + ThreadLocalRandom.current().nextLong(interval + 1);
+                wakeUp.tryAcquire(Math.min(pollMs, remainingMs), TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw giveUp(key, keys, token, firstAttempt);
+        } finally {
+            waiters.remove(token);
+        }
+
+        // The lock was acquired, so execute the task.
+        log.info("Successfully acquired lock for key '{}'", key);
+        final long acquired = System.nanoTime();
+        lockMetrics.acquired(key, Duration.ofNanos(acquired - firstAttempt), polls);
+        boolean failed = false;
+        try {
+            T taskResult = task.call();
+            return LockExecutionResult.buildLockAcquiredResult(taskResult);
+        } catch (Exception e) {
+            failed = true;
+            log.error(e.getMessage(), e);
+            return LockExecutionResult.buildLockAcquiredWithException(e);
+        } finally {
+            // Release the lock and hand it to the next waiter.
+            final long released = System.nanoTime();
+            lockMetrics.held(key, Duration.ofNanos(released - acquired), failed);
+            leave(keys, token);
+            lockMetrics.released(key, Duration.ofNanos(System.nanoTime() - released));
+        }
+    }
+
+    /**
+     * Wakes up the local waiter whose turn it is.
+     *
+     * @param message The message holding the token of the waiter.
+     * @param pattern The channel pattern.
+     */
+    @Override
+    public void onMessage(final Message message, final byte[] pattern) {
+        final Semaphore wakeUp = waiters.get(new String(message.getBody(), StandardCharsets.UTF_8));
+        if (wakeUp != null) {
+            wakeUp.release();
+        }
+    }
+
+    private FailedToAcquireLockException giveUp(final String key, final List<String> keys, final String token,
+                                                final long firstAttempt) {
+        // Leave the queue, waking up the next waiter if this caller was at its head.
+        leave(keys, token);
+        lockMetrics.exhausted(key, Duration.ofNanos(System.nanoTime() - firstAttempt));
+        log.error("Failed to acquire lock for key '{}'", key);
+        return new FailedToAcquireLockException(String.format("Failed to acquire lock for key '%s'", key));
+    }
+
+    private void leave(final List<String> keys, final String token) {
+        redisTemplate.execute(LEAVE_SCRIPT, keys, token, LOCK_RELEASED_CHANNEL);
+    }
+}
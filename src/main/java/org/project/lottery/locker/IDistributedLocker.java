@@ -0,0 +1,19 @@
+package org.project.lottery.locker;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Runs tasks while holding a lock shared by all nodes.
+ */
+public interface IDistributedLocker {
+    /**
+     * Acquires a lock for the given key and executes the given task. If the lock cannot be acquired, the task will not be executed.
+     *
+     * @param key                The key to lock.
+     * @param lockTimeoutSeconds The number of seconds after which the lock expires if it is not released.
+     * @param task               The task to execute.
+     * @param <T>                The type of the task result.
+     * @return A `LockExecutionResult` object that indicates whether the lock was acquired successfully and the result of the task.
+     */
+    <T> LockExecutionResult<T> lock(String key, int lockTimeoutSeconds, Callable<T> task);
+}
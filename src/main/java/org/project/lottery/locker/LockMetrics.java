@@ -0,0 +1,163 @@
+package org.project.lottery.locker;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Records the contention of the distributed locks. Every meter is tagged with the lock key prefix,
+ * which is the lock key with ids replaced by {@code {id}}, so all lotteries share one set of series.
+ * The meters are registered on first use and then looked up by prefix, as building and registering
+ * them on every call costs more than the lock itself.
+ */
+@Component
+public class LockMetrics {
+    /**
+     * Matches the UUIDs and numbers in lock keys.
+     */
+    private static final Pattern ID_PATTERN =
+            Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}|\\d+");
+
+    /**
+     * The number of lock keys whose prefix is remembered.
+     */
+    private static final int MAX_CACHED_KEYS = 10_000;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<MeterKey, Meter> meters = new ConcurrentHashMap<>();
+    private final Cache<String, String> prefixes = Caffeine.newBuilder().maximumSize(MAX_CACHED_KEYS).build();
+
+    private record MeterKey(String name, String lock, String outcome) {
+    }
+
+    /**
+     * Constructs a new LockMetrics instance.
+     *
+     * @param meterRegistry The meter registry.
+     */
+    public LockMetrics(final MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Records a single attempt to acquire a lock.
+     *
+     * @param key      The lock key.
+     * @param acquired Whether the lock was acquired.
+     */
+    public void attempt(final String key, final boolean acquired) {
+        this.<Counter>meter("lottery.lock.attempts", key, acquired ? "acquired" : "contended", (lock, outcome) ->
+                Counter.builder("lottery.lock.attempts")
+                        .description("Attempts to acquire a distributed lock")
+                        .tag("lock", lock)
+                        .tag("outcome", outcome)
+                        .register(meterRegistry)
+        ).increment();
+    }
+
+    /**
+     * Records a lock acquisition.
+     *
+     * @param key     The lock key.
+     * @param waited  The time from the first attempt until the lock was acquired.
+     * @param retries The number of failed attempts before the lock was acquired.
+     */
+    public void acquired(final String key, final Duration waited, final int retries) {
+        acquireTimer(key, "acquired").record(waited);
+        this.<DistributionSummary>meter("lottery.lock.retries", key, "", (lock, outcome) ->
+                DistributionSummary.builder("lottery.lock.retries")
+                        .description("Failed attempts before a distributed lock was acquired")
+                        .tag("lock", lock)
+                        .register(meterRegistry)
+        ).record(retries);
+    }
+
+    /**
+     * Records a caller giving up on a lock.
+     *
+     * @param key    The lock key.
+     * @param waited The time from the first attempt until the caller gave up.
+     */
+    public void exhausted(final String key, final Duration waited) {
+        acquireTimer(key, "exhausted").record(waited);
+        this.<Counter>meter("lottery.lock.exhausted", key, "", (lock, outcome) ->
+                Counter.builder("lottery.lock.exhausted")
+                        .description("Callers that gave up on a distributed lock")
+                        .tag("lock", lock)
+                        .register(meterRegistry)
+        ).increment();
+    }
+
+    /**
+     * Records how long a lock was held by its task.
+     *
+     * @param key    The lock key.
+     * @param held   The time the task held the lock.
+     * @param failed Whether the task threw.
+     */
+    public void held(final String key, final Duration held, final boolean failed) {
+        this.<Timer>meter("lottery.lock.held", key, failed ? "failure" : "success", (lock, outcome) ->
+                Timer.builder("lottery.lock.held")
+                        .description("Time a distributed lock is held by its task")
+                        .tag("lock", lock)
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+        ).record(held);
+    }
+
+    /**
+     * Records the release of a lock.
+     *
+     * @param key      The lock key.
+     * @param released The time the release took.
+     */
+    public void released(final String key, final Duration released) {
+        this.<Timer>meter("lottery.lock.release", key, "", (lock, outcome) ->
+                Timer.builder("lottery.lock.release")
+                        .description("Time to release a distributed lock")
+                        .tag("lock", lock)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+        ).record(released);
+    }
+
+    private Timer acquireTimer(final String key, final String outcome) {
+        return meter("lottery.lock.acquire", key, outcome, (lock, tag) ->
+                Timer.builder("lottery.lock.acquire")
+                        .description("Time from the first attempt to acquire a distributed lock until it was acquired or given up")
+                        .tag("lock", lock)
+                        .tag("outcome", tag)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    private <M extends Meter> M meter(final String name,
+                                      final String key,
+                                      final String outcome,
+                                      final BiFunction<String, String, M> register) {
+        final MeterKey meterKey = new MeterKey(name, prefix(key), outcome);
+        final Meter meter = meters.get(meterKey);
+        if (meter != null) {
+            return (M) meter;
+        }
+        return (M) meters.computeIfAbsent(meterKey, k -> register.apply(k.lock(), k.outcome()));
+    }
+
+    private String prefix(final String key) {
+        return prefixes.get(key, k -> ID_PATTERN.matcher(k).replaceAll("{id}"));
+    }
+}
@@ -4,24 +4,37 @@ import lombok.extern.slf4j.Slf4j;
 import org.project.lottery.exceptions.FailedToAcquireLockException;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.retry.RetryContext;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
+import org.springframework.retry.support.RetrySynchronizationManager;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Takes the lock with a single {@code SET NX} and lets the caller retry a few times on contention.
+ */
 @Service
 @Slf4j
-public class RedisDistributedLocker {
+public class RedisDistributedLocker implements IDistributedLocker {
 
     private static final long DEFAULT_RETRY_TIME = 100L;
     private static final int DEFAULT_RETRY_MAX_ATTEMPT = 5;
 
+    /**
+     * The retry context attribute holding the time of the first attempt to acquire the lock.
+     */
+    private static final String FIRST_ATTEMPT_ATTRIBUTE = "lottery.lock.first-attempt";
+
     private final ValueOperations<String, Object> valueOps;
+    private final LockMetrics lockMetrics;
 
-    public RedisDistributedLocker(final RedisTemplate<String, Object> redisTemplate) {
+    public RedisDistributedLocker(final RedisTemplate<String, Object> redisTemplate, final LockMetrics lockMetrics) {
         this.valueOps = redisTemplate.opsForValue();
+        this.lockMetrics = lockMetrics;
     }
 
     /**
@@ -33,6 +46,7 @@ public class RedisDistributedLocker {
      * @param <T>                The type of the task result.
      * @return A `LockExecutionResult` object that indicates whether the lock was acquired successfully and the result of the task.
      */
+    @Override
     @Retryable(
             retryFor = FailedToAcquireLockException.class,
             maxAttempts = DEFAULT_RETRY_MAX_ATTEMPT,
@@ -41,26 +55,46 @@ public class RedisDistributedLocker {
     public <T> LockExecutionResult<T> lock(final String key,
                                            final int lockTimeoutSeconds,
                                            final Callable<T> task) {
+        // Remember when the caller started waiting, the retries of one call share the retry context.
+        final RetryContext retryContext = RetrySynchronizationManager.getContext();
+        final long now = System.nanoTime();
+        if (retryContext != null && !retryContext.hasAttribute(FIRST_ATTEMPT_ATTRIBUTE)) {
+            retryContext.setAttribute(FIRST_ATTEMPT_ATTRIBUTE, now);
+        }
+        final long firstAttempt = retryContext == null ? now : (long) retryContext.getAttribute(FIRST_ATTEMPT_ATTRIBUTE);
+        final int retries = retryContext == null ? 0 : retryContext.getRetryCount();
+
         // Try to acquire the lock.
         final Boolean lockAcquired = valueOps.setIfAbsent(key, key, lockTimeoutSeconds, TimeUnit.SECONDS);
+        lockMetrics.attempt(key, lockAcquired != Boolean.FALSE);
 
         // If the lock was not acquired, return an error.
         if (lockAcquired == Boolean.FALSE) {
             log.error("Failed to acquire lock for key '{}'", key);
+            if (retries + 1 >= DEFAULT_RETRY_MAX_ATTEMPT || retryContext == null) {
+                lockMetrics.exhausted(key, Duration.ofNanos(System.nanoTime() - firstAttempt));
+            }
             throw new FailedToAcquireLockException(String.format("Failed to acquire lock for key '{}'", key));
         }
 
         // The lock was acquired, so execute the task.
         log.info("Successfully acquired lock for key '{}'", key);
+        final long acquired = System.nanoTime();
+        lockMetrics.acquired(key, Duration.ofNanos(acquired - firstAttempt), retries);
+        boolean failed = false;
         try {
             T taskResult = task.call();
             return LockExecutionResult.buildLockAcquiredResult(taskResult);
         } catch (Exception e) {
+            failed = true;
             log.error(e.getMessage(), e);
             return LockExecutionResult.buildLockAcquiredWithException(e);
         } finally {
             // Release the lock.
+            final long released = System.nanoTime();
+            lockMetrics.held(key, Duration.ofNanos(released - acquired), failed);
             releaseLock(key);
+            lockMetrics.released(key, Duration.ofNanos(System.nanoTime() - released));
         }
     }
 
@@ -0,0 +1,97 @@
+package org.project.lottery.serializer;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Serializes the values of registered types in a compact binary format and everything else with a
+ * fallback serializer. A binary value starts with a magic byte, the version of the codec of its type and
+ * the type id:
+ * <pre>
+ * 0xB7 | version | type id | payload
+ * </pre>
+ * The magic byte can not start a JSON text or a JDK serialization stream, so values without it are read
+ * by the fallback serializer. Every node reads both formats and the older versions of every codec, and a
+ * codec is versioned on its own, so raising the version of one type leaves the values of the other types
+ * readable by nodes not upgraded yet. The written format can be switched, or a version raised, one node
+ * at a time.
+ */
+public class BinaryRedisSerializer implements RedisSerializer<Object> {
+    /**
+     * The first byte of every binary value.
+     */
+    static final int MAGIC = 0xB7;
+
+    private final RedisTypeRegistry registry;
+    private final RedisSerializer<Object> fallback;
+    private final boolean writeBinary;
+
+    /**
+     * Constructs a new BinaryRedisSerializer instance.
+     *
+     * @param registry    The registered types.
+     * @param fallback    Serializes the values of types not registered.
+     * @param writeBinary Whether to write registered types in the binary format, otherwise every value is
+     *                    written by the fallback serializer and binary values are only read.
+     */
+    public BinaryRedisSerializer(final RedisTypeRegistry registry,
+                                 final RedisSerializer<Object> fallback,
+                                 final boolean writeBinary) {
+        this.registry = registry;
+        this.fallback = fallback;
+        this.writeBinary = writeBinary;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public byte[] serialize(final Object value) throws SerializationException {
+        final RedisTypeRegistry.Registration<Object> registration = value == null || !writeBinary
+                ? null
+                : (RedisTypeRegistry.Registration<Object>) registry.forType(value.getClass());
+        if (registration == null) {
+            return fallback.serialize(value);
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(MAGIC);
+            out.writeByte(registration.codec().version());
+            out.writeByte(registration.id());
+            registration.codec().write(value, out);
+        } catch (IOException e) {
+            throw new SerializationException(String.format("Could not write %s", value.getClass().getName()), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(final byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length < 3 || (bytes[0] & 0xFF) != MAGIC) {
+            return fallback.deserialize(bytes);
+        }
+
+        final RedisTypeRegistry.Registration<?> registration = registry.forId(bytes[2] & 0xFF);
+        if (registration == null) {
+            throw new SerializationException(String.format("Unknown binary type id %d", bytes[2] & 0xFF));
+        }
+
+        // A newer node may have written a version of the type this node does not know yet.
+        final int version = bytes[1] & 0xFF;
+        if (version > registration.codec().version()) {
+            throw new SerializationException(String.format("Unsupported binary format version %d of %s",
+                    version, registration.type().getName()));
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 3, bytes.length - 3))) {
+            return registration.codec().read(in, version);
+        } catch (IOException e) {
+            throw new SerializationException(String.format("Could not read %s", registration.type().getName()), e);
+        }
+    }
+}
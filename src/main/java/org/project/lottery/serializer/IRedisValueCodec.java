@@ -0,0 +1,111 @@
+package org.project.lottery.serializer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Writes and reads the payload of one registered type in the binary Redis format.
+ *
+ * @param <T> The type of the values.
+ */
+public interface IRedisValueCodec<T> {
+
+    /**
+     * Returns the version of the payload written by this codec. It is raised, one at a time, when the
+     * payload changes, and values of a higher version are not read.
+     *
+     * @return The version.
+     */
+    default int version() {
+        return 1;
+    }
+
+    /**
+     * Writes a value.
+     *
+     * @param value The value.
+     * @param out   The payload.
+     */
+    void write(T value, DataOutput out) throws IOException;
+
+    /**
+     * Reads a value.
+     *
+     * @param in      The payload.
+     * @param version The version the value was written with, at most the {@link #version()} of this codec.
+     * @return The value.
+     */
+    T read(DataInput in, int version) throws IOException;
+
+    static void writeUuid(final UUID value, final DataOutput out) throws IOException {
+        out.writeLong(value.getMostSignificantBits());
+        out.writeLong(value.getLeastSignificantBits());
+    }
+
+    static UUID readUuid(final DataInput in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    /**
+     * Writes a non-negative number in 1 to 10 bytes, 7 bits per byte.
+     */
+    static void writeVarLong(long value, final DataOutput out) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(final DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length number");
+    }
+
+    /**
+     * Writes a nullable number, a single zero byte for {@code null}.
+     */
+    static void writeNullableVarLong(final Long value, final DataOutput out) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeVarLong(value, out);
+        }
+    }
+
+    static Long readNullableVarLong(final DataInput in) throws IOException {
+        return in.readBoolean() ? readVarLong(in) : null;
+    }
+
+    /**
+     * Writes a nullable string as its UTF-8 length plus one, zero for {@code null}, followed by its bytes.
+     */
+    static void writeString(final String value, final DataOutput out) throws IOException {
+        if (value == null) {
+            writeVarLong(0, out);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length + 1L, out);
+        out.write(bytes);
+    }
+
+    static String readString(final DataInput in) throws IOException {
+        final long length = readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[Math.toIntExact(length - 1)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
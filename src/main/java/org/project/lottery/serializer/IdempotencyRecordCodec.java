@@ -0,0 +1,68 @@
+package org.project.lottery.serializer;
+
+import org.project.lottery.idempotency.IdempotencyRecord;
+import org.project.lottery.v1.dto.LotteryResponse;
+import org.project.lottery.v1.dto.TicketResponse;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Writes the idempotency records of ticket issuance, with the token of the request holding the key while it
+ * is in progress (since version 2) and the ticket response once the request completed.
+ */
+public class IdempotencyRecordCodec implements IRedisValueCodec<IdempotencyRecord> {
+
+    @Override
+    public int version() {
+        return 2;
+    }
+
+    @Override
+    public void write(final IdempotencyRecord value, final DataOutput out) throws IOException {
+        IRedisValueCodec.writeString(value.fingerprint(), out);
+
+        final UUID owner = value.owner();
+        out.writeBoolean(owner != null);
+        if (owner != null) {
+            IRedisValueCodec.writeUuid(owner, out);
+        }
+
+        final TicketResponse response = value.response();
+        out.writeBoolean(response != null);
+        if (response != null) {
+            IRedisValueCodec.writeUuid(response.id(), out);
+            IRedisValueCodec.writeUuid(response.userId(), out);
+            IRedisValueCodec.writeString(response.lotteryNumber(), out);
+
+            final LotteryResponse lottery = response.lotteryResponse();
+            IRedisValueCodec.writeString(lottery.name(), out);
+            IRedisValueCodec.writeUuid(lottery.id(), out);
+            IRedisValueCodec.writeNullableVarLong(lottery.totalAllottedTickets(), out);
+            IRedisValueCodec.writeNullableVarLong(lottery.totalAvailableTickets(), out);
+        }
+    }
+
+    @Override
+    public IdempotencyRecord read(final DataInput in, final int version) throws IOException {
+        final String fingerprint = IRedisValueCodec.readString(in);
+        final UUID owner = version >= 2 && in.readBoolean() ? IRedisValueCodec.readUuid(in) : null;
+        if (!in.readBoolean()) {
+            return new IdempotencyRecord(fingerprint, owner, null);
+        }
+
+        return new IdempotencyRecord(fingerprint, owner, new TicketResponse(
+                IRedisValueCodec.readUuid(in),
+                IRedisValueCodec.readUuid(in),
+                IRedisValueCodec.readString(in),
+                new LotteryResponse(
+                        IRedisValueCodec.readString(in),
+                        IRedisValueCodec.readUuid(in),
+                        IRedisValueCodec.readNullableVarLong(in),
+                        IRedisValueCodec.readNullableVarLong(in)
+                )
+        ));
+    }
+}
@@ -0,0 +1,33 @@
+package org.project.lottery.serializer;
+
+import org.project.lottery.v1.dto.LotterySnapshot;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes lottery snapshots, the entries of the lottery cache.
+ */
+public class LotterySnapshotCodec implements IRedisValueCodec<LotterySnapshot> {
+
+    @Override
+    public void write(final LotterySnapshot value, final DataOutput out) throws IOException {
+        IRedisValueCodec.writeUuid(value.id(), out);
+        IRedisValueCodec.writeString(value.name(), out);
+        IRedisValueCodec.writeVarLong(value.totalAllottedTickets(), out);
+        IRedisValueCodec.writeVarLong(value.totalAvailableTickets(), out);
+        IRedisValueCodec.writeVarLong(value.version(), out);
+    }
+
+    @Override
+    public LotterySnapshot read(final DataInput in, final int version) throws IOException {
+        return new LotterySnapshot(
+                IRedisValueCodec.readUuid(in),
+                IRedisValueCodec.readString(in),
+                IRedisValueCodec.readVarLong(in),
+                IRedisValueCodec.readVarLong(in),
+                IRedisValueCodec.readVarLong(in)
+        );
+    }
+}
@@ -0,0 +1,21 @@
+package org.project.lottery.serializer;
+
+import org.springframework.cache.support.NullValue;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+
+/**
+ * Writes the cached {@code null}, e.g. of a ticket lookup that found nothing, as the type id alone.
+ */
+public class NullValueCodec implements IRedisValueCodec<NullValue> {
+
+    @Override
+    public void write(final NullValue value, final DataOutput out) {
+    }
+
+    @Override
+    public NullValue read(final DataInput in, final int version) {
+        return (NullValue) NullValue.INSTANCE;
+    }
+}
@@ -0,0 +1,65 @@
+package org.project.lottery.serializer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The types written in the binary Redis format, each with a one byte id. An id identifies the type in
+ * the stored values, so it must never be reused for another type.
+ */
+public class RedisTypeRegistry {
+
+    /**
+     * A registered type.
+     *
+     * @param id    The type id.
+     * @param type  The type.
+     * @param codec The codec of the type.
+     */
+    public record Registration<T>(int id, Class<T> type, IRedisValueCodec<T> codec) {
+    }
+
+    private final Map<Class<?>, Registration<?>> byType = new HashMap<>();
+    private final Registration<?>[] byId = new Registration<?>[256];
+
+    /**
+     * Registers a type.
+     *
+     * @param id    The type id, between 1 and 255.
+     * @param type  The type, values of subclasses are not written in the binary format.
+     * @param codec The codec of the type.
+     * @return This registry.
+     */
+    public <T> RedisTypeRegistry register(final int id, final Class<T> type, final IRedisValueCodec<T> codec) {
+        if (id < 1 || id > 255) {
+            throw new IllegalArgumentException(String.format("Type id %d of %s is not between 1 and 255", id, type.getName()));
+        }
+        if (byId[id] != null || byType.containsKey(type)) {
+            throw new IllegalArgumentException(String.format("Type id %d or type %s is already registered", id, type.getName()));
+        }
+        final Registration<T> registration = new Registration<>(id, type, codec);
+        byId[id] = registration;
+        byType.put(type, registration);
+        return this;
+    }
+
+    /**
+     * Gets the registration of the type of a value.
+     *
+     * @param type The type.
+     * @return The registration, or {@code null} if the type is not registered.
+     */
+    public Registration<?> forType(final Class<?> type) {
+        return byType.get(type);
+    }
+
+    /**
+     * Gets the registration of a type id.
+     *
+     * @param id The type id.
+     * @return The registration, or {@code null} if the id is not registered.
+     */
+    public Registration<?> forId(final int id) {
+        return byId[id];
+    }
+}
@@ -0,0 +1,21 @@
+package org.project.lottery.serializer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes strings such as lock tokens.
+ */
+public class StringCodec implements IRedisValueCodec<String> {
+
+    @Override
+    public void write(final String value, final DataOutput out) throws IOException {
+        IRedisValueCodec.writeString(value, out);
+    }
+
+    @Override
+    public String read(final DataInput in, final int version) throws IOException {
+        return IRedisValueCodec.readString(in);
+    }
+}
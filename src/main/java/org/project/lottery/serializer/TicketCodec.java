@@ -0,0 +1,60 @@
+package org.project.lottery.serializer;
+
+import org.project.lottery.v1.entity.Lottery;
+import org.project.lottery.v1.entity.Ticket;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes tickets, the entries of the ticket cache, together with the columns of their lottery. Version 2
+ * writes the ticket number as a number instead of the lottery number string.
+ */
+public class TicketCodec implements IRedisValueCodec<Ticket> {
+
+    @Override
+    public int version() {
+        return 2;
+    }
+
+    @Override
+    public void write(final Ticket value, final DataOutput out) throws IOException {
+        IRedisValueCodec.writeUuid(value.getId(), out);
+        IRedisValueCodec.writeUuid(value.getUserId(), out);
+        IRedisValueCodec.writeVarLong(value.getTicketNumber(), out);
+
+        final Lottery lottery = value.getLottery();
+        out.writeBoolean(lottery != null);
+        if (lottery != null) {
+            IRedisValueCodec.writeUuid(lottery.getId(), out);
+            IRedisValueCodec.writeString(lottery.getName(), out);
+            IRedisValueCodec.writeNullableVarLong(lottery.getTotalAllottedTickets(), out);
+            IRedisValueCodec.writeNullableVarLong(lottery.getTotalAvailableTickets(), out);
+            IRedisValueCodec.writeNullableVarLong(lottery.getVersion(), out);
+        }
+    }
+
+    @Override
+    public Ticket read(final DataInput in, final int version) throws IOException {
+        final Ticket ticket = new Ticket();
+        ticket.setId(IRedisValueCodec.readUuid(in));
+        ticket.setUserId(IRedisValueCodec.readUuid(in));
+        if (version < 2) {
+            ticket.setLotteryNumber(IRedisValueCodec.readString(in));
+        } else {
+            ticket.setTicketNumber(IRedisValueCodec.readVarLong(in));
+        }
+
+        if (in.readBoolean()) {
+            final Lottery lottery = new Lottery();
+            lottery.setId(IRedisValueCodec.readUuid(in));
+            lottery.setName(IRedisValueCodec.readString(in));
+            lottery.setTotalAllottedTickets(IRedisValueCodec.readNullableVarLong(in));
+            lottery.setTotalAvailableTickets(IRedisValueCodec.readNullableVarLong(in));
+            lottery.setVersion(IRedisValueCodec.readNullableVarLong(in));
+            ticket.setLottery(lottery);
+        }
+        return ticket;
+    }
+}
@@ -0,0 +1,63 @@
+package org.project.lottery.soldout;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.project.lottery.exceptions.OutOfTicketsException;
+import org.project.lottery.v1.dto.IssueTicketRequest;
+import org.project.lottery.v1.dto.TicketResponse;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Refuses the tickets of sold-out lotteries before any issuance mode runs, and flags lotteries as sold
+ * out when a ticket service issued their last ticket or ran out of them. Runs outside of the
+ * transaction of the ticket service, so a refused request never opens one.
+ */
+@Aspect
+@Component
+@Order(0)
+public class SoldOutAspect {
+
+    /**
+     * The sold-out registry.
+     */
+    private final SoldOutRegistry soldOutRegistry;
+
+    /**
+     * Constructs a new SoldOutAspect instance.
+     *
+     * @param soldOutRegistry The sold-out registry.
+     */
+    public SoldOutAspect(final SoldOutRegistry soldOutRegistry) {
+        this.soldOutRegistry = soldOutRegistry;
+    }
+
+    /**
+     * Issues a ticket unless the lottery is known to be sold out.
+     *
+     * @param joinPoint The ticket service call.
+     * @param request   The issue ticket request.
+     * @return The ticket response.
+     * @throws Throwable The exception of the ticket service.
+     */
+    @Around("execution(* org.project.lottery.v1.service.ticket.ITicketService+.issueTicket(..)) && args(request)")
+    public Object issueTicket(final ProceedingJoinPoint joinPoint, final IssueTicketRequest request) throws Throwable {
+        // Refuse the request if the lottery is sold out.
+        SoldOutRegistry.Admission admission = soldOutRegistry.admit(request.lotteryId());
+        if (!admission.admitted()) {
+            throw new OutOfTicketsException("Out of tickets");
+        }
+
+        TicketResponse response;
+        try {
+            response = (TicketResponse) joinPoint.proceed();
+        } catch (Throwable t) {
+            soldOutRegistry.failed(request.lotteryId(), t);
+            throw t;
+        }
+
+        soldOutRegistry.issued(request.lotteryId(), response.lotteryResponse().totalAvailableTickets(), admission);
+        return response;
+    }
+}
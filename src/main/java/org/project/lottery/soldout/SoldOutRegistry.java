@@ -0,0 +1,231 @@
+package org.project.lottery.soldout;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.project.lottery.bloom.ParticipantBloomFilter;
+import org.project.lottery.exceptions.OutOfTicketsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the sold-out lotteries on this node, so their ticket requests are refused without a Redis
+ * or database round trip. A lottery selling out is published on {@code lottery_sold_out} as
+ * {@code <node> sold-out <lottery>} and flagged on every node. Tickets can go back to the pool, so once
+ * per recheck interval a single request of a flagged lottery is let through; if it gets a ticket, the
+ * flag is dropped and {@code <node> available <lottery>} is published. Only the recheck drops the flag: a
+ * request admitted before the lottery sold out may still complete after it, and must not reopen it.
+ */
+@Component
+@Slf4j
+public class SoldOutRegistry implements MessageListener {
+    /**
+     * The channel the sold-out changes are published to.
+     */
+    private static final String SOLD_OUT_CHANNEL = "lottery_sold_out";
+
+    /**
+     * The number of sold-out lotteries remembered.
+     */
+    private static final int MAX_SOLD_OUT_LOTTERIES = 10_000;
+
+    private static final String SOLD_OUT = "sold-out";
+    private static final String AVAILABLE = "available";
+    private static final String DELETED = "deleted";
+
+    /**
+     * How a ticket request of a lottery is admitted.
+     */
+    public enum Admission {
+        /**
+         * The lottery is not flagged, the request is served.
+         */
+        SERVE,
+        /**
+         * The lottery is flagged and the request is served to recheck it, a ticket issued drops the flag.
+         */
+        RECHECK,
+        /**
+         * The lottery is flagged, the request is refused.
+         */
+        REFUSE;
+
+        public boolean admitted() {
+            return this != REFUSE;
+        }
+    }
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final StringRedisTemplate redisTemplate;
+    private final ParticipantBloomFilter participantBloomFilter;
+
+    /**
+     * The time of the next recheck of every flagged lottery, in milliseconds.
+     */
+    private final Cache<UUID, AtomicLong> recheckTimes = Caffeine.newBuilder().maximumSize(MAX_SOLD_OUT_LOTTERIES).build();
+
+    @Value("${lottery.ticket.sold-out.enabled:true}")
+    private boolean enabled;
+
+    @Value("${lottery.ticket.sold-out.recheck-interval-ms:1000}")
+    private long recheckIntervalMs;
+
+    /**
+     * Constructs a new SoldOutRegistry instance.
+     *
+     * @param redisTemplate          The Redis template.
+     * @param listenerContainer      The Redis message listener container.
+     * @param participantBloomFilter The Bloom filter of the users holding a ticket.
+     */
+    public SoldOutRegistry(final StringRedisTemplate redisTemplate,
+                           final RedisMessageListenerContainer listenerContainer,
+                           final ParticipantBloomFilter participantBloomFilter) {
+        this.redisTemplate = redisTemplate;
+        this.participantBloomFilter = participantBloomFilter;
+        listenerContainer.addMessageListener(this, new ChannelTopic(SOLD_OUT_CHANNEL));
+    }
+
+    /**
+     * Tells whether a ticket request of the lottery should be served. Requests of a lottery flagged as
+     * sold out are refused, except for one per recheck interval.
+     *
+     * @param lotteryId The lottery id.
+     * @return How the request is admitted.
+     */
+    public Admission admit(final UUID lotteryId) {
+        if (!enabled) {
+            return Admission.SERVE;
+        }
+
+        AtomicLong nextCheckAt = recheckTimes.getIfPresent(lotteryId);
+        if (nextCheckAt == null) {
+            return Admission.SERVE;
+        }
+
+        // Let the first request after the recheck time through.
+        long now = System.currentTimeMillis();
+        long checkAt = nextCheckAt.get();
+        return now >= checkAt && nextCheckAt.compareAndSet(checkAt, now + recheckIntervalMs)
+                ? Admission.RECHECK
+                : Admission.REFUSE;
+    }
+
+    /**
+     * Records an issued ticket. The lottery is flagged on every node if this was its last ticket, and
+     * unflagged on every node if the ticket was issued by a recheck; other requests never unflag it.
+     *
+     * @param lotteryId        The lottery id.
+     * @param remainingTickets The tickets left after this one.
+     * @param admission        How the request was admitted.
+     */
+    public void issued(final UUID lotteryId, final long remainingTickets, final Admission admission) {
+        if (!enabled) {
+            return;
+        }
+        if (remainingTickets <= 0) {
+            soldOut(lotteryId);
+        } else if (admission == Admission.RECHECK && unflag(lotteryId)) {
+            publish(AVAILABLE, lotteryId);
+        }
+    }
+
+    /**
+     * Records a failed issuance, flagging the lottery on every node if it ran out of tickets.
+     *
+     * @param lotteryId The lottery id.
+     * @param ex        The issuance exception, or for locker results the exception wrapping it.
+     */
+    public void failed(final UUID lotteryId, final Throwable ex) {
+        if (!enabled) {
+            return;
+        }
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof OutOfTicketsException) {
+                soldOut(lotteryId);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drops the flag of a deleted lottery on every node.
+     *
+     * @param lotteryId The lottery id.
+     */
+    public void deleted(final UUID lotteryId) {
+        recheckTimes.invalidate(lotteryId);
+        publish(DELETED, lotteryId);
+    }
+
+    /**
+     * Applies the sold-out changes of another node.
+     *
+     * @param message The sold-out message.
+     * @param pattern The channel pattern.
+     */
+    @Override
+    public void onMessage(final Message message, final byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(" ", 3);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+
+        try {
+            UUID lotteryId = UUID.fromString(parts[2]);
+            if (SOLD_OUT.equals(parts[1])) {
+                flag(lotteryId);
+            } else if (AVAILABLE.equals(parts[1])) {
+                unflag(lotteryId);
+            } else if (DELETED.equals(parts[1])) {
+                recheckTimes.invalidate(lotteryId);
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed sold-out message '{}'", new String(message.getBody(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private void soldOut(final UUID lotteryId) {
+        if (flag(lotteryId)) {
+            publish(SOLD_OUT, lotteryId);
+        }
+    }
+
+    private boolean flag(final UUID lotteryId) {
+        AtomicLong nextCheckAt = new AtomicLong(System.currentTimeMillis() + recheckIntervalMs);
+        if (recheckTimes.asMap().putIfAbsent(lotteryId, nextCheckAt) != null) {
+            return false;
+        }
+        log.info("Lottery {} is sold out", lotteryId);
+
+        // The Bloom filter of the lottery is no longer needed on this node.
+        participantBloomFilter.forget(lotteryId);
+        return true;
+    }
+
+    private boolean unflag(final UUID lotteryId) {
+        if (recheckTimes.asMap().remove(lotteryId) == null) {
+            return false;
+        }
+        log.info("Lottery {} has tickets again", lotteryId);
+        return true;
+    }
+
+    private void publish(final String change, final UUID lotteryId) {
+        String message = nodeId + " " + change + " " + lotteryId;
+        try {
+            redisTemplate.convertAndSend(SOLD_OUT_CHANNEL, message);
+        } catch (RuntimeException e) {
+            // The other nodes still flag the lottery on their own once they run out.
+            log.warn("Failed to publish sold-out change '{}'", message, e);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package org.project.lottery.statistics;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.project.lottery.exceptions.OutOfTicketsException;
+import org.project.lottery.exceptions.UserAlreadyIssuedTicketException;
+import org.project.lottery.v1.dto.IssueTicketResult;
+import org.project.lottery.v1.dto.LotterySnapshot;
+import org.project.lottery.v1.dto.LotteryStatisticsResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the issuance statistics of the lotteries, fed by the issuance path instead of the tickets table.
+ * Every node counts its issued tickets, participants and requesters in memory and adds them to the shared
+ * counters in Redis once per {@code lottery.statistics.publish-interval-ms}: the issued tickets of a lottery,
+ * a HyperLogLog of the users who hold a ticket, a HyperLogLog of the users who asked for one, refused ones
+ * included, and the issued tickets per 10 second bucket. A bucket
+ * holds the sum of the buckets of all nodes, so the windows of the nodes are merged as they are published,
+ * and buckets expire once they left the 15 minute window.
+ */
+@Component
+@Slf4j
+public class IssuanceStatistics {
+    /**
+     * The key of the issued tickets of a lottery.
+     */
+    private static final String ISSUED_KEY = "lottery_{%s}_statistics_issued";
+
+    /**
+     * The key of the HyperLogLog of the participants of a lottery, the users who were issued a ticket.
+     */
+    private static final String PARTICIPANTS_KEY = "lottery_{%s}_statistics_participants";
+
+    /**
+     * The key of the HyperLogLog of the requesters of a lottery, the users who asked for a ticket.
+     */
+    private static final String REQUESTERS_KEY = "lottery_{%s}_statistics_requesters";
+
+    /**
+     * The key of the issued tickets of a lottery in a bucket.
+     */
+    private static final String ISSUED_BUCKET_KEY = "lottery_{%s}_statistics_issued_%d";
+
+    /**
+     * The width of a bucket, in seconds.
+     */
+    private static final int BUCKET_SECONDS = 10;
+
+    /**
+     * The buckets of the longest window, 15 minutes.
+     */
+    private static final int WINDOW_BUCKETS = 15 * 60 / BUCKET_SECONDS;
+
+    /**
+     * The seconds a bucket is kept, until it left the longest window.
+     */
+    private static final long BUCKET_TTL_SECONDS = (WINDOW_BUCKETS + 1L) * BUCKET_SECONDS;
+
+    private final StringRedisTemplate redisTemplate;
+
+    /**
+     * The statistics of this node not published yet. They are only changed inside {@code compute}, so a
+     * removed entry is never changed again.
+     */
+    private final Map<UUID, PendingStatistics> pending = new ConcurrentHashMap<>();
+
+    @Value("${lottery.statistics.enabled:true}")
+    private boolean enabled;
+
+    @Value("${lottery.statistics.retention-ms:2592000000}")
+    private long retentionMs;
+
+    /**
+     * Constructs a new IssuanceStatistics instance.
+     *
+     * @param redisTemplate The Redis template.
+     */
+    public IssuanceStatistics(final StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Records an issued ticket.
+     *
+     * @param lotteryId The lottery id.
+     * @param userId    The user id.
+     */
+    public void issued(final UUID lotteryId, final UUID userId) {
+        if (!enabled) {
+            return;
+        }
+        long bucket = System.currentTimeMillis() / 1000 / BUCKET_SECONDS;
+        pending.compute(lotteryId, (id, statistics) -> {
+            PendingStatistics updated = statistics == null ? new PendingStatistics() : statistics;
+            updated.issuedPerBucket.merge(bucket, 1L, Long::sum);
+            updated.participants.add(userId.toString());
+            updated.requesters.add(userId.toString());
+            return updated;
+        });
+    }
+
+    /**
+     * Records a refused issuance. Users refused because the lottery ran out of tickets or because they
+     * already hold one count as requesters, other failures are not recorded.
+     *
+     * @param lotteryId The lottery id.
+     * @param userId    The user id.
+     * @param ex        The issuance exception, or for locker results the exception wrapping it.
+     */
+    public void refused(final UUID lotteryId, final UUID userId, final Throwable ex) {
+        if (!enabled) {
+            return;
+        }
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof OutOfTicketsException || t instanceof UserAlreadyIssuedTicketException) {
+                requested(lotteryId, userId);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Records the results of a batch issuance.
+     *
+     * @param results The issuance results.
+     */
+    public void recordAll(final List<IssueTicketResult> results) {
+        for (IssueTicketResult result : results) {
+            switch (result.status()) {
+                case ISSUED -> issued(result.lotteryId(), result.userId());
+                case ALREADY_ISSUED, OUT_OF_TICKETS -> {
+                    if (enabled) {
+                        requested(result.lotteryId(), result.userId());
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the statistics of this node to the shared counters in Redis. Statistics that fail to be
+     * published are dropped, the issued tickets are reconciled with the lottery when they are read.
+     */
+    @Scheduled(fixedDelayString = "${lottery.statistics.publish-interval-ms:1000}")
+    public void publish() {
+        Map<UUID, PendingStatistics> published = new HashMap<>();
+        for (UUID lotteryId : pending.keySet()) {
+            PendingStatistics statistics = pending.remove(lotteryId);
+            if (statistics != null) {
+                published.put(lotteryId, statistics);
+            }
+        }
+        if (published.isEmpty()) {
+            return;
+        }
+
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                published.forEach((lotteryId, statistics) -> {
+                    long issued = 0;
+                    for (Map.Entry<Long, Long> bucket : statistics.issuedPerBucket.entrySet()) {
+                        String bucketKey = String.format(ISSUED_BUCKET_KEY, lotteryId, bucket.getKey());
+                        stringConnection.incrBy(bucketKey, bucket.getValue());
+                        stringConnection.expire(bucketKey, BUCKET_TTL_SECONDS);
+                        issued += bucket.getValue();
+                    }
+                    if (issued > 0) {
+                        stringConnection.incrBy(String.format(ISSUED_KEY, lotteryId), issued);
+                        stringConnection.pExpire(String.format(ISSUED_KEY, lotteryId), retentionMs);
+                    }
+                    if (!statistics.participants.isEmpty()) {
+                        stringConnection.pfAdd(String.format(PARTICIPANTS_KEY, lotteryId),
+                                statistics.participants.toArray(String[]::new));
+                        stringConnection.pExpire(String.format(PARTICIPANTS_KEY, lotteryId), retentionMs);
+                    }
+                    if (!statistics.requesters.isEmpty()) {
+                        stringConnection.pfAdd(String.format(REQUESTERS_KEY, lotteryId),
+                                statistics.requesters.toArray(String[]::new));
+                        stringConnection.pExpire(String.format(REQUESTERS_KEY, lotteryId), retentionMs);
+                    }
+                });
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish the issuance statistics of {} lotteries", published.size(), e);
+        }
+    }
+
+    /**
+     * Deletes the statistics of a deleted lottery: the shared counters, the buckets of the last 15 minutes and
+     * what this node did not publish yet. What other nodes publish afterwards expires with the retention.
+     *
+     * @param lotteryId The lottery id.
+     */
+    public void delete(final UUID lotteryId) {
+        pending.remove(lotteryId);
+
+        long currentBucket = System.currentTimeMillis() / 1000 / BUCKET_SECONDS;
+        List<String> keys = new ArrayList<>(WINDOW_BUCKETS + 4);
+        keys.add(String.format(ISSUED_KEY, lotteryId));
+        keys.add(String.format(PARTICIPANTS_KEY, lotteryId));
+        keys.add(String.format(REQUESTERS_KEY, lotteryId));
+        for (int i = 0; i <= WINDOW_BUCKETS; i++) {
+            keys.add(String.format(ISSUED_BUCKET_KEY, lotteryId, currentBucket - i));
+        }
+        redisTemplate.delete(keys);
+    }
+
+    /**
+     * Publishes what is left when the node shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        publish();
+    }
+
+    /**
+     * Reads the statistics of a lottery from the shared counters in one round trip. The issued tickets are
+     * at least those the lottery row has seen, which covers tickets issued before the counters existed.
+     *
+     * @param lottery The lottery.
+     * @return The statistics.
+     */
+    public LotteryStatisticsResponse statistics(final LotterySnapshot lottery) {
+        long nowMillis = System.currentTimeMillis();
+        long currentBucket = nowMillis / 1000 / BUCKET_SECONDS;
+        List<String> bucketKeys = new ArrayList<>(WINDOW_BUCKETS);
+        for (int i = 0; i < WINDOW_BUCKETS; i++) {
+            bucketKeys.add(String.format(ISSUED_BUCKET_KEY, lottery.id(), currentBucket - i));
+        }
+
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            stringConnection.get(String.format(ISSUED_KEY, lottery.id()));
+            stringConnection.pfCount(String.format(PARTICIPANTS_KEY, lottery.id()));
+            stringConnection.pfCount(String.format(REQUESTERS_KEY, lottery.id()));
+            stringConnection.mGet(bucketKeys.toArray(String[]::new));
+            return null;
+        });
+
+        // Take the issued tickets from the counter, or from the lottery row if that saw more.
+        long issued = Math.max(toLong(replies.get(0)), lottery.totalAllottedTickets() - lottery.totalAvailableTickets());
+        long remaining = Math.max(0, lottery.totalAllottedTickets() - issued);
+
+        // Sum the buckets of every window, newest first, the current bucket is only partly over.
+        List<?> buckets = (List<?>) replies.get(3);
+        double elapsedInBucket = nowMillis / 1000.0 - currentBucket * BUCKET_SECONDS;
+        double[] rates = new double[3];
+        int[] windowBuckets = {60 / BUCKET_SECONDS, 5 * 60 / BUCKET_SECONDS, WINDOW_BUCKETS};
+        long sum = 0;
+        int window = 0;
+        for (int i = 0; i < WINDOW_BUCKETS; i++) {
+            sum += toLong(buckets.get(i));
+            if (i + 1 == windowBuckets[window]) {
+                rates[window++] = sum / (i * BUCKET_SECONDS + elapsedInBucket);
+            }
+        }
+
+        // Estimate the time to sell out from the rate of the last minute.
+        Long secondsToSellOut = remaining == 0 ? Long.valueOf(0)
+                : rates[0] > 0 ? Long.valueOf((long) Math.ceil(remaining / rates[0])) : null;
+
+        return new LotteryStatisticsResponse(lottery.id(), lottery.totalAllottedTickets(), issued, remaining,
+                toLong(replies.get(1)), toLong(replies.get(2)), rates[0], rates[1], rates[2], secondsToSellOut);
+    }
+
+    private void requested(final UUID lotteryId, final UUID userId) {
+        pending.compute(lotteryId, (id, statistics) -> {
+            PendingStatistics updated = statistics == null ? new PendingStatistics() : statistics;
+            updated.requesters.add(userId.toString());
+            return updated;
+        });
+    }
+
+    private static long toLong(final Object value) {
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        return value == null ? 0 : Long.parseLong(value.toString());
+    }
+
+    /**
+     * The issued tickets per bucket, the participants and the requesters of a lottery not published yet.
+     */
+    private static final class PendingStatistics {
+        private final Map<Long, Long> issuedPerBucket = new HashMap<>();
+        private final Set<String> participants = new HashSet<>();
+        private final Set<String> requesters = new HashSet<>();
+    }
+}
@@ -0,0 +1,88 @@
+package org.project.lottery.statistics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.project.lottery.v1.dto.IssueTicketRequest;
+import org.project.lottery.v1.dto.IssueTicketResult;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Feeds the {@link IssuanceStatistics} from every issuance mode. Ordered before the sold-out check, so
+ * users refused because the lottery sold out still count as participants.
+ */
+@Aspect
+@Component
+@Order(-1)
+public class IssuanceStatisticsAspect {
+
+    /**
+     * The issuance statistics.
+     */
+    private final IssuanceStatistics issuanceStatistics;
+
+    /**
+     * Set while a batch is issued, the modes issuing a batch one by one call {@link #issueTicket} through
+     * their proxy and the batch is recorded as a whole.
+     */
+    private final ThreadLocal<Boolean> inBatch = new ThreadLocal<>();
+
+    /**
+     * Constructs a new IssuanceStatisticsAspect instance.
+     *
+     * @param issuanceStatistics The issuance statistics.
+     */
+    public IssuanceStatisticsAspect(final IssuanceStatistics issuanceStatistics) {
+        this.issuanceStatistics = issuanceStatistics;
+    }
+
+    /**
+     * Issues a ticket and records the outcome.
+     *
+     * @param joinPoint The ticket service call.
+     * @param request   The issue ticket request.
+     * @return The ticket response.
+     * @throws Throwable The exception of the ticket service.
+     */
+    @Around("execution(* org.project.lottery.v1.service.ticket.ITicketService+.issueTicket(..)) && args(request)")
+    public Object issueTicket(final ProceedingJoinPoint joinPoint, final IssueTicketRequest request) throws Throwable {
+        if (inBatch.get() != null) {
+            return joinPoint.proceed();
+        }
+
+        Object response;
+        try {
+            response = joinPoint.proceed();
+        } catch (Throwable t) {
+            issuanceStatistics.refused(request.lotteryId(), request.userId(), t);
+            throw t;
+        }
+
+        issuanceStatistics.issued(request.lotteryId(), request.userId());
+        return response;
+    }
+
+    /**
+     * Issues a batch of tickets and records the outcome of every request.
+     *
+     * @param joinPoint The ticket service call.
+     * @return The result of every request.
+     * @throws Throwable The exception of the ticket service.
+     */
+    @Around("execution(* org.project.lottery.v1.service.ticket.ITicketService+.issueTickets(..))")
+    @SuppressWarnings("unchecked")
+    public Object issueTickets(final ProceedingJoinPoint joinPoint) throws Throwable {
+        List<IssueTicketResult> results;
+        inBatch.set(Boolean.TRUE);
+        try {
+            results = (List<IssueTicketResult>) joinPoint.proceed();
+        } finally {
+            inBatch.remove();
+        }
+        issuanceStatistics.recordAll(results);
+        return results;
+    }
+}
@@ -1,18 +1,28 @@
 package org.project.lottery.v1.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
+import org.project.lottery.statistics.IssuanceStatistics;
 import org.project.lottery.v1.dto.CreateLotteryRequest;
 import org.project.lottery.v1.dto.LotteryResponse;
+import org.project.lottery.v1.dto.LotterySnapshot;
+import org.project.lottery.v1.dto.LotteryStatisticsResponse;
+import org.project.lottery.v1.dto.TicketPage;
 import org.project.lottery.v1.dto.TicketResponse;
-import org.project.lottery.v1.entity.Lottery;
 import org.project.lottery.v1.service.lottery.ILotteryService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.List;
 import java.util.UUID;
@@ -23,11 +33,31 @@ import java.util.UUID;
 @Validated
 public class LotteryController {
 
+    /**
+     * The header holding the ticket id to continue the ticket list after.
+     */
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * The newline delimited JSON media type.
+     */
+    private static final String NDJSON = "application/x-ndjson";
+
     /**
      * The lottery service.
      */
     private final ILotteryService lotteryService;
 
+    /**
+     * The object mapper.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * The issuance statistics.
+     */
+    private final IssuanceStatistics issuanceStatistics;
+
     /**
      * Creates a lottery.
      *
@@ -59,30 +89,91 @@ public class LotteryController {
     @GetMapping("/{uuid}")
     public ResponseEntity<LotteryResponse> findById(@NotNull @PathVariable("uuid") UUID uuid) {
         // Get the lottery by lotteryId.
-        Lottery lottery = lotteryService.findById(uuid);
+        LotterySnapshot lottery = lotteryService.findById(uuid);
 
         // Return the lottery.
-        return ResponseEntity.ok().body(new LotteryResponse(
-                lottery.getName(),
-                lottery.getId(),
-                lottery.getTotalAllottedTickets(),
-                lottery.getTotalAvailableTickets()
-        ));
+        return ResponseEntity.ok().body(lottery.toResponse());
     }
 
     /**
-     * Gets a list of all tickets for the specified lottery.
+     * Gets the live issuance statistics of a lottery, read from counters maintained on the issuance path
+     * rather than from its tickets.
      *
-     * @param uuid The lottery ID.
-     * @return A list of all tickets for the specified lottery.
+     * @param uuid The lotteryId of the lottery.
+     * @return The lottery statistics.
+     */
+    @GetMapping("/{uuid}/statistics")
+    public ResponseEntity<LotteryStatisticsResponse> statistics(@NotNull @PathVariable("uuid") UUID uuid) {
+        // Get the lottery by lotteryId.
+        LotterySnapshot lottery = lotteryService.findById(uuid);
+
+        // Return the statistics of the lottery.
+        return ResponseEntity.ok().body(issuanceStatistics.statistics(lottery));
+    }
+
+    /**
+     * Deletes a lottery and its tickets.
+     *
+     * @param uuid The lotteryId of the lottery.
+     * @return No content.
+     */
+    @DeleteMapping("/{uuid}")
+    public ResponseEntity<Void> deleteLottery(@NotNull @PathVariable("uuid") UUID uuid) {
+        // Delete the lottery.
+        lotteryService.deleteLottery(uuid);
+
+        // Return no content.
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Gets a page of the tickets for the specified lottery, ordered by ticket id. The id to continue
+     * after is returned in the {@code X-Next-Cursor} header while more tickets may follow.
+     *
+     * @param uuid  The lottery ID.
+     * @param after The ticket id to continue after, or {@code null} for the first page.
+     * @param limit The page size, or {@code null} for the default page size.
+     * @return A page of tickets for the specified lottery.
      */
     @GetMapping("/{uuid}/ticket/list")
-    public ResponseEntity<List<TicketResponse>> listTickets(@NotNull @PathVariable("uuid") UUID uuid) {
-        // Get the list of tickets for the specified lottery.
-        List<TicketResponse> tickets = lotteryService.listTickets(uuid);
+    public ResponseEntity<List<TicketResponse>> listTickets(@NotNull @PathVariable("uuid") UUID uuid,
+                                                            @RequestParam(value = "after", required = false) UUID after,
+                                                            @RequestParam(value = "limit", required = false) Integer limit) {
+        // Get the page of tickets for the specified lottery.
+        TicketPage page = lotteryService.listTickets(uuid, after, limit);
+
+        // Return the page of tickets with the cursor of the next page, if any.
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor().toString());
+        }
+        return response.body(page.tickets());
+    }
+
+    /**
+     * Streams all tickets for the specified lottery as newline delimited JSON, ordered by ticket id.
+     *
+     * @param uuid     The lottery ID.
+     * @param response The servlet response the tickets are written to.
+     * @throws IOException If the response could not be written.
+     */
+    @GetMapping(value = "/{uuid}/ticket/stream", produces = NDJSON)
+    public void streamTickets(@NotNull @PathVariable("uuid") UUID uuid,
+                              HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        ObjectWriter writer = objectMapper.writer();
+        OutputStream out = new BufferedOutputStream(response.getOutputStream());
 
-        // Return the list of tickets.
-        return ResponseEntity.ok().body(tickets);
+        // Write every ticket as a line as it is read from the database.
+        lotteryService.forEachTicket(uuid, ticket -> {
+            try {
+                out.write(writer.writeValueAsBytes(ticket));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
     }
 
 }
@@ -2,9 +2,13 @@ package org.project.lottery.v1.controller;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import org.project.lottery.exceptions.NotFoundException;
+import org.project.lottery.idempotency.IdempotencyService;
+import org.project.lottery.idempotency.IdempotentResult;
 import org.project.lottery.v1.dto.IssueTicketRequest;
+import org.project.lottery.v1.dto.IssueTicketResult;
 import org.project.lottery.v1.dto.LotteryResponse;
 import org.project.lottery.v1.dto.TicketResponse;
 import org.project.lottery.v1.entity.Ticket;
@@ -26,17 +30,23 @@ import java.util.UUID;
 public class TicketController {
 
     private final ITicketService ticketService;
+    private final IdempotencyService idempotencyService;
 
     /**
      * Issue a new ticket to user.
      *
-     * @param request The request body containing the user and lottery ID.
+     * @param request        The request body containing the user and lottery ID.
+     * @param idempotencyKey The optional idempotency key, retries with the same key get the original response.
      * @return The newly issued ticket.
      */
     @PostMapping
-    public ResponseEntity<TicketResponse> issueTicket(@Valid @RequestBody IssueTicketRequest request) {
-        // Issue the ticket and get the response.
-        TicketResponse ticketResponse = ticketService.issueTicket(request);
+    public ResponseEntity<TicketResponse> issueTicket(@Valid @RequestBody IssueTicketRequest request,
+                                                      @RequestHeader(name = IdempotencyService.KEY_HEADER, required = false)
+                                                      String idempotencyKey) {
+        // Issue the ticket, or replay the response of the request with the same idempotency key.
+        IdempotentResult result = idempotencyService.issue(idempotencyKey, request,
+                () -> ticketService.issueTicket(request));
+        TicketResponse ticketResponse = result.response();
 
         // Create a URI pointing to the newly issued ticket.
         URI location = ServletUriComponentsBuilder.fromCurrentRequest()
@@ -45,7 +55,25 @@ public class TicketController {
                 .toUri();
 
         // Return the ticket response with the location header set.
-        return ResponseEntity.created(location).body(ticketResponse);
+        ResponseEntity.BodyBuilder response = ResponseEntity.created(location);
+        if (result.replayed()) {
+            response.header(IdempotencyService.REPLAYED_HEADER, "true");
+        }
+        return response.body(ticketResponse);
+    }
+
+    /**
+     * Issue tickets to a batch of users, possibly of several lotteries.
+     *
+     * @param requests The user and lottery ID of every ticket to issue.
+     * @return The result of every request, in request order.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<IssueTicketResult>> issueTickets(
+            @Size(max = 10000, message = "at most 10000 tickets can be issued at once")
+            @RequestBody List<@Valid IssueTicketRequest> requests) {
+        // Issue the tickets and return the result of every request.
+        return ResponseEntity.ok().body(ticketService.issueTickets(requests));
     }
 
     /**
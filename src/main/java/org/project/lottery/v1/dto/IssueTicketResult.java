@@ -0,0 +1,21 @@
+package org.project.lottery.v1.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.UUID;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record IssueTicketResult(@JsonProperty("user_id")
+                                UUID userId,
+                                @JsonProperty("lottery_id")
+                                UUID lotteryId,
+                                @JsonProperty("status")
+                                IssueTicketStatus status,
+                                @JsonProperty("ticket")
+                                TicketResponse ticket
+) {
+    public static IssueTicketResult of(IssueTicketRequest request, IssueTicketStatus status) {
+        return new IssueTicketResult(request.userId(), request.lotteryId(), status, null);
+    }
+}
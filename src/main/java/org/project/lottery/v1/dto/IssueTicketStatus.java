@@ -0,0 +1,16 @@
+package org.project.lottery.v1.dto;
+
+/**
+ * The outcome of issuing a ticket to one user of a batch.
+ */
+public enum IssueTicketStatus {
+    ISSUED,
+    ALREADY_ISSUED,
+    OUT_OF_TICKETS,
+    NOT_FOUND,
+    /**
+     * The request was not processed, e.g. because the lottery lock could not be acquired; nothing was issued
+     * and it can be retried.
+     */
+    FAILED
+}
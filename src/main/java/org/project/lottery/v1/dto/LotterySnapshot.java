@@ -0,0 +1,31 @@
+package org.project.lottery.v1.dto;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * An immutable copy of the state of a lottery, as cached and read on the ticket issuance path.
+ *
+ * @param id                    The lottery id.
+ * @param name                  The lottery name.
+ * @param totalAllottedTickets  The number of tickets of the lottery.
+ * @param totalAvailableTickets The number of tickets left when the snapshot was taken.
+ * @param version               The version of the lottery row the snapshot was taken from.
+ */
+public record LotterySnapshot(
+        UUID id,
+        String name,
+        long totalAllottedTickets,
+        long totalAvailableTickets,
+        long version
+) implements Serializable {
+
+    /**
+     * Creates the response of this lottery.
+     *
+     * @return The lottery response.
+     */
+    public LotteryResponse toResponse() {
+        return new LotteryResponse(name, id, totalAllottedTickets, totalAvailableTickets);
+    }
+}
@@ -0,0 +1,44 @@
+package org.project.lottery.v1.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.UUID;
+
+/**
+ * The live issuance statistics of a lottery.
+ *
+ * @param id                   The lottery id.
+ * @param totalAllottedTickets The total allotted tickets.
+ * @param issuedTickets        The tickets issued so far.
+ * @param remainingTickets     The tickets left.
+ * @param uniqueParticipants   The estimated number of distinct users who were issued a ticket.
+ * @param uniqueRequesters     The estimated number of distinct users who asked for a ticket, refused ones included.
+ * @param issuanceRate1m       The tickets issued per second over the last minute.
+ * @param issuanceRate5m       The tickets issued per second over the last 5 minutes.
+ * @param issuanceRate15m      The tickets issued per second over the last 15 minutes.
+ * @param secondsToSellOut     The seconds until the lottery sells out at the rate of the last minute, or
+ *                             {@code null} if no ticket was issued in the last minute.
+ */
+public record LotteryStatisticsResponse(
+        @JsonProperty("lottery_id")
+        UUID id,
+        @JsonProperty("total_allotted_tickets")
+        long totalAllottedTickets,
+        @JsonProperty("issued_tickets")
+        long issuedTickets,
+        @JsonProperty("remaining_tickets")
+        long remainingTickets,
+        @JsonProperty("unique_participants")
+        long uniqueParticipants,
+        @JsonProperty("unique_requesters")
+        long uniqueRequesters,
+        @JsonProperty("issuance_rate_1m")
+        double issuanceRate1m,
+        @JsonProperty("issuance_rate_5m")
+        double issuanceRate5m,
+        @JsonProperty("issuance_rate_15m")
+        double issuanceRate15m,
+        @JsonProperty("seconds_to_sell_out")
+        Long secondsToSellOut
+) {
+}
@@ -0,0 +1,13 @@
+package org.project.lottery.v1.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A page of the tickets of a lottery, ordered by ticket id.
+ *
+ * @param tickets    The tickets.
+ * @param nextCursor The ticket id to continue after, or {@code null} if this is the last page.
+ */
+public record TicketPage(List<TicketResponse> tickets, UUID nextCursor) {
+}
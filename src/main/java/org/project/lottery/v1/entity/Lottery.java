@@ -2,9 +2,9 @@ package org.project.lottery.v1.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
 
 import java.io.Serializable;
-import java.util.Set;
 import java.util.UUID;
 
 @Entity
@@ -16,7 +16,8 @@ import java.util.UUID;
 public class Lottery implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedValue(generator = UuidV7Generator.NAME)
+    @GenericGenerator(name = UuidV7Generator.NAME, strategy = "org.project.lottery.v1.entity.UuidV7Generator")
     private UUID id;
 
     private String name;
@@ -27,7 +28,15 @@ public class Lottery implements Serializable {
     @Column(name = "total_available_tickets")
     private Long totalAvailableTickets;
 
-    @OneToMany(mappedBy = "lottery")
-    private Set<Ticket> tickets;
+    @Version
+    @Column(name = "version", columnDefinition = "bigint default 0 not null")
+    private Long version;
+
+    /**
+     * Whether the lottery is published: lotteries of the slots mode are only read and issued from once
+     * all their ticket slots exist.
+     */
+    @Column(name = "slots_ready", columnDefinition = "boolean default true not null")
+    private boolean slotsReady = true;
 
 }
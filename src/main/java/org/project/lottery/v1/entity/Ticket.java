@@ -1,36 +1,72 @@
 package org.project.lottery.v1.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.GenericGenerator;
 
 import java.io.Serializable;
 import java.util.UUID;
 
 @Entity
-@Table(name = "tickets")
+@Table(name = "tickets", uniqueConstraints = @UniqueConstraint(name = "uk_tickets_lottery_user", columnNames = {"lottery_id", "user_uuid"}))
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
 @Data
 public class Ticket implements Serializable {
+    /**
+     * The prefix of the lottery number shown for a ticket, followed by its ticket number.
+     */
+    public static final String LOTTERY_NUMBER_PREFIX = "lottery_number_";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedValue(generator = UuidV7Generator.NAME)
+    @GenericGenerator(name = UuidV7Generator.NAME, strategy = "org.project.lottery.v1.entity.UuidV7Generator")
     private UUID id;
     @Column(name = "user_uuid")
     private UUID userId;
-    @Column(name = "lottery_number")
-    private String lotteryNumber;
+    @Column(name = "ticket_number", nullable = false)
+    private long ticketNumber;
 
     @ManyToOne
+    @ToString.Exclude
     @JoinColumn(name = "lottery_id", nullable = false)
     private Lottery lottery;
 
-    public Ticket(UUID userId, String lotteryNumber, Lottery lottery) {
-        this.lotteryNumber = lotteryNumber;
+    public Ticket(UUID userId, long ticketNumber, Lottery lottery) {
+        this.ticketNumber = ticketNumber;
         this.userId = userId;
         this.lottery = lottery;
     }
+
+    /**
+     * Returns the lottery number shown for the ticket, e.g. {@code lottery_number_42}.
+     */
+    @JsonIgnore
+    public String getLotteryNumber() {
+        return lotteryNumber(ticketNumber);
+    }
+
+    /**
+     * Sets the ticket number from the lottery number shown for the ticket, read from tickets cached as JSON
+     * before the ticket number was a column.
+     */
+    @JsonProperty
+    public void setLotteryNumber(String lotteryNumber) {
+        this.ticketNumber = ticketNumber(lotteryNumber);
+    }
+
+    public static String lotteryNumber(long ticketNumber) {
+        return LOTTERY_NUMBER_PREFIX + ticketNumber;
+    }
+
+    public static long ticketNumber(String lotteryNumber) {
+        return Long.parseLong(lotteryNumber.substring(LOTTERY_NUMBER_PREFIX.length()));
+    }
 }
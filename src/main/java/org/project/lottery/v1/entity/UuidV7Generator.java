@@ -0,0 +1,48 @@
+package org.project.lottery.v1.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates time-ordered version 7 UUIDs (RFC 9562): a 48 bit Unix timestamp in milliseconds, a 12 bit
+ * counter and 62 random bits. Ids generated later sort after earlier ones, so new rows are appended to the
+ * right edge of the primary key index instead of splitting pages all over it. Within a millisecond the
+ * counter keeps the ids of this node ordered; once it overflows, the timestamp runs ahead of the clock
+ * until the clock catches up.
+ */
+public class UuidV7Generator implements IdentifierGenerator {
+    /**
+     * The name of the generator, used by {@code @GeneratedValue(generator = ...)}.
+     */
+    public static final String NAME = "uuid-v7";
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * The timestamp and the counter of the last id, as {@code millis << 12 | counter}.
+     */
+    private static final AtomicLong LAST = new AtomicLong();
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return next();
+    }
+
+    /**
+     * Generates a new id.
+     *
+     * @return The id.
+     */
+    public static UUID next() {
+        long now = System.currentTimeMillis() << 12;
+        long timeAndCounter = LAST.updateAndGet(last -> Math.max(last + 1, now));
+
+        long mostSignificantBits = (timeAndCounter >>> 12) << 16 | 0x7000L | (timeAndCounter & 0xFFFL);
+        long leastSignificantBits = RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+}
@@ -0,0 +1,25 @@
+package org.project.lottery.v1.repository;
+
+import org.project.lottery.v1.entity.Ticket;
+
+import java.util.UUID;
+
+/**
+ * A ticket slot assigned to a user, with the lottery it belongs to.
+ *
+ * @param id                   The ticket id.
+ * @param userId               The user id.
+ * @param ticketNumber         The ticket number.
+ * @param lotteryName          The name of the lottery.
+ * @param totalAllottedTickets The total allotted tickets of the lottery.
+ * @param remainingTickets     The available tickets of the lottery as last reconciled, at least its free slots.
+ */
+public record ClaimedSlotRow(UUID id, UUID userId, long ticketNumber, String lotteryName,
+                             long totalAllottedTickets, long remainingTickets) {
+    /**
+     * Returns the lottery number shown for the ticket.
+     */
+    public String lotteryNumber() {
+        return Ticket.lotteryNumber(ticketNumber);
+    }
+}
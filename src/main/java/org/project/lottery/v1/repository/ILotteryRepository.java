@@ -1,10 +1,45 @@
 package org.project.lottery.v1.repository;
 
+import org.project.lottery.v1.dto.LotterySnapshot;
 import org.project.lottery.v1.entity.Lottery;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface ILotteryRepository extends JpaRepository<Lottery, UUID> {
 
+    @Query("select new org.project.lottery.v1.dto.LotterySnapshot(l.id, l.name, l.totalAllottedTickets, l.totalAvailableTickets, l.version) from Lottery l where l.id = :id and l.slotsReady = true")
+    Optional<LotterySnapshot> findSnapshotById(UUID id);
+
+    @Query("select l.id from Lottery l where l.id in :ids and l.slotsReady = true")
+    List<UUID> findExistingIds(Collection<UUID> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Lottery l set l.totalAvailableTickets = l.totalAvailableTickets - :count, l.version = l.version + 1 where l.id = :id and l.totalAvailableTickets >= :count")
+    int decrementAvailableTickets(UUID id, long count);
+
+    @Query(value = "update lotteries set total_available_tickets = total_available_tickets - 1, version = version + 1 where id = :id and total_available_tickets > 0 "
+            + "returning id as id, name as name, total_allotted_tickets as totalAllottedTickets, total_available_tickets as totalAvailableTickets", nativeQuery = true)
+    Optional<IssuedLotteryRow> decrementAvailableTicketReturningLottery(UUID id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Lottery l set l.totalAvailableTickets = case when l.totalAvailableTickets > :count then l.totalAvailableTickets - :count else 0 end, "
+            + "l.version = l.version + 1 where l.id = :id")
+    int subtractAvailableTickets(UUID id, long count);
+
+    @Modifying
+    @Query(value = "update lotteries set total_available_tickets = (select count(*) from tickets where lottery_id = :id and user_uuid is null), "
+            + "version = version + 1 where id = :id", nativeQuery = true)
+    int reconcileAvailableTicketsWithFreeSlots(UUID id);
+
+    @Transactional
+    @Modifying
+    @Query("update Lottery l set l.slotsReady = true where l.id = :id")
+    int publishSlots(UUID id);
 }
@@ -1,17 +1,50 @@
 package org.project.lottery.v1.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.project.lottery.v1.entity.Ticket;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface ITicketRepository extends JpaRepository<Ticket, UUID> {
+public interface ITicketRepository extends JpaRepository<Ticket, UUID>, TicketBatchRepository {
     @Query("select t from Ticket t where t.userId  = :userId and t.lottery.id = :lotteryId")
     Optional<Ticket> findByUserIdAndLotteryId(UUID userId, UUID lotteryId);
 
-    @Query("select t from Ticket t where t.lottery.id = :lotteryId")
+    @Query("select t from Ticket t where t.lottery.id = :lotteryId and t.userId is not null")
     Collection<Ticket> findAllByLotteryId(String lotteryId);
+
+    @Query("select t.userId from Ticket t where t.lottery.id = :lotteryId and t.userId in :userIds")
+    List<UUID> findIssuedUserIds(UUID lotteryId, Collection<UUID> userIds);
+
+    @Query("select t.id from Ticket t where t.lottery.id in :lotteryIds and t.id in :ids")
+    List<UUID> findExistingIds(Collection<UUID> lotteryIds, Collection<UUID> ids);
+
+    @Modifying
+    @Query("delete from Ticket t where t.lottery.id = :lotteryId")
+    int deleteByLotteryId(UUID lotteryId);
+
+    @Query("select new org.project.lottery.v1.repository.TicketRow(t.id, t.userId, t.ticketNumber) "
+            + "from Ticket t where t.lottery.id = :lotteryId and t.userId is not null order by t.id")
+    List<TicketRow> findFirstPage(UUID lotteryId, Pageable pageable);
+
+    @Query("select new org.project.lottery.v1.repository.TicketRow(t.id, t.userId, t.ticketNumber) "
+            + "from Ticket t where t.lottery.id = :lotteryId and t.userId is not null and t.id > :after order by t.id")
+    List<TicketRow> findPageAfter(UUID lotteryId, UUID after, Pageable pageable);
+
+    /**
+     * Streams the tickets of a lottery from a database cursor. Must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new org.project.lottery.v1.repository.TicketRow(t.id, t.userId, t.ticketNumber) "
+            + "from Ticket t where t.lottery.id = :lotteryId and t.userId is not null order by t.id")
+    Stream<TicketRow> streamByLotteryId(UUID lotteryId);
 }
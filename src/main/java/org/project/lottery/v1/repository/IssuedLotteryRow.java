@@ -0,0 +1,16 @@
+package org.project.lottery.v1.repository;
+
+import java.util.UUID;
+
+/**
+ * The state of a lottery returned by the decrement that issued one of its tickets.
+ */
+public interface IssuedLotteryRow {
+    UUID getId();
+
+    String getName();
+
+    long getTotalAllottedTickets();
+
+    long getTotalAvailableTickets();
+}
@@ -0,0 +1,66 @@
+package org.project.lottery.v1.repository;
+
+import org.project.lottery.v1.entity.Ticket;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface TicketBatchRepository {
+    /**
+     * Inserts the given tickets with JDBC batch inserts. The tickets must have their id assigned.
+     *
+     * @param tickets The tickets.
+     */
+    void insertAll(Collection<Ticket> tickets);
+
+    /**
+     * Inserts the unassigned ticket slots {@code 1..count} of a lottery, the ticket numbers are fixed when
+     * the lottery is created. The slots are inserted in ticket number order by statements of a bounded
+     * size, each committed on its own when called outside of a transaction. Requires Postgres
+     * ({@code generate_series}).
+     *
+     * @param lotteryId The lottery id.
+     * @param count     The number of slots.
+     */
+    void insertSlots(UUID lotteryId, long count);
+
+    /**
+     * Assigns a free ticket slot of a lottery to the user. Slots locked by other transactions are skipped,
+     * so concurrent claims each get a different slot without waiting. The lottery row is read, not locked.
+     * Requires Postgres.
+     *
+     * @param lotteryId The lottery id.
+     * @param userId    The user id.
+     * @return The claimed ticket, or empty if no slot is free or the lottery does not exist or is not
+     * published yet.
+     */
+    Optional<ClaimedSlotRow> claimSlot(UUID lotteryId, UUID userId);
+
+    /**
+     * Returns whether the tickets table is partitioned by lottery. Requires Postgres.
+     *
+     * @return Whether the tickets table is partitioned.
+     */
+    boolean isPartitioned();
+
+    /**
+     * Creates the partition holding the tickets of a lottery. The partition is attached to the tickets
+     * table while it is empty, which only locks out other partition changes, not ticket reads and writes.
+     * Requires Postgres and a partitioned tickets table.
+     *
+     * @param lotteryId The lottery id.
+     */
+    void createPartition(UUID lotteryId);
+
+    /**
+     * Drops the partition holding the tickets of a lottery, together with its tickets. The partition is
+     * detached concurrently first, on Postgres 14 and later, so ticket reads and writes of the other
+     * lotteries go on. Must be called outside a transaction.
+     *
+     * @param lotteryId The lottery id.
+     * @return Whether the lottery had a partition of its own; lotteries created before the tickets table
+     * was partitioned share one.
+     */
+    boolean dropPartition(UUID lotteryId);
+}
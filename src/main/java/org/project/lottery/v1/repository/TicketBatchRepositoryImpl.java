@@ -0,0 +1,176 @@
+package org.project.lottery.v1.repository;
+
+import org.project.lottery.v1.entity.Ticket;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+public class TicketBatchRepositoryImpl implements TicketBatchRepository {
+    private static final String INSERT_TICKET_SQL =
+            "insert into tickets (id, user_uuid, ticket_number, lottery_id) values (?, ?, ?, ?)";
+
+    /**
+     * A version 7 UUID in SQL: a random UUID overlaid with the current Unix time in milliseconds, with the
+     * version bits turned from 4 into 7.
+     */
+    private static final String UUID_V7_SQL =
+            "encode(set_bit(set_bit(overlay(uuid_send(gen_random_uuid()) placing "
+                    + "substring(int8send(floor(extract(epoch from clock_timestamp()) * 1000)::bigint) from 3) "
+                    + "from 1 for 6), 52, 1), 53, 1), 'hex')::uuid";
+
+    private static final String INSERT_SLOTS_SQL =
+            "insert into tickets (id, ticket_number, lottery_id) "
+                    + "select " + UUID_V7_SQL + ", n, ? from generate_series(?::bigint, ?::bigint) as n";
+
+    /**
+     * Claims a free slot of a published lottery and reads the lottery in the same statement, without locking
+     * the lottery row. The available tickets returned are those of the last reconciliation, never fewer than
+     * the free slots.
+     */
+    private static final String CLAIM_SLOT_SQL =
+            "update tickets t set user_uuid = ? from lotteries l where t.lottery_id = ? and l.id = t.lottery_id and l.slots_ready "
+                    + "and t.id = (select id from tickets where lottery_id = ? and user_uuid is null limit 1 for update skip locked"
+                    + ") returning t.id, t.user_uuid, t.ticket_number, l.name, l.total_allotted_tickets, l.total_available_tickets";
+
+    private static final String IS_PARTITIONED_SQL =
+            "select coalesce((select relkind = 'p' from pg_class where oid = to_regclass('tickets')), false)";
+
+    /**
+     * The partition of a lottery, named after the lottery id without dashes.
+     */
+    private static final String PARTITION_TABLE = "tickets_%s";
+
+    /**
+     * Whether a table is a partition of the tickets table, and whether a concurrent detach of it was
+     * interrupted, which Postgres before 14 cannot tell.
+     */
+    private static final String PARTITION_STATE_SQL =
+            "select i.inhdetachpending from pg_inherits i where i.inhrelid = to_regclass(?) and i.inhparent = 'tickets'::regclass";
+
+    private static final String PARTITION_STATE_BEFORE_14_SQL =
+            "select false from pg_inherits i where i.inhrelid = to_regclass(?) and i.inhparent = 'tickets'::regclass";
+
+    /**
+     * How long detaching and dropping a partition wait for a lock, e.g. of the tickets table behind a ticket
+     * stream on Postgres before 14, before they give up instead of queueing every ticket query up behind them.
+     */
+    private static final String DROP_PARTITION_LOCK_TIMEOUT = "5s";
+
+    /**
+     * The number of slots inserted by one statement of {@link #insertSlots(UUID, long)}.
+     */
+    private static final long INSERT_SLOTS_CHUNK_SIZE = 100_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TicketBatchRepositoryImpl(final JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertAll(Collection<Ticket> tickets) {
+        if (tickets.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_TICKET_SQL, new ArrayList<>(tickets), tickets.size(), (ps, ticket) -> {
+            ps.setObject(1, ticket.getId());
+            ps.setObject(2, ticket.getUserId());
+            ps.setLong(3, ticket.getTicketNumber());
+            ps.setObject(4, ticket.getLottery().getId());
+        });
+    }
+
+    @Override
+    public void insertSlots(UUID lotteryId, long count) {
+        for (long from = 1; from <= count; from += INSERT_SLOTS_CHUNK_SIZE) {
+            jdbcTemplate.update(INSERT_SLOTS_SQL, lotteryId, from, Math.min(count, from + INSERT_SLOTS_CHUNK_SIZE - 1));
+        }
+    }
+
+    @Override
+    public Optional<ClaimedSlotRow> claimSlot(UUID lotteryId, UUID userId) {
+        return jdbcTemplate.query(CLAIM_SLOT_SQL, (rs, rowNum) -> new ClaimedSlotRow(
+                rs.getObject(1, UUID.class),
+                rs.getObject(2, UUID.class),
+                rs.getLong(3),
+                rs.getString(4),
+                rs.getLong(5),
+                rs.getLong(6)
+        ), userId, lotteryId, lotteryId).stream().findFirst();
+    }
+
+    @Override
+    public boolean isPartitioned() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PARTITIONED_SQL, Boolean.class));
+    }
+
+    @Override
+    public void createPartition(UUID lotteryId) {
+        // Create the partition on its own and attach it, attaching an empty table needs no validation.
+        String partition = partitionTable(lotteryId);
+        jdbcTemplate.execute("create table " + partition + " (like tickets including defaults including constraints)");
+        jdbcTemplate.execute("alter table tickets attach partition " + partition + " for values in ('" + lotteryId + "')");
+    }
+
+    @Override
+    public boolean dropPartition(UUID lotteryId) {
+        String partition = partitionTable(lotteryId);
+        if (jdbcTemplate.queryForObject("select to_regclass(?) is not null", Boolean.class, partition) != Boolean.TRUE) {
+            return false;
+        }
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            if (!connection.getAutoCommit()) {
+                throw new IllegalStateException("Partitions cannot be detached concurrently inside a transaction");
+            }
+            boolean concurrently = connection.getMetaData().getDatabaseMajorVersion() >= 14;
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("set lock_timeout = '" + DROP_PARTITION_LOCK_TIMEOUT + "'");
+                try {
+                    // Detach the partition, concurrently if Postgres can, which only takes a share update
+                    // exclusive lock of the tickets table; finish a concurrent detach that was interrupted.
+                    Boolean detachPending = partitionState(connection, partition, concurrently);
+                    if (detachPending != null) {
+                        statement.execute("alter table tickets detach partition " + partition
+                                + (detachPending ? " finalize" : concurrently ? " concurrently" : ""));
+                    }
+
+                    // Drop the detached table, which no ticket query sees any more.
+                    statement.execute("drop table " + partition);
+                } finally {
+                    statement.execute("reset lock_timeout");
+                }
+            }
+            return true;
+        }));
+    }
+
+    /**
+     * Reads whether a table is attached to the tickets table.
+     *
+     * @return {@code null} if it is not a partition of the tickets table, otherwise whether a concurrent
+     * detach of it is pending.
+     */
+    private static Boolean partitionState(final Connection connection, final String partition,
+                                          final boolean concurrently) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                concurrently ? PARTITION_STATE_SQL : PARTITION_STATE_BEFORE_14_SQL)) {
+            statement.setString(1, partition);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getBoolean(1) : null;
+            }
+        }
+    }
+
+    private static String partitionTable(final UUID lotteryId) {
+        return String.format(PARTITION_TABLE, lotteryId.toString().replace("-", ""));
+    }
+}
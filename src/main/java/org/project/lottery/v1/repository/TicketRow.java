@@ -0,0 +1,21 @@
+package org.project.lottery.v1.repository;
+
+import org.project.lottery.v1.entity.Ticket;
+
+import java.util.UUID;
+
+/**
+ * The columns of a ticket needed to list it, read without loading the ticket entity or its lottery.
+ *
+ * @param id            The ticket id.
+ * @param userId        The user id.
+ * @param ticketNumber  The ticket number.
+ */
+public record TicketRow(UUID id, UUID userId, long ticketNumber) {
+    /**
+     * Returns the lottery number shown for the ticket.
+     */
+    public String lotteryNumber() {
+        return Ticket.lotteryNumber(ticketNumber);
+    }
+}
@@ -2,18 +2,36 @@ package org.project.lottery.v1.service.lottery;
 
 import org.project.lottery.v1.dto.CreateLotteryRequest;
 import org.project.lottery.v1.dto.LotteryResponse;
+import org.project.lottery.v1.dto.LotterySnapshot;
+import org.project.lottery.v1.dto.TicketPage;
 import org.project.lottery.v1.dto.TicketResponse;
 import org.project.lottery.v1.entity.Lottery;
 
-import java.util.List;
+import java.util.Collection;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface ILotteryService {
     LotteryResponse createLottery(CreateLotteryRequest request);
 
-    Lottery findById(UUID id);
+    void deleteLottery(UUID id);
 
-    List<TicketResponse> listTickets(UUID uuid);
+    LotterySnapshot findById(UUID id);
 
-    void save(Lottery lottery);
+    LotterySnapshot findCurrentById(UUID id);
+
+    Lottery getReference(UUID id);
+
+    Set<UUID> findExistingIds(Collection<UUID> ids);
+
+    TicketPage listTickets(UUID uuid, UUID after, Integer limit);
+
+    void forEachTicket(UUID uuid, Consumer<TicketResponse> consumer);
+
+    boolean decrementAvailableTickets(UUID id, long count);
+
+    void subtractClaimedSlots(UUID id, long count);
+
+    void reconcileWithFreeSlots(UUID id);
 }
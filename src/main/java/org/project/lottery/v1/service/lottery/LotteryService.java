@@ -1,21 +1,42 @@
 package org.project.lottery.v1.service.lottery;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.project.lottery.bloom.ParticipantBloomFilter;
 import org.project.lottery.exceptions.NotFoundException;
+import org.project.lottery.soldout.SoldOutRegistry;
+import org.project.lottery.statistics.IssuanceStatistics;
 import org.project.lottery.v1.dto.CreateLotteryRequest;
 import org.project.lottery.v1.dto.LotteryResponse;
+import org.project.lottery.v1.dto.LotterySnapshot;
+import org.project.lottery.v1.dto.TicketPage;
 import org.project.lottery.v1.dto.TicketResponse;
 import org.project.lottery.v1.entity.Lottery;
 import org.project.lottery.v1.repository.ILotteryRepository;
+import org.project.lottery.v1.repository.ITicketRepository;
+import org.project.lottery.v1.repository.TicketRow;
+import org.project.lottery.v1.service.ticket.RedisTicketInventory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
@@ -24,12 +45,70 @@ public class LotteryService implements ILotteryService {
     // Create a private field to store the lottery repository.
     private final ILotteryRepository lotteryRepository;
 
-    // Create a constructor to initialize the lottery repository.
-    public LotteryService(ILotteryRepository lotteryRepository) {
+    // Create a private field to store the ticket repository.
+    private final ITicketRepository ticketRepository;
+
+    // Create a private field to store the Bloom filter of the users holding a ticket.
+    private final ParticipantBloomFilter participantBloomFilter;
+
+    // Create private fields to store the Redis state of the lotteries: ticket inventory, statistics and sold-out flags.
+    private final RedisTicketInventory ticketInventory;
+
+    private final IssuanceStatistics issuanceStatistics;
+
+    private final SoldOutRegistry soldOutRegistry;
+
+    // Create a private field to store the transaction template of the lottery row, kept apart from its slots and partition.
+    private final TransactionTemplate transactionTemplate;
+
+    // Create a private field to store the decrements of the available tickets that matched no lottery row.
+    private final Counter decrementMisses;
+
+    // Create a private field to store this service behind its caching proxy, so lookups from within it hit the cache.
+    private final ILotteryService self;
+
+    // Create private fields to store the page sizes of the ticket list.
+    @Value("${lottery.ticket.list.default-page-size:1000}")
+    private int defaultPageSize;
+
+    @Value("${lottery.ticket.list.max-page-size:10000}")
+    private int maxPageSize;
+
+    // Create private fields to store whether the ticket slots of new lotteries are created up front.
+    @Value("${lottery.ticket.issuance-mode:lock}")
+    private String issuanceMode;
+
+    @Value("${lottery.ticket.slots.pre-mint:false}")
+    private boolean preMintSlots;
+
+    // Create a private field to store whether the tickets table is partitioned by lottery.
+    @Value("${lottery.ticket.partitioning.enabled:false}")
+    private boolean partitioned;
+
+    // Create a constructor to initialize the repositories, the Redis state, the transaction template, the metrics and the proxy.
+    public LotteryService(ILotteryRepository lotteryRepository,
+                          ITicketRepository ticketRepository,
+                          ParticipantBloomFilter participantBloomFilter,
+                          RedisTicketInventory ticketInventory,
+                          IssuanceStatistics issuanceStatistics,
+                          SoldOutRegistry soldOutRegistry,
+                          TransactionTemplate transactionTemplate,
+                          MeterRegistry meterRegistry,
+                          @Lazy ILotteryService self) {
         this.lotteryRepository = lotteryRepository;
+        this.ticketRepository = ticketRepository;
+        this.participantBloomFilter = participantBloomFilter;
+        this.ticketInventory = ticketInventory;
+        this.issuanceStatistics = issuanceStatistics;
+        this.soldOutRegistry = soldOutRegistry;
+        this.transactionTemplate = transactionTemplate;
+        this.decrementMisses = Counter.builder("lottery.available_tickets.decrement.misses")
+                .description("Decrements of the available tickets that found the lottery missing or with too few tickets left")
+                .register(meterRegistry);
+        this.self = self;
     }
 
-    // Create a method to create a lottery.
+    // Create a method to create a lottery, its ticket slots are committed after it one chunk at a time before it is published.
     @Override
     public LotteryResponse createLottery(CreateLotteryRequest request) {
 
@@ -45,8 +124,39 @@ public class LotteryService implements ILotteryService {
         // Set the total available tickets.
         lottery.setTotalAvailableTickets(request.totalLotteryTicketAllotted());
 
-        // Save the lottery in the repository.
-        Lottery savedLottery = lotteryRepository.save(lottery);
+        // Keep a lottery of the slots mode unpublished until all its ticket slots exist.
+        boolean slots = "slots".equals(issuanceMode);
+        lottery.setSlotsReady(!slots);
+
+        // Save the lottery in the repository and create the partition of its tickets in one transaction.
+        Lottery savedLottery = transactionTemplate.execute(status -> {
+            Lottery created = lotteryRepository.saveAndFlush(lottery);
+            if (partitioned) {
+                ticketRepository.createPartition(created.getId());
+            }
+            return created;
+        });
+
+        // Create the unassigned ticket slots, which the slots issuance mode claims, each chunk in a transaction of
+        // its own, then publish the lottery. A lottery left with fewer slots by a failure is deleted unpublished.
+        if (slots) {
+            try {
+                ticketRepository.insertSlots(savedLottery.getId(), savedLottery.getTotalAllottedTickets());
+                lotteryRepository.publishSlots(savedLottery.getId());
+            } catch (RuntimeException e) {
+                log.error("Failed to create the ticket slots of lottery '{}'", savedLottery.getId(), e);
+                try {
+                    removeLottery(savedLottery.getId());
+                } catch (RuntimeException deleteFailure) {
+                    e.addSuppressed(deleteFailure);
+                }
+                throw e;
+            }
+            log.info("Created {} ticket slots of lottery '{}'", savedLottery.getTotalAllottedTickets(), savedLottery.getId());
+        }
+
+        // Create the Bloom filter of the users holding a ticket, sized from the allotted tickets.
+        participantBloomFilter.create(savedLottery.getId(), savedLottery.getTotalAllottedTickets());
 
         // Create a new LotteryResponse object.
         return new LotteryResponse(
@@ -57,62 +167,225 @@ public class LotteryService implements ILotteryService {
         );
     }
 
+    /**
+     * Checks on startup that the tickets table is partitioned if partitioning is enabled, lotteries could
+     * not be created otherwise.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkPartitioning() {
+        if (partitioned && !ticketRepository.isPartitioned()) {
+            throw new IllegalStateException("lottery.ticket.partitioning.enabled requires a partitioned tickets table, "
+                    + "run db/partition-tickets.sql first");
+        }
+    }
+
+    /**
+     * Checks on startup that ticket slots are only created for the slots mode. The other modes number the
+     * tickets they issue from 1 as well, so they would issue the numbers of the free slots a second time.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkSlots() {
+        if (preMintSlots && !"slots".equals(issuanceMode)) {
+            throw new IllegalStateException("lottery.ticket.slots.pre-mint requires lottery.ticket.issuance-mode=slots, "
+                    + "the other modes would issue the ticket numbers of the slots again");
+        }
+    }
+
+    /**
+     * Deletes a lottery and its tickets. With partitioning, the tickets go with the partition of the
+     * lottery, detached and dropped before the lottery row is deleted, outside its transaction; lotteries
+     * without a partition of their own have their tickets deleted row by row.
+     *
+     * @param id The lottery id.
+     */
+    @Override
+    @CacheEvict(value = "lotteries", key = "#id")
+    public void deleteLottery(UUID id) {
+        // Get the lottery by ID, failing if it does not exist.
+        findCurrentById(id);
+        removeLottery(id);
+    }
+
+    // Create a method to delete a lottery, published or not, with its tickets and its state in Redis.
+    private void removeLottery(UUID id) {
+        // Drop the partition of the lottery, a delete retried after a failure finds it dropped or detached.
+        boolean partitionDropped = partitioned && ticketRepository.dropPartition(id);
+
+        // Delete the tickets left and the lottery in one transaction.
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!partitionDropped) {
+                int deleted = ticketRepository.deleteByLotteryId(id);
+                log.info("Deleted {} tickets of lottery '{}'", deleted, id);
+            }
+            lotteryRepository.deleteById(id);
+        });
+
+        // Delete the state of the lottery in Redis through the components owning it: the Bloom filter, the ticket
+        // inventory with its shards and leases, the statistics and the sold-out flag. The lottery is gone already,
+        // so keys a failure leaves behind are never read again.
+        try {
+            participantBloomFilter.delete(id);
+            ticketInventory.delete(id);
+            issuanceStatistics.delete(id);
+            soldOutRegistry.deleted(id);
+        } catch (RuntimeException e) {
+            log.warn("Failed to delete the Redis state of lottery '{}'", id, e);
+        }
+        log.info("Lottery '{}' deleted", id);
+    }
+
     // Create a method to find a lottery by ID.
     @Override
     @Cacheable(value = "lotteries", key = "#id")
-    public Lottery findById(UUID id) {
+    public LotterySnapshot findById(UUID id) {
+        log.info("Lottery by id '{}'", id);
+        return findCurrentById(id);
+    }
 
-        // Get the lottery from the repository by ID.
-        Optional<Lottery> lotteryOptional = lotteryRepository.findById(id);
+    /**
+     * Reads a lottery from the database, bypassing the cache, e.g. to read the available tickets
+     * under the lottery lock.
+     *
+     * @param id The lottery id.
+     * @return The lottery snapshot.
+     */
+    @Override
+    public LotterySnapshot findCurrentById(UUID id) {
+        // Get the lottery columns from the repository by ID, without loading the entity.
+        Optional<LotterySnapshot> lotteryOptional = lotteryRepository.findSnapshotById(id);
         // Throw an exception if the lottery does not exist.
-        log.info("Lottery by id '{}'", id);
-        // Create a new LotteryResponse object.
         return lotteryOptional.orElseThrow(() -> new NotFoundException(
                 String.format("Lottery with lotteryId %s does not exist", id)
         ));
     }
 
+    /**
+     * Gets a reference to a lottery without loading it, e.g. to set the lottery of a ticket.
+     *
+     * @param id The lottery id.
+     * @return The lottery reference.
+     */
     @Override
-    @CachePut(value = "lotteries",key = "#lottery.id")
-    @CacheEvict(value="lotteries", key = "#lottery.id")
-    public void save(Lottery lottery) {
-        lotteryRepository.save(lottery);
+    public Lottery getReference(UUID id) {
+        return lotteryRepository.getReferenceById(id);
     }
 
+    /**
+     * Returns which of the given lotteries exist, e.g. to drop tickets of deleted lotteries before they
+     * are persisted.
+     *
+     * @param ids The lottery ids.
+     * @return The ids of the existing lotteries.
+     */
+    @Override
+    public Set<UUID> findExistingIds(Collection<UUID> ids) {
+        return new HashSet<>(lotteryRepository.findExistingIds(ids));
+    }
+
+    /**
+     * Atomically decrements the available tickets of a lottery in the database. Nothing is decremented if
+     * the lottery is missing or has fewer tickets left, the row then disagrees with the tickets issued and
+     * the caller has to roll back or compensate; every such miss is counted.
+     *
+     * @param id    The lottery id.
+     * @param count The number of issued tickets.
+     * @return Whether the available tickets were decremented.
+     */
+    @Override
+    @Transactional
+    @CacheEvict(value = "lotteries", key = "#id")
+    public boolean decrementAvailableTickets(UUID id, long count) {
+        if (lotteryRepository.decrementAvailableTickets(id, count) == 0) {
+            decrementMisses.increment();
+            log.warn("Available tickets of lottery '{}' could not be decremented by {}", id, count);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Subtracts the ticket slots claimed since the last reconciliation from the available tickets of a lottery,
+     * keeping them at 0 or more. Every node subtracts the claims it committed, so the row follows the free slots
+     * without counting them.
+     *
+     * @param id    The lottery id.
+     * @param count The number of slots claimed.
+     */
+    @Override
+    @Transactional
+    @CacheEvict(value = "lotteries", key = "#id")
+    public void subtractClaimedSlots(UUID id, long count) {
+        lotteryRepository.subtractAvailableTickets(id, count);
+    }
 
     /**
-     * Get a list of all tickets by lottery lotteryId.
+     * Sets the available tickets of a lottery to its free slots, counted in the tickets table. Reads every
+     * slot of the lottery, e.g. once a claim found no free slot left.
      *
-     * @param uuid The lottery lotteryId.
-     * @return A list of tickets.
+     * @param id The lottery id.
      */
     @Override
-    public List<TicketResponse> listTickets(UUID uuid) {
-        // Get a list of all ticket by lottery lotteryId.
-        List<TicketResponse> ticketResponses = findById(uuid)
-                .getTickets()
-                .stream()
-                .map(ticketResponse -> {
-                    // Create a new TicketResponse object.
-                    return new TicketResponse(
-                            ticketResponse.getId(),
-                            ticketResponse.getUserId(),
-                            ticketResponse.getLotteryNumber(),
-                            new LotteryResponse(
-                                    ticketResponse.getLottery().getName(),
-                                    ticketResponse.getLottery().getId(),
-                                    ticketResponse.getLottery().getTotalAllottedTickets(),
-                                    ticketResponse.getLottery().getTotalAvailableTickets()
-                            )
-                    );
-                })
-                .collect(Collectors.toList());
-
-        // Log the list of ticket response.
-        log.info("tickets: {}", ticketResponses);
-
-        // Return the ticket.
-        return ticketResponses;
+    @Transactional
+    @CacheEvict(value = "lotteries", key = "#id")
+    public void reconcileWithFreeSlots(UUID id) {
+        lotteryRepository.reconcileAvailableTicketsWithFreeSlots(id);
+    }
+
+
+    /**
+     * Get a page of the tickets of a lottery, ordered by ticket id.
+     *
+     * @param uuid  The lottery lotteryId.
+     * @param after The ticket id to continue after, or {@code null} for the first page.
+     * @param limit The page size, or {@code null} for the default page size.
+     * @return A page of tickets.
+     */
+    @Override
+    public TicketPage listTickets(UUID uuid, UUID after, Integer limit) {
+        // Get the lottery by ID through the cache, it is the same for every ticket.
+        LotteryResponse lotteryResponse = self.findById(uuid).toResponse();
+
+        // Clamp the page size.
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+
+        // Seek to the page by ticket id instead of an offset, so every page costs the same.
+        Pageable pageable = PageRequest.ofSize(pageSize);
+        List<TicketRow> rows = after == null
+                ? ticketRepository.findFirstPage(uuid, pageable)
+                : ticketRepository.findPageAfter(uuid, after, pageable);
+
+        // Create the ticket responses.
+        List<TicketResponse> ticketResponses = rows.stream()
+                .map(row -> toTicketResponse(row, lotteryResponse))
+                .toList();
+        log.info("Listed {} tickets of lottery '{}' after '{}'", ticketResponses.size(), uuid, after);
+
+        // Continue after the last ticket if the page is full.
+        UUID nextCursor = rows.size() < pageSize ? null : rows.get(rows.size() - 1).id();
+        return new TicketPage(ticketResponses, nextCursor);
+    }
+
+    /**
+     * Passes every ticket of a lottery to the consumer, reading them from a database cursor so only
+     * one fetch of tickets is held in memory.
+     *
+     * @param uuid     The lottery lotteryId.
+     * @param consumer The ticket consumer.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachTicket(UUID uuid, Consumer<TicketResponse> consumer) {
+        // Get the lottery by ID through the cache, it is the same for every ticket.
+        LotteryResponse lotteryResponse = self.findById(uuid).toResponse();
+
+        // Stream the tickets.
+        try (Stream<TicketRow> rows = ticketRepository.streamByLotteryId(uuid)) {
+            rows.forEach(row -> consumer.accept(toTicketResponse(row, lotteryResponse)));
+        }
+    }
+
+    private static TicketResponse toTicketResponse(TicketRow row, LotteryResponse lotteryResponse) {
+        return new TicketResponse(row.id(), row.userId(), row.lotteryNumber(), lotteryResponse);
     }
 
 }
@@ -1,16 +1,61 @@
 package org.project.lottery.v1.service.ticket;
 
+import org.project.lottery.exceptions.NotFoundException;
+import org.project.lottery.exceptions.OutOfTicketsException;
+import org.project.lottery.exceptions.UserAlreadyIssuedTicketException;
 import org.project.lottery.v1.dto.IssueTicketRequest;
+import org.project.lottery.v1.dto.IssueTicketResult;
+import org.project.lottery.v1.dto.IssueTicketStatus;
 import org.project.lottery.v1.dto.TicketResponse;
 import org.project.lottery.v1.entity.Ticket;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 
 public interface ITicketService {
     TicketResponse issueTicket(IssueTicketRequest request);
     Optional<Ticket> findById(UUID uuid);
 
+    /**
+     * Issues a ticket to every user of the batch, returning one result per request in request order.
+     * Issuance modes without a set-based implementation issue the tickets one by one.
+     *
+     * @param requests The issue ticket requests.
+     * @return The result of every request.
+     */
+    default List<IssueTicketResult> issueTickets(List<IssueTicketRequest> requests) {
+        return issueOneByOne(requests, this::issueTicket);
+    }
 
+    /**
+     * Issues the tickets of a batch one by one with the given issuer, mapping the issuance failures
+     * to results, unexpected ones to {@link IssueTicketStatus#FAILED}.
+     *
+     * @param requests The issue ticket requests.
+     * @param issuer   Issues a single ticket.
+     * @return The result of every request, in request order.
+     */
+    static List<IssueTicketResult> issueOneByOne(List<IssueTicketRequest> requests,
+                                                 Function<IssueTicketRequest, TicketResponse> issuer) {
+        List<IssueTicketResult> results = new ArrayList<>(requests.size());
+        for (IssueTicketRequest request : requests) {
+            try {
+                TicketResponse ticket = issuer.apply(request);
+                results.add(new IssueTicketResult(request.userId(), request.lotteryId(), IssueTicketStatus.ISSUED, ticket));
+            } catch (UserAlreadyIssuedTicketException e) {
+                results.add(IssueTicketResult.of(request, IssueTicketStatus.ALREADY_ISSUED));
+            } catch (OutOfTicketsException e) {
+                results.add(IssueTicketResult.of(request, IssueTicketStatus.OUT_OF_TICKETS));
+            } catch (NotFoundException e) {
+                results.add(IssueTicketResult.of(request, IssueTicketStatus.NOT_FOUND));
+            } catch (RuntimeException e) {
+                // The tickets issued before must still be reported, so the failure stays with its request.
+                results.add(IssueTicketResult.of(request, IssueTicketStatus.FAILED));
+            }
+        }
+        return results;
+    }
 }
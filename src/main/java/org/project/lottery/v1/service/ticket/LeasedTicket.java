@@ -0,0 +1,10 @@
+package org.project.lottery.v1.service.ticket;
+
+/**
+ * A ticket number taken from a block leased by this node, before it is claimed for a user.
+ *
+ * @param block  The leased block the number was taken from.
+ * @param number The ticket number.
+ */
+public record LeasedTicket(TicketBlock block, long number) {
+}
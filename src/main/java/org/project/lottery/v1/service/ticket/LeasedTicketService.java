@@ -0,0 +1,143 @@
+package org.project.lottery.v1.service.ticket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.project.lottery.exceptions.UserAlreadyIssuedTicketException;
+import org.project.lottery.v1.dto.IssueTicketRequest;
+import org.project.lottery.v1.dto.LotteryResponse;
+import org.project.lottery.v1.dto.LotterySnapshot;
+import org.project.lottery.v1.dto.TicketResponse;
+import org.project.lottery.v1.entity.Ticket;
+import org.project.lottery.v1.repository.ITicketRepository;
+import org.project.lottery.v1.service.lottery.ILotteryService;
+import org.project.lottery.v1.service.ticket.writer.ITicketWriter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Issues tickets from number blocks leased by this node, so replicas do not serialize on a global lock.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "lottery.ticket.issuance-mode", havingValue = "lease")
+public class LeasedTicketService implements ITicketService {
+
+    /**
+     * The ticket repository.
+     */
+    private final ITicketRepository ticketRepository;
+
+    /**
+     * The lottery service.
+     */
+    private final ILotteryService lotteryService;
+
+    /**
+     * The Redis ticket inventory.
+     */
+    private final RedisTicketInventory ticketInventory;
+
+    /**
+     * The ticket block leaser.
+     */
+    private final TicketBlockLeaser blockLeaser;
+
+    /**
+     * The ticket writer.
+     */
+    private final ITicketWriter ticketWriter;
+
+    /**
+     * Constructs a new LeasedTicketService instance.
+     *
+     * @param ticketRepository    The ticket repository.
+     * @param lotteryService      The lottery service.
+     * @param ticketInventory     The Redis ticket inventory.
+     * @param blockLeaser         The ticket block leaser.
+     * @param ticketWriter        The ticket writer.
+     */
+    public LeasedTicketService(final ITicketRepository ticketRepository,
+                               final ILotteryService lotteryService,
+                               final RedisTicketInventory ticketInventory,
+                               final TicketBlockLeaser blockLeaser,
+                               final ITicketWriter ticketWriter) {
+        this.ticketRepository = ticketRepository;
+        this.lotteryService = lotteryService;
+        this.ticketInventory = ticketInventory;
+        this.blockLeaser = blockLeaser;
+        this.ticketWriter = ticketWriter;
+    }
+
+    /**
+     * Issues a ticket for the specified lottery.
+     *
+     * @param request The issue ticket request.
+     * @return The ticket response.
+     */
+    @Override
+    public TicketResponse issueTicket(IssueTicketRequest request) {
+        // Get the lottery by ID.
+        LotterySnapshot lottery = lotteryService.findById(request.lotteryId());
+
+        // Take a ticket number from the block leased by this node and record the user as participant, giving
+        // the number back if the user already holds a ticket. A number whose lease was ended by another node
+        // went back to the pool with the lease, it is dropped and another one is taken.
+        LeasedTicket leasedTicket;
+        long remainingTickets;
+        do {
+            leasedTicket = blockLeaser.take(lottery);
+            try {
+                remainingTickets = ticketInventory.claim(lottery, request.userId(), leasedTicket);
+            } catch (UserAlreadyIssuedTicketException e) {
+                blockLeaser.giveBack(leasedTicket);
+                throw e;
+            }
+            if (remainingTickets == RedisTicketInventory.LEASE_LOST) {
+                blockLeaser.leaseLost(leasedTicket);
+            }
+        } while (remainingTickets == RedisTicketInventory.LEASE_LOST);
+
+        // Create a new ticket.
+        Ticket ticket = new Ticket(request.userId(), leasedTicket.number(),
+                lotteryService.getReference(lottery.id()));
+
+        // Persist the ticket, reverting the claim if that fails.
+        try {
+            ticketWriter.write(ticket);
+        } catch (RuntimeException e) {
+            if (ticketInventory.unclaim(lottery.id(), request.userId(), leasedTicket)) {
+                blockLeaser.giveBack(leasedTicket);
+            }
+            throw e;
+        }
+        log.info("Ticket issued successfully: ticket = {}", ticket);
+
+        // Return the ticket response.
+        return new TicketResponse(ticket.getId(), ticket.getUserId(),
+                ticket.getLotteryNumber(),
+                new LotteryResponse(
+                        lottery.name(),
+                        lottery.id(),
+                        lottery.totalAllottedTickets(),
+                        remainingTickets
+                )
+        );
+    }
+
+    /**
+     * Get the ticket by ID from the repository.
+     *
+     * @param uuid The ticket ID.
+     * @return The ticket.
+     */
+    @Override
+    @Cacheable(value = "tickets", key = "#uuid")
+    public Optional<Ticket> findById(UUID uuid) {
+        // Get the ticket by ID from the repository.
+        log.info("Ticket by id '{}'", uuid);
+        return ticketRepository.findById(uuid);
+    }
+}
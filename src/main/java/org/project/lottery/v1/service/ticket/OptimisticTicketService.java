@@ -0,0 +1,148 @@
+package org.project.lottery.v1.service.ticket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.project.lottery.exceptions.NotFoundException;
+import org.project.lottery.exceptions.OutOfTicketsException;
+import org.project.lottery.exceptions.UserAlreadyIssuedTicketException;
+import org.project.lottery.v1.dto.IssueTicketRequest;
+import org.project.lottery.v1.dto.IssueTicketResult;
+import org.project.lottery.v1.dto.LotteryResponse;
+import org.project.lottery.v1.dto.TicketResponse;
+import org.project.lottery.v1.entity.Ticket;
+import org.project.lottery.v1.repository.ILotteryRepository;
+import org.project.lottery.v1.repository.IssuedLotteryRow;
+import org.project.lottery.v1.repository.ITicketRepository;
+import org.project.lottery.v1.service.lottery.ILotteryService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Issues tickets without Redis. A conditional decrement of the lottery row decides availability and
+ * the unique constraint on {@code tickets(lottery_id, user_uuid)} rejects duplicate users, so no
+ * distributed lock and no duplicate user lookup are needed. The lottery is read from the decrement itself,
+ * so the issuance path touches neither Redis nor the lottery cache; the cached lottery of
+ * {@code GET /api/v1/lottery/{id}} lags behind by up to the cache expiry. Requires Postgres ({@code RETURNING}).
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "lottery.ticket.issuance-mode", havingValue = "optimistic")
+public class OptimisticTicketService implements ITicketService {
+
+    /**
+     * The ticket repository.
+     */
+    private final ITicketRepository ticketRepository;
+
+    /**
+     * The lottery repository.
+     */
+    private final ILotteryRepository lotteryRepository;
+
+    /**
+     * The lottery service.
+     */
+    private final ILotteryService lotteryService;
+
+    /**
+     * This service behind its transactional proxy.
+     */
+    private final ITicketService self;
+
+    /**
+     * Constructs a new OptimisticTicketService instance.
+     *
+     * @param ticketRepository  The ticket repository.
+     * @param lotteryRepository The lottery repository.
+     * @param lotteryService    The lottery service.
+     * @param self              This service behind its transactional proxy.
+     */
+    public OptimisticTicketService(final ITicketRepository ticketRepository,
+                                   final ILotteryRepository lotteryRepository,
+                                   final ILotteryService lotteryService,
+                                   @Lazy final ITicketService self) {
+        this.ticketRepository = ticketRepository;
+        this.lotteryRepository = lotteryRepository;
+        this.lotteryService = lotteryService;
+        this.self = self;
+    }
+
+    /**
+     * Issues a ticket for the specified lottery.
+     *
+     * @param request The issue ticket request.
+     * @return The ticket response.
+     */
+    @Override
+    @Transactional
+    public TicketResponse issueTicket(IssueTicketRequest request) {
+        // Decrement the available tickets if any are left, the ticket number is the count before the decrement.
+        // The lottery comes back from the decrement, neither Redis nor the lottery cache is involved.
+        IssuedLotteryRow lottery = lotteryRepository.decrementAvailableTicketReturningLottery(request.lotteryId())
+                .orElseThrow(() -> {
+                    // Tell a missing lottery from a sold-out one, only on the failure path.
+                    if (!lotteryRepository.existsById(request.lotteryId())) {
+                        return new NotFoundException(String.format("Lottery with lotteryId %s does not exist", request.lotteryId()));
+                    }
+                    log.info("Ticket issuance failed: out of tickets");
+                    return new OutOfTicketsException("Out of tickets");
+                });
+
+        // Create a new ticket.
+        Ticket ticket = new Ticket(request.userId(), lottery.getTotalAvailableTickets() + 1,
+                lotteryService.getReference(lottery.getId()));
+
+        // Save the ticket, the unique constraint rolls the decrement back if the user already holds one.
+        try {
+            ticketRepository.saveAndFlush(ticket);
+        } catch (DataIntegrityViolationException e) {
+            log.info("Ticket issuance failed: user already issued a ticket");
+            throw new UserAlreadyIssuedTicketException("User already issued a ticket");
+        }
+        log.info("Ticket issued successfully: ticket = {}", ticket);
+
+        // Return the ticket response.
+        return new TicketResponse(ticket.getId(), ticket.getUserId(),
+                ticket.getLotteryNumber(),
+                new LotteryResponse(
+                        lottery.getName(),
+                        lottery.getId(),
+                        lottery.getTotalAllottedTickets(),
+                        lottery.getTotalAvailableTickets()
+                )
+        );
+    }
+
+    /**
+     * Issues the tickets of a batch one by one, each in its own transaction so a rejected ticket only
+     * rolls back its own decrement.
+     *
+     * @param requests The issue ticket requests.
+     * @return The result of every request, in request order.
+     */
+    @Override
+    public List<IssueTicketResult> issueTickets(List<IssueTicketRequest> requests) {
+        return ITicketService.issueOneByOne(requests, self::issueTicket);
+    }
+
+    /**
+     * Get the ticket by ID from the repository.
+     *
+     * @param uuid The ticket ID.
+     * @return The ticket.
+     */
+    @Override
+    @Cacheable(value = "tickets", key = "#uuid")
+    public Optional<Ticket> findById(UUID uuid) {
+        // Get the ticket by ID from the repository.
+        log.info("Ticket by id '{}'", uuid);
+        return ticketRepository.findById(uuid);
+    }
+}
@@ -0,0 +1,551 @@
+package org.project.lottery.v1.service.ticket;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.project.lottery.exceptions.OutOfTicketsException;
+import org.project.lottery.exceptions.UserAlreadyIssuedTicketException;
+import org.project.lottery.v1.dto.LotterySnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@Slf4j
+public class RedisTicketInventory {
+    /**
+     * The key of the available tickets counter of a lottery.
+     */
+    public static final String LOTTERY_AVAILABLE_TICKETS_KEY = "lottery_%s_available_tickets";
+
+    /**
+     * The key of the set of users holding a ticket of a lottery.
+     */
+    public static final String LOTTERY_PARTICIPANTS_KEY = "lottery_%s_participants";
+
+    /**
+     * The key of the list of ticket numbers given back to the pool of a lottery.
+     */
+    public static final String LOTTERY_RETURNED_TICKETS_KEY = "lottery_%s_returned_tickets";
+
+    /**
+     * The key of the list of ticket blocks given back to the pool of a lottery.
+     */
+    public static final String LOTTERY_RETURNED_TICKET_BLOCKS_KEY = "lottery_%s_returned_ticket_blocks";
+
+    /**
+     * The key of the counter of tickets not issued yet, maintained when ticket blocks are leased.
+     */
+    public static final String LOTTERY_REMAINING_TICKETS_KEY = "lottery_%s_remaining_tickets";
+
+    /**
+     * The key of the number of shards the inventory of a lottery is split into, recorded by the first node
+     * using it and followed by every node.
+     */
+    public static final String LOTTERY_SHARDS_KEY = "lottery_%s_shards";
+
+    /**
+     * The key of the sorted set of the ticket block leases of all lotteries, scored by the time after which
+     * any node may reclaim them.
+     */
+    public static final String TICKET_LEASES_KEY = "lottery_ticket_leases";
+
+    /**
+     * The key of the set of the ticket numbers claimed from a lease, by lottery and lowest number of the block.
+     */
+    public static final String LOTTERY_LEASE_CLAIMED_KEY = "lottery_%s_lease_%d_claimed";
+
+    /**
+     * Returned by {@link #claim(LotterySnapshot, UUID, LeasedTicket)} when the lease of the ticket was ended.
+     */
+    public static final long LEASE_LOST = -3L;
+
+    /**
+     * The number of lotteries whose shard count is remembered.
+     */
+    private static final int MAX_SHARD_COUNTS = 10_000;
+
+    /**
+     * The time after which the shard count of a lottery not used is forgotten.
+     */
+    private static final Duration SHARD_COUNT_EXPIRY = Duration.ofMinutes(10);
+
+    private static final long NOT_SEEDED = -2L;
+    private static final long ALREADY_ISSUED = -1L;
+    private static final long OUT_OF_TICKETS = 0L;
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> RESERVE_TICKET_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/reserve_ticket.lua"), List.class);
+
+    private static final RedisScript<Long> RELEASE_TICKET_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/release_ticket.lua"), Long.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> LEASE_TICKET_BLOCK_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/lease_ticket_block.lua"), List.class);
+
+    private static final RedisScript<Long> CLAIM_LEASED_TICKET_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/claim_leased_ticket.lua"), Long.class);
+
+    private static final RedisScript<Long> UNCLAIM_LEASED_TICKET_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/unclaim_leased_ticket.lua"), Long.class);
+
+    private static final RedisScript<Long> RELEASE_TICKET_LEASE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/release_ticket_lease.lua"), Long.class);
+
+    /**
+     * The Redis template.
+     */
+    private final StringRedisTemplate redisTemplate;
+
+    /**
+     * The reactive Redis template.
+     */
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+
+    /**
+     * The number of shards new lotteries are split into.
+     */
+    private final int shards;
+
+    /**
+     * The recorded shard count of the lotteries used lately, it never changes once recorded.
+     */
+    private final Cache<UUID, Integer> shardCounts = Caffeine.newBuilder()
+            .maximumSize(MAX_SHARD_COUNTS)
+            .expireAfterAccess(SHARD_COUNT_EXPIRY)
+            .build();
+
+    /**
+     * The sharded inventories reservations are delegated to, by shard count.
+     */
+    private final Map<Integer, ShardedTicketInventory> shardedInventories = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new RedisTicketInventory instance.
+     *
+     * @param redisTemplate         The Redis template.
+     * @param reactiveRedisTemplate The reactive Redis template.
+     * @param shards                The number of shards the reservations of new lotteries are split into.
+     */
+    public RedisTicketInventory(final StringRedisTemplate redisTemplate,
+                                final ReactiveStringRedisTemplate reactiveRedisTemplate,
+                                @Value("${lottery.ticket.shards:1}") final int shards) {
+        this.redisTemplate = redisTemplate;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.shards = shards;
+    }
+
+    /**
+     * Reserves a ticket of the given lottery for the given user in a single script execution.
+     * The counter is seeded from the lottery on first use.
+     *
+     * @param lottery The lottery.
+     * @param userId  The user id.
+     * @return The reservation.
+     */
+    public TicketReservation reserve(final LotterySnapshot lottery, final UUID userId) {
+        ShardedTicketInventory shardedInventory = shardedInventory(shardCount(lottery.id()));
+        if (shardedInventory != null) {
+            return shardedInventory.reserve(lottery, userId);
+        }
+
+        List<String> keys = List.of(
+                String.format(LOTTERY_AVAILABLE_TICKETS_KEY, lottery.id()),
+                String.format(LOTTERY_PARTICIPANTS_KEY, lottery.id()),
+                String.format(LOTTERY_RETURNED_TICKETS_KEY, lottery.id())
+        );
+
+        // Run the reservation script, seeding the counter once if it does not exist yet.
+        List<?> result = redisTemplate.execute(RESERVE_TICKET_SCRIPT, keys, userId.toString());
+        if (status(result) == NOT_SEEDED) {
+            seed(lottery);
+            result = redisTemplate.execute(RESERVE_TICKET_SCRIPT, keys, userId.toString());
+        }
+
+        return toReservation(result);
+    }
+
+    /**
+     * Reserves a ticket like {@link #reserve(LotterySnapshot, UUID)} without blocking the calling thread.
+     *
+     * @param lottery The lottery.
+     * @param userId  The user id.
+     * @return The reservation, or an error if the user already holds a ticket or none are left.
+     */
+    public Mono<TicketReservation> reserveReactive(final LotterySnapshot lottery, final UUID userId) {
+        return shardCountReactive(lottery.id()).flatMap(shardCount -> {
+            ShardedTicketInventory shardedInventory = shardedInventory(shardCount);
+            return shardedInventory != null
+                    ? shardedInventory.reserveReactive(lottery, userId)
+                    : reserveUnshardedReactive(lottery, userId);
+        });
+    }
+
+    private Mono<TicketReservation> reserveUnshardedReactive(final LotterySnapshot lottery, final UUID userId) {
+        List<String> keys = List.of(
+                String.format(LOTTERY_AVAILABLE_TICKETS_KEY, lottery.id()),
+                String.format(LOTTERY_PARTICIPANTS_KEY, lottery.id()),
+                String.format(LOTTERY_RETURNED_TICKETS_KEY, lottery.id())
+        );
+
+        // Run the reservation script, seeding the counter once if it does not exist yet.
+        return executeReactive(RESERVE_TICKET_SCRIPT, keys, userId.toString())
+                .flatMap(result -> status(result) != NOT_SEEDED
+                        ? Mono.just(result)
+                        : reactiveRedisTemplate.opsForValue()
+                        .setIfAbsent(keys.get(0), String.valueOf(lottery.totalAvailableTickets()))
+                        .then(executeReactive(RESERVE_TICKET_SCRIPT, keys, userId.toString())))
+                .map(this::toReservation);
+    }
+
+    /**
+     * Gives a reserved ticket back to the pool without blocking the calling thread.
+     *
+     * @param lotteryId    The lottery id.
+     * @param userId       The user id.
+     * @param ticketNumber The reserved ticket number.
+     * @return Completes once the ticket was released.
+     */
+    public Mono<Void> releaseReactive(final UUID lotteryId, final UUID userId, final long ticketNumber) {
+        return shardCountReactive(lotteryId).flatMap(shardCount -> {
+            ShardedTicketInventory shardedInventory = shardedInventory(shardCount);
+            if (shardedInventory != null) {
+                return shardedInventory.releaseReactive(lotteryId, userId, ticketNumber);
+            }
+
+            return reactiveRedisTemplate.execute(
+                    RELEASE_TICKET_SCRIPT,
+                    List.of(
+                            String.format(LOTTERY_PARTICIPANTS_KEY, lotteryId),
+                            String.format(LOTTERY_RETURNED_TICKETS_KEY, lotteryId)
+                    ),
+                    List.of(userId.toString(), String.valueOf(ticketNumber))
+            ).then();
+        });
+    }
+
+    /**
+     * Gives a reserved ticket back to the pool.
+     *
+     * @param lotteryId    The lottery id.
+     * @param userId       The user id.
+     * @param ticketNumber The reserved ticket number.
+     */
+    public void release(final UUID lotteryId, final UUID userId, final long ticketNumber) {
+        ShardedTicketInventory shardedInventory = shardedInventory(shardCount(lotteryId));
+        if (shardedInventory != null) {
+            shardedInventory.release(lotteryId, userId, ticketNumber);
+            log.info("Released ticket {} of lottery '{}'", ticketNumber, lotteryId);
+            return;
+        }
+
+        redisTemplate.execute(
+                RELEASE_TICKET_SCRIPT,
+                List.of(
+                        String.format(LOTTERY_PARTICIPANTS_KEY, lotteryId),
+                        String.format(LOTTERY_RETURNED_TICKETS_KEY, lotteryId)
+                ),
+                userId.toString(),
+                String.valueOf(ticketNumber)
+        );
+        log.info("Released ticket {} of lottery '{}'", ticketNumber, lotteryId);
+    }
+
+    /**
+     * Leases a contiguous block of ticket numbers from the pool of the given lottery. The lease is recorded
+     * in Redis, so any node can reclaim it once {@code reclaimAfterMillis} passed, e.g. when the node holding
+     * it crashed.
+     *
+     * @param lottery            The lottery.
+     * @param maxBlockSize       The maximum number of tickets in the block.
+     * @param minBlocks          The minimum number of blocks the remaining pool is split into.
+     * @param reclaimAfterMillis The time after which any node may reclaim the lease.
+     * @return The leased block, or {@code null} if the pool is empty.
+     */
+    public TicketBlock leaseBlock(final LotterySnapshot lottery, final long maxBlockSize, final long minBlocks,
+                                  final long reclaimAfterMillis) {
+        List<String> keys = List.of(
+                String.format(LOTTERY_AVAILABLE_TICKETS_KEY, lottery.id()),
+                String.format(LOTTERY_RETURNED_TICKET_BLOCKS_KEY, lottery.id()),
+                TICKET_LEASES_KEY
+        );
+        String[] args = {String.valueOf(maxBlockSize), String.valueOf(minBlocks), lottery.id().toString(),
+                String.valueOf(reclaimAfterMillis)};
+
+        // Run the lease script, seeding the counter once if it does not exist yet.
+        List<?> result = redisTemplate.execute(LEASE_TICKET_BLOCK_SCRIPT, keys, (Object[]) args);
+        if (status(result) == NOT_SEEDED) {
+            seed(lottery);
+            result = redisTemplate.execute(LEASE_TICKET_BLOCK_SCRIPT, keys, (Object[]) args);
+        }
+
+        long low = status(result);
+        if (low <= 0) {
+            return null;
+        }
+        return new TicketBlock(lottery.id(), low, ((Number) result.get(1)).longValue());
+    }
+
+    /**
+     * Ends a lease and gives the numbers of its block that were not claimed back to the pool of the lottery.
+     *
+     * @param leaseId     The lease id, as {@code lottery id:low:high}.
+     * @param expiredOnly Whether the lease is only ended once any node may reclaim it.
+     * @return The number of tickets given back, or {@code -1} if the lease was already ended or has not
+     * expired yet.
+     */
+    public long releaseLease(final String leaseId, final boolean expiredOnly) {
+        int highSeparator = leaseId.lastIndexOf(':');
+        int lowSeparator = leaseId.lastIndexOf(':', highSeparator - 1);
+        UUID lotteryId = UUID.fromString(leaseId.substring(0, lowSeparator));
+        long low = Long.parseLong(leaseId.substring(lowSeparator + 1, highSeparator));
+        long high = Long.parseLong(leaseId.substring(highSeparator + 1));
+
+        Long returned = redisTemplate.execute(
+                RELEASE_TICKET_LEASE_SCRIPT,
+                List.of(
+                        TICKET_LEASES_KEY,
+                        String.format(LOTTERY_LEASE_CLAIMED_KEY, lotteryId, low),
+                        String.format(LOTTERY_RETURNED_TICKET_BLOCKS_KEY, lotteryId)
+                ),
+                leaseId,
+                String.valueOf(low),
+                String.valueOf(high),
+                expiredOnly ? "1" : "0"
+        );
+        if (returned != null && returned >= 0) {
+            log.info("Returned {} tickets of lease {}..{} of lottery '{}' to the pool", returned, low, high, lotteryId);
+            return returned;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the leases any node may reclaim by now, as seen by the clock of this node; the release script
+     * checks them against the clock of Redis.
+     *
+     * @return The lease ids.
+     */
+    public Set<String> expiredLeases() {
+        Set<String> leaseIds = redisTemplate.opsForZSet().rangeByScore(TICKET_LEASES_KEY, 0, System.currentTimeMillis());
+        return leaseIds == null ? Set.of() : leaseIds;
+    }
+
+    /**
+     * Records the given user as participant of the lottery and counts the issued ticket, unless the lease
+     * the ticket number was taken from was ended meanwhile.
+     *
+     * @param lottery The lottery.
+     * @param userId  The user id.
+     * @param ticket  The ticket number taken from a leased block.
+     * @return The number of tickets left in the lottery, or {@link #LEASE_LOST} if the lease was ended and
+     * the number must be dropped.
+     */
+    public long claim(final LotterySnapshot lottery, final UUID userId, final LeasedTicket ticket) {
+        List<String> keys = leaseKeys(lottery.id(), ticket);
+        String[] args = {userId.toString(), ticket.block().getLeaseId(), String.valueOf(ticket.number())};
+
+        // Run the claim script, seeding the counter once if it does not exist yet.
+        Long remaining = redisTemplate.execute(CLAIM_LEASED_TICKET_SCRIPT, keys, (Object[]) args);
+        if (remaining != null && remaining == NOT_SEEDED) {
+            redisTemplate.opsForValue().setIfAbsent(
+                    String.format(LOTTERY_REMAINING_TICKETS_KEY, lottery.id()),
+                    String.valueOf(lottery.totalAvailableTickets())
+            );
+            remaining = redisTemplate.execute(CLAIM_LEASED_TICKET_SCRIPT, keys, (Object[]) args);
+        }
+
+        if (remaining == null || remaining == ALREADY_ISSUED) {
+            log.info("Ticket issuance failed: user already issued a ticket");
+            throw new UserAlreadyIssuedTicketException("User already issued a ticket");
+        }
+        return remaining;
+    }
+
+    /**
+     * Reverts a claim made by {@link #claim(LotterySnapshot, UUID, LeasedTicket)}.
+     *
+     * @param lotteryId The lottery id.
+     * @param userId    The user id.
+     * @param ticket    The claimed ticket number.
+     * @return {@code true} if the number belongs to its lease again, {@code false} if the lease was ended and
+     * the number went back to the pool.
+     */
+    public boolean unclaim(final UUID lotteryId, final UUID userId, final LeasedTicket ticket) {
+        List<String> keys = new ArrayList<>(leaseKeys(lotteryId, ticket));
+        keys.add(String.format(LOTTERY_RETURNED_TICKET_BLOCKS_KEY, lotteryId));
+        Long result = redisTemplate.execute(UNCLAIM_LEASED_TICKET_SCRIPT, keys,
+                userId.toString(), ticket.block().getLeaseId(), String.valueOf(ticket.number()));
+        return result == null || result != 2;
+    }
+
+    private static List<String> leaseKeys(final UUID lotteryId, final LeasedTicket ticket) {
+        return List.of(
+                String.format(LOTTERY_PARTICIPANTS_KEY, lotteryId),
+                String.format(LOTTERY_REMAINING_TICKETS_KEY, lotteryId),
+                TICKET_LEASES_KEY,
+                String.format(LOTTERY_LEASE_CLAIMED_KEY, lotteryId, ticket.block().getLow())
+        );
+    }
+
+    /**
+     * Deletes the inventory of a deleted lottery: its counters, participants, returned tickets and shards, and
+     * the leases of its ticket blocks with their claimed numbers. The leases are ended first, so claims from
+     * blocks still held by a node fail and the blocks are dropped.
+     *
+     * @param lotteryId The lottery id.
+     */
+    public void delete(final UUID lotteryId) {
+        // End the leases of the lottery, the sorted set holds the leases of every lottery.
+        String leasePrefix = lotteryId + ":";
+        Set<String> leaseIds = redisTemplate.opsForZSet().range(TICKET_LEASES_KEY, 0, -1);
+        List<String> keys = new ArrayList<>();
+        List<String> lotteryLeaseIds = new ArrayList<>();
+        for (String leaseId : leaseIds == null ? Set.<String>of() : leaseIds) {
+            if (leaseId.startsWith(leasePrefix)) {
+                lotteryLeaseIds.add(leaseId);
+                long low = Long.parseLong(leaseId.substring(leasePrefix.length(), leaseId.lastIndexOf(':')));
+                keys.add(String.format(LOTTERY_LEASE_CLAIMED_KEY, lotteryId, low));
+            }
+        }
+        if (!lotteryLeaseIds.isEmpty()) {
+            redisTemplate.opsForZSet().remove(TICKET_LEASES_KEY, lotteryLeaseIds.toArray());
+        }
+
+        // Delete the shards with the count they were recorded with, then the keys of the lottery itself.
+        String recorded = redisTemplate.opsForValue().get(String.format(LOTTERY_SHARDS_KEY, lotteryId));
+        ShardedTicketInventory shardedInventory = recorded == null ? null : shardedInventory(Integer.parseInt(recorded));
+        if (shardedInventory != null) {
+            shardedInventory.delete(lotteryId);
+        }
+        shardCounts.invalidate(lotteryId);
+
+        keys.add(String.format(LOTTERY_AVAILABLE_TICKETS_KEY, lotteryId));
+        keys.add(String.format(LOTTERY_PARTICIPANTS_KEY, lotteryId));
+        keys.add(String.format(LOTTERY_RETURNED_TICKETS_KEY, lotteryId));
+        keys.add(String.format(LOTTERY_RETURNED_TICKET_BLOCKS_KEY, lotteryId));
+        keys.add(String.format(LOTTERY_REMAINING_TICKETS_KEY, lotteryId));
+        keys.add(String.format(LOTTERY_SHARDS_KEY, lotteryId));
+        redisTemplate.delete(keys);
+        log.info("Deleted the ticket inventory of lottery '{}' with {} leases", lotteryId, lotteryLeaseIds.size());
+    }
+
+    /**
+     * Gets the number of tickets not issued yet, as maintained by {@link #claim(LotterySnapshot, UUID, LeasedTicket)}.
+     *
+     * @param lotteryId The lottery id.
+     * @return The remaining tickets, or {@code null} if the counter has not been seeded yet.
+     */
+    public Long remaining(final UUID lotteryId) {
+        String remaining = redisTemplate.opsForValue().get(String.format(LOTTERY_REMAINING_TICKETS_KEY, lotteryId));
+        return remaining == null ? null : Long.valueOf(remaining);
+    }
+
+    /**
+     * Gets the number of shards the inventory of a lottery is split into, recording
+     * {@code lottery.ticket.shards} if no node did yet. A lottery whose single counter already exists stays
+     * unsharded, so nodes configured with different shard counts never seed shards of the same lottery
+     * side by side.
+     *
+     * @param lotteryId The lottery id.
+     * @return The shard count of the lottery.
+     */
+    private int shardCount(final UUID lotteryId) {
+        return shardCounts.get(lotteryId, id -> {
+            String key = String.format(LOTTERY_SHARDS_KEY, id);
+            String recorded = redisTemplate.opsForValue().get(key);
+            if (recorded == null) {
+                boolean unsharded = Boolean.TRUE.equals(redisTemplate.hasKey(String.format(LOTTERY_AVAILABLE_TICKETS_KEY, id)));
+                redisTemplate.opsForValue().setIfAbsent(key, String.valueOf(unsharded ? 1 : shards));
+                recorded = redisTemplate.opsForValue().get(key);
+            }
+            return recordedShardCount(id, recorded);
+        });
+    }
+
+    private Mono<Integer> shardCountReactive(final UUID lotteryId) {
+        Integer cached = shardCounts.getIfPresent(lotteryId);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+
+        String key = String.format(LOTTERY_SHARDS_KEY, lotteryId);
+        Mono<String> record = reactiveRedisTemplate.hasKey(String.format(LOTTERY_AVAILABLE_TICKETS_KEY, lotteryId))
+                .flatMap(unsharded -> reactiveRedisTemplate.opsForValue().setIfAbsent(key, String.valueOf(unsharded ? 1 : shards)))
+                .then(reactiveRedisTemplate.opsForValue().get(key));
+        return reactiveRedisTemplate.opsForValue().get(key)
+                .switchIfEmpty(record)
+                .map(recorded -> {
+                    int shardCount = recordedShardCount(lotteryId, recorded);
+                    shardCounts.put(lotteryId, shardCount);
+                    return shardCount;
+                });
+    }
+
+    private int recordedShardCount(final UUID lotteryId, final String recorded) {
+        int shardCount = Integer.parseInt(recorded);
+        if (shardCount != shards) {
+            log.warn("Lottery '{}' is split into {} shards, not lottery.ticket.shards={}, following the recorded count",
+                    lotteryId, shardCount, shards);
+        }
+        return shardCount;
+    }
+
+    private ShardedTicketInventory shardedInventory(final int shardCount) {
+        return shardCount > 1
+                ? shardedInventories.computeIfAbsent(shardCount,
+                count -> new ShardedTicketInventory(redisTemplate, reactiveRedisTemplate, count))
+                : null;
+    }
+
+    /**
+     * Seeds the available tickets counter of a lottery unless another node already did.
+     *
+     * @param lottery The lottery.
+     */
+    private void seed(final LotterySnapshot lottery) {
+        redisTemplate.opsForValue().setIfAbsent(
+                String.format(LOTTERY_AVAILABLE_TICKETS_KEY, lottery.id()),
+                String.valueOf(lottery.totalAvailableTickets())
+        );
+    }
+
+    private TicketReservation toReservation(final List<?> result) {
+        long status = status(result);
+        if (status == OUT_OF_TICKETS || status == NOT_SEEDED) {
+            log.info("Ticket issuance failed: out of tickets");
+            throw new OutOfTicketsException("Out of tickets");
+        }
+        if (status == ALREADY_ISSUED) {
+            log.info("Ticket issuance failed: user already issued a ticket");
+            throw new UserAlreadyIssuedTicketException("User already issued a ticket");
+        }
+        return new TicketReservation(status, ((Number) result.get(1)).longValue());
+    }
+
+    @SuppressWarnings("rawtypes")
+    private Mono<List<?>> executeReactive(final RedisScript<List> script, final List<String> keys, final String... args) {
+        // Multi bulk replies are emitted element by element.
+        return reactiveRedisTemplate.execute(script, keys, List.of(args))
+                .collectList()
+                .map(elements -> elements.size() == 1 && elements.get(0) instanceof List<?> list ? list : elements);
+    }
+
+    private static long status(final List<?> result) {
+        return ((Number) result.get(0)).longValue();
+    }
+}
@@ -0,0 +1,118 @@
+package org.project.lottery.v1.service.ticket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.project.lottery.v1.dto.IssueTicketRequest;
+import org.project.lottery.v1.dto.LotteryResponse;
+import org.project.lottery.v1.dto.LotterySnapshot;
+import org.project.lottery.v1.dto.TicketResponse;
+import org.project.lottery.v1.entity.Ticket;
+import org.project.lottery.v1.repository.ITicketRepository;
+import org.project.lottery.v1.service.lottery.ILotteryService;
+import org.project.lottery.v1.service.ticket.writer.ITicketWriter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Issues tickets without the distributed lock. The availability check, the duplicate user check and
+ * the decrement are done by a single Redis script, and Postgres is only written once it succeeded.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "lottery.ticket.issuance-mode", havingValue = "script")
+public class ScriptedTicketService implements ITicketService {
+
+    /**
+     * The ticket repository.
+     */
+    private final ITicketRepository ticketRepository;
+
+    /**
+     * The lottery service.
+     */
+    private final ILotteryService lotteryService;
+
+    /**
+     * The Redis ticket inventory.
+     */
+    private final RedisTicketInventory ticketInventory;
+
+    /**
+     * The ticket writer.
+     */
+    private final ITicketWriter ticketWriter;
+
+    /**
+     * Constructs a new ScriptedTicketService instance.
+     *
+     * @param ticketRepository    The ticket repository.
+     * @param lotteryService      The lottery service.
+     * @param ticketInventory     The Redis ticket inventory.
+     * @param ticketWriter        The ticket writer.
+     */
+    public ScriptedTicketService(final ITicketRepository ticketRepository,
+                                 final ILotteryService lotteryService,
+                                 final RedisTicketInventory ticketInventory,
+                                 final ITicketWriter ticketWriter) {
+        this.ticketRepository = ticketRepository;
+        this.lotteryService = lotteryService;
+        this.ticketInventory = ticketInventory;
+        this.ticketWriter = ticketWriter;
+    }
+
+    /**
+     * Issues a ticket for the specified lottery.
+     *
+     * @param request The issue ticket request.
+     * @return The ticket response.
+     */
+    @Override
+    public TicketResponse issueTicket(IssueTicketRequest request) {
+        // Get the lottery by ID.
+        LotterySnapshot lottery = lotteryService.findById(request.lotteryId());
+
+        // Reserve a ticket in Redis, this fails fast if the user already holds one or none are left.
+        TicketReservation reservation = ticketInventory.reserve(lottery, request.userId());
+
+        // Create a new ticket.
+        Ticket ticket = new Ticket(request.userId(), reservation.ticketNumber(),
+                lotteryService.getReference(lottery.id()));
+
+        // Persist the ticket, giving the reservation back if that fails.
+        try {
+            ticketWriter.write(ticket);
+        } catch (RuntimeException e) {
+            ticketInventory.release(lottery.id(), request.userId(), reservation.ticketNumber());
+            throw e;
+        }
+        log.info("Ticket issued successfully: ticket = {}", ticket);
+
+        // Return the ticket response.
+        return new TicketResponse(ticket.getId(), ticket.getUserId(),
+                ticket.getLotteryNumber(),
+                new LotteryResponse(
+                        lottery.name(),
+                        lottery.id(),
+                        lottery.totalAllottedTickets(),
+                        reservation.remainingTickets()
+                )
+        );
+    }
+
+    /**
+     * Get the ticket by ID from the repository.
+     *
+     * @param uuid The ticket ID.
+     * @return The ticket.
+     */
+    @Override
+    @Cacheable(value = "tickets", key = "#uuid")
+    public Optional<Ticket> findById(UUID uuid) {
+        // Get the ticket by ID from the repository.
+        log.info("Ticket by id '{}'", uuid);
+        return ticketRepository.findById(uuid);
+    }
+}
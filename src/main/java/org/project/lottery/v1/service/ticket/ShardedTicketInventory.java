@@ -0,0 +1,317 @@
+package org.project.lottery.v1.service.ticket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.project.lottery.exceptions.OutOfTicketsException;
+import org.project.lottery.exceptions.UserAlreadyIssuedTicketException;
+import org.project.lottery.v1.dto.LotterySnapshot;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Splits the Redis inventory of a lottery into shards, each with its own available tickets counter,
+ * participants set and returned tickets list, so a single lottery no longer funnels every request through
+ * one key. A user is recorded in the shard picked by hashing the user id and takes a ticket from it; when
+ * it is empty, the user is still recorded there and a ticket is borrowed from the other shards in turn.
+ * Shard {@code i} of {@code k} owns the ticket numbers {@code n} with {@code (n - 1) % k == i}, and its
+ * counter is seeded with the count of those numbers up to the available tickets, so the shards together
+ * never hand out more tickets than the lottery has. The keys of a shard share a hash tag. The shard count
+ * of a lottery is recorded by {@link RedisTicketInventory}, which hands every lottery to the inventory of
+ * its recorded count, so the shards of a lottery are always seeded and used with the same count.
+ */
+@Slf4j
+class ShardedTicketInventory {
+    private static final String SHARD_AVAILABLE_TICKETS_KEY = "lottery_{%s_%d}_available_tickets";
+    private static final String SHARD_PARTICIPANTS_KEY = "lottery_{%s_%d}_participants";
+    private static final String SHARD_RETURNED_TICKETS_KEY = "lottery_{%s_%d}_returned_tickets";
+
+    private static final long NOT_SEEDED = -2L;
+    private static final long ALREADY_ISSUED = -1L;
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> RESERVE_TICKET_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/reserve_ticket.lua"), List.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> BORROW_TICKET_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/borrow_ticket.lua"), List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+    private final int shards;
+
+    /**
+     * Constructs a new ShardedTicketInventory instance.
+     *
+     * @param redisTemplate         The Redis template.
+     * @param reactiveRedisTemplate The reactive Redis template.
+     * @param shards                The number of shards of every lottery.
+     */
+    ShardedTicketInventory(final StringRedisTemplate redisTemplate,
+                           final ReactiveStringRedisTemplate reactiveRedisTemplate,
+                           final int shards) {
+        this.redisTemplate = redisTemplate;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.shards = shards;
+    }
+
+    /**
+     * Reserves a ticket of the given lottery for the given user, from the shard of the user or, if it is
+     * empty, from another one.
+     *
+     * @param lottery The lottery.
+     * @param userId  The user id.
+     * @return The reservation, with the remaining tickets of all shards.
+     */
+    TicketReservation reserve(final LotterySnapshot lottery, final UUID userId) {
+        int home = homeShard(userId);
+
+        // Take a ticket from the shard of the user.
+        long number = execute(RESERVE_TICKET_SCRIPT, lottery, home, userId.toString());
+        if (number == ALREADY_ISSUED) {
+            throw alreadyIssued();
+        }
+        if (number > 0) {
+            return new TicketReservation(ticketNumber(number, home), remaining(lottery.id()));
+        }
+
+        // The shard is empty, record the user there and borrow a ticket from the other shards.
+        Long added = redisTemplate.opsForSet().add(key(SHARD_PARTICIPANTS_KEY, lottery.id(), home), userId.toString());
+        if (added == null || added == 0) {
+            throw alreadyIssued();
+        }
+        for (int i = 1; i < shards; i++) {
+            int shard = (home + i) % shards;
+            number = execute(BORROW_TICKET_SCRIPT, lottery, shard);
+            if (number > 0) {
+                return new TicketReservation(ticketNumber(number, shard), remaining(lottery.id()));
+            }
+        }
+
+        redisTemplate.opsForSet().remove(key(SHARD_PARTICIPANTS_KEY, lottery.id(), home), userId.toString());
+        throw outOfTickets();
+    }
+
+    /**
+     * Reserves a ticket like {@link #reserve(LotterySnapshot, UUID)} without blocking the calling thread.
+     *
+     * @param lottery The lottery.
+     * @param userId  The user id.
+     * @return The reservation, or an error if the user already holds a ticket or none are left.
+     */
+    Mono<TicketReservation> reserveReactive(final LotterySnapshot lottery, final UUID userId) {
+        int home = homeShard(userId);
+        String participantsKey = key(SHARD_PARTICIPANTS_KEY, lottery.id(), home);
+
+        // Take a ticket from the shard of the user, or record the user there and borrow one from the other shards.
+        Mono<Long> borrowed = reactiveRedisTemplate.opsForSet().add(participantsKey, userId.toString())
+                .flatMap(added -> added == 0
+                        ? Mono.error(alreadyIssued())
+                        : Flux.range(1, shards - 1)
+                        .map(i -> (home + i) % shards)
+                        .concatMap(shard -> executeReactive(BORROW_TICKET_SCRIPT, lottery, shard)
+                                .filter(number -> number > 0)
+                                .map(number -> ticketNumber(number, shard)))
+                        .next()
+                        .switchIfEmpty(reactiveRedisTemplate.opsForSet().remove(participantsKey, userId.toString())
+                                .then(Mono.error(ShardedTicketInventory::outOfTickets))));
+
+        return executeReactive(RESERVE_TICKET_SCRIPT, lottery, home, userId.toString())
+                .flatMap(number -> {
+                    if (number == ALREADY_ISSUED) {
+                        return Mono.error(alreadyIssued());
+                    }
+                    return number > 0 ? Mono.just(ticketNumber(number, home)) : borrowed;
+                })
+                .flatMap(ticketNumber -> remainingReactive(lottery.id())
+                        .map(remaining -> new TicketReservation(ticketNumber, remaining)));
+    }
+
+    /**
+     * Gives a reserved ticket back to the shard owning its number.
+     *
+     * @param lotteryId    The lottery id.
+     * @param userId       The user id.
+     * @param ticketNumber The reserved ticket number.
+     */
+    void release(final UUID lotteryId, final UUID userId, final long ticketNumber) {
+        // The user and the number may belong to different shards, so they are given back one after the other.
+        Long removed = redisTemplate.opsForSet().remove(key(SHARD_PARTICIPANTS_KEY, lotteryId, homeShard(userId)), userId.toString());
+        if (removed != null && removed > 0) {
+            redisTemplate.opsForList().rightPush(key(SHARD_RETURNED_TICKETS_KEY, lotteryId, owningShard(ticketNumber)),
+                    String.valueOf(shardNumber(ticketNumber)));
+        }
+    }
+
+    /**
+     * Gives a reserved ticket back to the shard owning its number without blocking the calling thread.
+     *
+     * @param lotteryId    The lottery id.
+     * @param userId       The user id.
+     * @param ticketNumber The reserved ticket number.
+     * @return Completes once the ticket was released.
+     */
+    Mono<Void> releaseReactive(final UUID lotteryId, final UUID userId, final long ticketNumber) {
+        return reactiveRedisTemplate.opsForSet().remove(key(SHARD_PARTICIPANTS_KEY, lotteryId, homeShard(userId)), userId.toString())
+                .filter(removed -> removed > 0)
+                .flatMap(removed -> reactiveRedisTemplate.opsForList().rightPush(
+                        key(SHARD_RETURNED_TICKETS_KEY, lotteryId, owningShard(ticketNumber)),
+                        String.valueOf(shardNumber(ticketNumber))))
+                .then();
+    }
+
+    /**
+     * Sums the available and returned tickets of all shards of a lottery in one round trip.
+     *
+     * @param lotteryId The lottery id.
+     * @return The remaining tickets.
+     */
+    long remaining(final UUID lotteryId) {
+        List<Object> counts = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (int shard = 0; shard < shards; shard++) {
+                stringConnection.get(key(SHARD_AVAILABLE_TICKETS_KEY, lotteryId, shard));
+                stringConnection.lLen(key(SHARD_RETURNED_TICKETS_KEY, lotteryId, shard));
+            }
+            return null;
+        });
+        return counts.stream().mapToLong(ShardedTicketInventory::toLong).sum();
+    }
+
+    private Mono<Long> remainingReactive(final UUID lotteryId) {
+        return Flux.range(0, shards)
+                .flatMap(shard -> Mono.zip(
+                        reactiveRedisTemplate.opsForValue().get(key(SHARD_AVAILABLE_TICKETS_KEY, lotteryId, shard))
+                                .map(Long::parseLong).defaultIfEmpty(0L),
+                        reactiveRedisTemplate.opsForList().size(key(SHARD_RETURNED_TICKETS_KEY, lotteryId, shard)),
+                        Long::sum))
+                .reduce(0L, Long::sum);
+    }
+
+    /**
+     * Runs a shard script, seeding the counters of all shards once if the shard has not been seeded yet.
+     *
+     * @return The shard ticket number, or a status.
+     */
+    @SuppressWarnings("rawtypes")
+    private long execute(final RedisScript<List> script, final LotterySnapshot lottery, final int shard, final String... args) {
+        List<String> keys = scriptKeys(script, lottery.id(), shard);
+        long number = status(redisTemplate.execute(script, keys, (Object[]) args));
+        if (number == NOT_SEEDED) {
+            seed(lottery);
+            number = status(redisTemplate.execute(script, keys, (Object[]) args));
+        }
+        return number;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private Mono<Long> executeReactive(final RedisScript<List> script, final LotterySnapshot lottery, final int shard, final String... args) {
+        List<String> keys = scriptKeys(script, lottery.id(), shard);
+        Mono<Long> execution = reactiveRedisTemplate.execute(script, keys, List.of(args))
+                .collectList()
+                .map(elements -> status(elements.size() == 1 && elements.get(0) instanceof List<?> list ? list : elements));
+        return execution.flatMap(number -> number != NOT_SEEDED
+                ? Mono.just(number)
+                : Flux.range(0, shards)
+                .concatMap(i -> reactiveRedisTemplate.opsForValue()
+                        .setIfAbsent(key(SHARD_AVAILABLE_TICKETS_KEY, lottery.id(), i), String.valueOf(shardSize(lottery, i))))
+                .then(execution));
+    }
+
+    /**
+     * Deletes the counters, participants and returned tickets of all shards of a deleted lottery.
+     *
+     * @param lotteryId The lottery id.
+     */
+    void delete(final UUID lotteryId) {
+        List<String> keys = new ArrayList<>(3 * shards);
+        for (int shard = 0; shard < shards; shard++) {
+            keys.add(key(SHARD_AVAILABLE_TICKETS_KEY, lotteryId, shard));
+            keys.add(key(SHARD_PARTICIPANTS_KEY, lotteryId, shard));
+            keys.add(key(SHARD_RETURNED_TICKETS_KEY, lotteryId, shard));
+        }
+        redisTemplate.delete(keys);
+    }
+
+    /**
+     * Seeds the counters of all shards of a lottery unless another node already did, splitting the
+     * available tickets by the shard owning each number.
+     */
+    private void seed(final LotterySnapshot lottery) {
+        for (int shard = 0; shard < shards; shard++) {
+            redisTemplate.opsForValue().setIfAbsent(key(SHARD_AVAILABLE_TICKETS_KEY, lottery.id(), shard),
+                    String.valueOf(shardSize(lottery, shard)));
+        }
+        log.info("Seeded {} shards of lottery '{}' with {} tickets", shards, lottery.id(), lottery.totalAvailableTickets());
+    }
+
+    private long shardSize(final LotterySnapshot lottery, final int shard) {
+        long available = lottery.totalAvailableTickets();
+        return available / shards + (shard < available % shards ? 1 : 0);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private List<String> scriptKeys(final RedisScript<List> script, final UUID lotteryId, final int shard) {
+        if (script == RESERVE_TICKET_SCRIPT) {
+            return List.of(
+                    key(SHARD_AVAILABLE_TICKETS_KEY, lotteryId, shard),
+                    key(SHARD_PARTICIPANTS_KEY, lotteryId, shard),
+                    key(SHARD_RETURNED_TICKETS_KEY, lotteryId, shard)
+            );
+        }
+        return List.of(
+                key(SHARD_AVAILABLE_TICKETS_KEY, lotteryId, shard),
+                key(SHARD_RETURNED_TICKETS_KEY, lotteryId, shard)
+        );
+    }
+
+    private int homeShard(final UUID userId) {
+        return Math.floorMod(userId.hashCode(), shards);
+    }
+
+    private long ticketNumber(final long shardNumber, final int shard) {
+        return (shardNumber - 1) * shards + shard + 1;
+    }
+
+    private int owningShard(final long ticketNumber) {
+        return (int) ((ticketNumber - 1) % shards);
+    }
+
+    private long shardNumber(final long ticketNumber) {
+        return (ticketNumber - 1) / shards + 1;
+    }
+
+    private static String key(final String format, final UUID lotteryId, final int shard) {
+        return String.format(format, lotteryId, shard);
+    }
+
+    private static long status(final List<?> result) {
+        return ((Number) result.get(0)).longValue();
+    }
+
+    private static long toLong(final Object value) {
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        return value == null ? 0 : Long.parseLong(value.toString());
+    }
+
+    private static UserAlreadyIssuedTicketException alreadyIssued() {
+        log.info("Ticket issuance failed: user already issued a ticket");
+        return new UserAlreadyIssuedTicketException("User already issued a ticket");
+    }
+
+    private static OutOfTicketsException outOfTickets() {
+        log.info("Ticket issuance failed: out of tickets");
+        return new OutOfTicketsException("Out of tickets");
+    }
+}
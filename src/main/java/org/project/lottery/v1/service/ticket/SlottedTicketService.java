@@ -0,0 +1,190 @@
+package org.project.lottery.v1.service.ticket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.project.lottery.exceptions.OutOfTicketsException;
+import org.project.lottery.exceptions.UserAlreadyIssuedTicketException;
+import org.project.lottery.v1.dto.IssueTicketRequest;
+import org.project.lottery.v1.dto.IssueTicketResult;
+import org.project.lottery.v1.dto.LotteryResponse;
+import org.project.lottery.v1.dto.TicketResponse;
+import org.project.lottery.v1.entity.Ticket;
+import org.project.lottery.v1.repository.ClaimedSlotRow;
+import org.project.lottery.v1.repository.ITicketRepository;
+import org.project.lottery.v1.service.lottery.ILotteryService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Issues tickets from slots created together with the lottery. Every ticket row of a lottery exists up
+ * front without a user, and a ticket is issued by assigning the user to a free slot picked with
+ * {@code FOR UPDATE SKIP LOCKED}, so concurrent transactions claim different slots in parallel without any
+ * application level lock. The ticket numbers are fixed when the lottery is created. The lottery row is only
+ * read by the claim, never locked, so claims of one lottery do not queue up behind each other; once per
+ * {@code lottery.ticket.slots.reconcile-interval-ms} the claims this node committed are subtracted from its
+ * available tickets, and the free slots are only counted once a claim found none left. Requires Postgres and
+ * lotteries created with slots.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "lottery.ticket.issuance-mode", havingValue = "slots")
+public class SlottedTicketService implements ITicketService {
+
+    /**
+     * The ticket repository.
+     */
+    private final ITicketRepository ticketRepository;
+
+    /**
+     * The lottery service.
+     */
+    private final ILotteryService lotteryService;
+
+    /**
+     * This service behind its transactional proxy.
+     */
+    private final ITicketService self;
+
+    /**
+     * The slots of every lottery claimed by committed transactions since the previous reconciliation.
+     */
+    private final Map<UUID, Long> claimedSlots = new ConcurrentHashMap<>();
+
+    /**
+     * The lotteries a claim found without a free slot since the previous reconciliation.
+     */
+    private final Set<UUID> exhaustedLotteries = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructs a new SlottedTicketService instance.
+     *
+     * @param ticketRepository The ticket repository.
+     * @param lotteryService   The lottery service.
+     * @param self             This service behind its transactional proxy.
+     */
+    public SlottedTicketService(final ITicketRepository ticketRepository,
+                                final ILotteryService lotteryService,
+                                @Lazy final ITicketService self) {
+        this.ticketRepository = ticketRepository;
+        this.lotteryService = lotteryService;
+        this.self = self;
+    }
+
+    /**
+     * Issues a ticket for the specified lottery.
+     *
+     * @param request The issue ticket request.
+     * @return The ticket response.
+     */
+    @Override
+    @Transactional
+    public TicketResponse issueTicket(IssueTicketRequest request) {
+        // Assign the user to a free slot, the unique constraint rejects users already holding a ticket.
+        Optional<ClaimedSlotRow> slot;
+        try {
+            slot = ticketRepository.claimSlot(request.lotteryId(), request.userId());
+        } catch (DataIntegrityViolationException e) {
+            log.info("Ticket issuance failed: user already issued a ticket");
+            throw new UserAlreadyIssuedTicketException("User already issued a ticket");
+        }
+        ClaimedSlotRow ticket = slot.orElseThrow(() -> {
+            // Unpublished lotteries are not found either. The free slots are counted once the available tickets
+            // still claim some, not again for every request to a sold-out lottery.
+            if (lotteryService.findCurrentById(request.lotteryId()).totalAvailableTickets() > 0) {
+                exhaustedLotteries.add(request.lotteryId());
+            }
+            log.info("Ticket issuance failed: out of tickets");
+            return new OutOfTicketsException("Out of tickets");
+        });
+
+        // Count the claim once it is committed, a rolled back claim leaves its slot free.
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                claimedSlots.merge(request.lotteryId(), 1L, Long::sum);
+            }
+        });
+        log.info("Ticket issued successfully: ticket = {}", ticket);
+
+        // Return the ticket response.
+        return new TicketResponse(ticket.id(), ticket.userId(),
+                ticket.lotteryNumber(),
+                new LotteryResponse(
+                        ticket.lotteryName(),
+                        request.lotteryId(),
+                        ticket.totalAllottedTickets(),
+                        ticket.remainingTickets()
+                )
+        );
+    }
+
+    /**
+     * Subtracts the slots claimed on this node since the previous reconciliation from the available tickets of
+     * their lotteries, evicting them from the lottery cache, and counts the free slots of the lotteries a claim
+     * found without one. Claims that could not be subtracted are kept for the next run.
+     */
+    @Scheduled(fixedDelayString = "${lottery.ticket.slots.reconcile-interval-ms:1000}")
+    public void reconcileAvailableTickets() {
+        for (UUID lotteryId : claimedSlots.keySet()) {
+            Long count = claimedSlots.remove(lotteryId);
+            if (count == null) {
+                continue;
+            }
+            try {
+                lotteryService.subtractClaimedSlots(lotteryId, count);
+            } catch (RuntimeException e) {
+                log.warn("Failed to reconcile the available tickets of lottery '{}'", lotteryId, e);
+                claimedSlots.merge(lotteryId, count, Long::sum);
+            }
+        }
+        for (UUID lotteryId : exhaustedLotteries) {
+            // The count covers the claims committed so far, they are not subtracted again.
+            exhaustedLotteries.remove(lotteryId);
+            claimedSlots.remove(lotteryId);
+            try {
+                lotteryService.reconcileWithFreeSlots(lotteryId);
+            } catch (RuntimeException e) {
+                log.warn("Failed to count the free slots of lottery '{}'", lotteryId, e);
+            }
+        }
+    }
+
+    /**
+     * Issues the tickets of a batch one by one, each in its own transaction so a rejected ticket only
+     * rolls back its own claim.
+     *
+     * @param requests The issue ticket requests.
+     * @return The result of every request, in request order.
+     */
+    @Override
+    public List<IssueTicketResult> issueTickets(List<IssueTicketRequest> requests) {
+        return ITicketService.issueOneByOne(requests, self::issueTicket);
+    }
+
+    /**
+     * Get the ticket by ID from the repository.
+     *
+     * @param uuid The ticket ID.
+     * @return The ticket.
+     */
+    @Override
+    @Cacheable(value = "tickets", key = "#uuid")
+    public Optional<Ticket> findById(UUID uuid) {
+        // Get the ticket by ID from the repository.
+        log.info("Ticket by id '{}'", uuid);
+        return ticketRepository.findById(uuid);
+    }
+}
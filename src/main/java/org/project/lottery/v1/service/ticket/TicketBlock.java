@@ -0,0 +1,98 @@
+package org.project.lottery.v1.service.ticket;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A contiguous block of ticket numbers {@code low..high} leased by this node. Numbers are taken from
+ * the top downwards with a single atomic decrement, so handing them out needs no lock. The lease is also
+ * recorded in Redis, with the numbers claimed from it, so any node can end it.
+ */
+public class TicketBlock {
+    private final UUID lotteryId;
+    private final long low;
+    private final long high;
+    private final AtomicLong next;
+    private final ConcurrentLinkedQueue<Long> givenBack = new ConcurrentLinkedQueue<>();
+    private volatile long expiresAt;
+    private volatile boolean closed;
+
+    public TicketBlock(final UUID lotteryId, final long low, final long high) {
+        this.lotteryId = lotteryId;
+        this.low = low;
+        this.high = high;
+        this.next = new AtomicLong(high);
+    }
+
+    public UUID getLotteryId() {
+        return lotteryId;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * Gets the id of the lease of the block in Redis.
+     *
+     * @return The lease id, as {@code lottery id:low:high}.
+     */
+    public String getLeaseId() {
+        return lotteryId + ":" + low + ":" + high;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(final long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Takes the next ticket number of the block.
+     *
+     * @return The ticket number, or {@code null} if the block is exhausted or closed.
+     */
+    public Long take() {
+        if (closed) {
+            return null;
+        }
+        Long number = givenBack.poll();
+        if (number != null) {
+            return number;
+        }
+        long candidate = next.getAndDecrement();
+        return candidate >= low ? candidate : null;
+    }
+
+    /**
+     * Gives a taken ticket number back to the block, e.g. when the user already held a ticket. A number
+     * given back to a closed block is dropped, ending the lease returned every number not claimed.
+     *
+     * @param number The ticket number.
+     */
+    public void giveBack(final long number) {
+        if (!closed) {
+            givenBack.offer(number);
+        }
+    }
+
+    /**
+     * Closes the block so no further numbers are taken from it.
+     */
+    public void close() {
+        closed = true;
+        next.set(low - 1);
+        givenBack.clear();
+    }
+}
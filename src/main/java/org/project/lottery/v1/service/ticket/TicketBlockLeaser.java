@@ -0,0 +1,207 @@
+package org.project.lottery.v1.service.ticket;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.project.lottery.exceptions.OutOfTicketsException;
+import org.project.lottery.v1.dto.LotterySnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out ticket numbers from blocks leased by this node, so replicas only meet in Redis once per block.
+ * Unused numbers go back to the pool when a lease expires, when another node recalls them because the
+ * pool ran dry, and when the node shuts down. Leases are recorded in Redis with the numbers claimed from
+ * them, so once {@code lottery.ticket.lease.reclaim-after-ms} passed any node gives back the unclaimed
+ * numbers of a lease whose node died; a claim from an ended lease fails, and its number is dropped.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "lottery.ticket.issuance-mode", havingValue = "lease")
+public class TicketBlockLeaser {
+    /**
+     * The channel on which nodes ask each other to return their unused ticket numbers.
+     */
+    private static final String LEASE_RECALL_CHANNEL = "lottery_ticket_lease_recall";
+
+    private final RedisTicketInventory ticketInventory;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final Map<UUID, TicketBlock> blocks = new ConcurrentHashMap<>();
+    private final Map<UUID, ReentrantLock> refillLocks = new ConcurrentHashMap<>();
+
+    @Value("${lottery.ticket.lease.block-size:1000}")
+    private long blockSize;
+
+    @Value("${lottery.ticket.lease.min-blocks:10}")
+    private long minBlocks;
+
+    @Value("${lottery.ticket.lease.duration-ms:30000}")
+    private long leaseDurationMillis;
+
+    @Value("${lottery.ticket.lease.recall-wait-ms:200}")
+    private long recallWaitMillis;
+
+    @Value("${lottery.ticket.lease.reclaim-after-ms:60000}")
+    private long reclaimAfterMillis;
+
+    /**
+     * Constructs a new TicketBlockLeaser instance.
+     *
+     * @param ticketInventory   The Redis ticket inventory.
+     * @param redisTemplate     The Redis template.
+     * @param listenerContainer The Redis message listener container.
+     */
+    public TicketBlockLeaser(final RedisTicketInventory ticketInventory,
+                             final StringRedisTemplate redisTemplate,
+                             final RedisMessageListenerContainer listenerContainer) {
+        this.ticketInventory = ticketInventory;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(
+                (message, pattern) -> release(UUID.fromString(new String(message.getBody()))),
+                new ChannelTopic(LEASE_RECALL_CHANNEL)
+        );
+    }
+
+    /**
+     * Takes the next ticket number of the given lottery, leasing a new block if needed.
+     *
+     * @param lottery The lottery.
+     * @return The ticket number and the block it was taken from.
+     */
+    public LeasedTicket take(final LotterySnapshot lottery) {
+        // Fast path: take a number from the current block without any lock.
+        TicketBlock block = blocks.get(lottery.id());
+        Long number = block == null ? null : block.take();
+        if (number != null) {
+            return new LeasedTicket(block, number);
+        }
+
+        // Slow path: lease a new block, one thread per lottery at a time.
+        ReentrantLock refillLock = refillLocks.computeIfAbsent(lottery.id(), id -> new ReentrantLock());
+        refillLock.lock();
+        try {
+            long deadline = System.currentTimeMillis() + recallWaitMillis;
+            boolean recalled = false;
+            while (true) {
+                // Another thread may have leased a block meanwhile.
+                block = blocks.get(lottery.id());
+                number = block == null ? null : block.take();
+                if (number != null) {
+                    return new LeasedTicket(block, number);
+                }
+
+                // End the lease of the exhausted block, numbers still being claimed from it are dropped.
+                if (block != null) {
+                    release(lottery.id());
+                }
+
+                TicketBlock leased = ticketInventory.leaseBlock(lottery, blockSize, minBlocks, reclaimAfterMillis);
+                if (leased != null) {
+                    leased.setExpiresAt(System.currentTimeMillis() + leaseDurationMillis);
+                    blocks.put(lottery.id(), leased);
+                    log.info("Leased tickets {}..{} of lottery '{}'", leased.getLow(), leased.getHigh(), lottery.id());
+                    continue;
+                }
+
+                // The pool is empty, it is only worth waiting if other nodes still hold numbers.
+                Long remaining = ticketInventory.remaining(lottery.id());
+                if ((remaining != null && remaining <= 0) || System.currentTimeMillis() >= deadline) {
+                    log.info("Ticket issuance failed: out of tickets");
+                    throw new OutOfTicketsException("Out of tickets");
+                }
+                if (!recalled) {
+                    redisTemplate.convertAndSend(LEASE_RECALL_CHANNEL, lottery.id().toString());
+                    recalled = true;
+                }
+                Thread.sleep(Math.max(1, recallWaitMillis / 10));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OutOfTicketsException("Out of tickets");
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    /**
+     * Gives a taken ticket number back to its block, e.g. when the user already held a ticket. If the lease
+     * of the block ended meanwhile, the number was given back to the pool with the other unclaimed numbers.
+     *
+     * @param ticket The ticket number.
+     */
+    public void giveBack(final LeasedTicket ticket) {
+        ticket.block().giveBack(ticket.number());
+    }
+
+    /**
+     * Drops a block whose lease was ended by another node, e.g. after this node stalled past the reclaim
+     * time, its unclaimed numbers are in the pool already.
+     *
+     * @param ticket The ticket number whose claim failed.
+     */
+    public void leaseLost(final LeasedTicket ticket) {
+        TicketBlock block = ticket.block();
+        if (blocks.remove(block.getLotteryId(), block)) {
+            log.warn("Lease {}..{} of lottery '{}' was reclaimed by another node", block.getLow(), block.getHigh(),
+                    block.getLotteryId());
+        }
+        block.close();
+    }
+
+    /**
+     * Returns the unused numbers of the blocks of this node whose lease expired, then reclaims the leases
+     * of every node past their reclaim time, e.g. those of crashed nodes.
+     */
+    @Scheduled(fixedDelayString = "${lottery.ticket.lease.check-interval-ms:1000}")
+    public void releaseExpired() {
+        long now = System.currentTimeMillis();
+        blocks.values().stream()
+                .filter(block -> block.getExpiresAt() <= now)
+                .forEach(block -> release(block.getLotteryId()));
+
+        for (String leaseId : ticketInventory.expiredLeases()) {
+            if (ticketInventory.releaseLease(leaseId, true) >= 0) {
+                log.warn("Reclaimed expired lease {}", leaseId);
+            }
+        }
+    }
+
+    /**
+     * Returns the unused numbers of all blocks when the node shuts down.
+     */
+    @PreDestroy
+    public void releaseAll() {
+        blocks.keySet().forEach(this::release);
+    }
+
+    /**
+     * Closes the block of a lottery and returns its unused numbers to the pool.
+     *
+     * @param lotteryId The lottery id.
+     */
+    private void release(final UUID lotteryId) {
+        TicketBlock block = blocks.remove(lotteryId);
+        if (block == null) {
+            return;
+        }
+
+        block.close();
+        ticketInventory.releaseLease(block.getLeaseId(), false);
+    }
+}
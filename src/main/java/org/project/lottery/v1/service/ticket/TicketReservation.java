@@ -0,0 +1,10 @@
+package org.project.lottery.v1.service.ticket;
+
+/**
+ * A ticket reserved for a user in Redis, before it is persisted.
+ *
+ * @param ticketNumber     The reserved ticket number.
+ * @param remainingTickets The number of tickets left in the lottery after the reservation.
+ */
+public record TicketReservation(long ticketNumber, long remainingTickets) {
+}
@@ -1,31 +1,50 @@
 package org.project.lottery.v1.service.ticket;
 
 import lombok.extern.slf4j.Slf4j;
+import org.project.lottery.bloom.ParticipantBloomFilter;
+import org.project.lottery.exceptions.NotFoundException;
 import org.project.lottery.exceptions.OutOfTicketsException;
 import org.project.lottery.exceptions.UserAlreadyIssuedTicketException;
 import org.project.lottery.locker.LockExecutionResult;
-import org.project.lottery.locker.RedisDistributedLocker;
+import org.project.lottery.locker.IDistributedLocker;
 import org.project.lottery.v1.dto.IssueTicketRequest;
+import org.project.lottery.v1.dto.IssueTicketResult;
+import org.project.lottery.v1.dto.IssueTicketStatus;
 import org.project.lottery.v1.dto.LotteryResponse;
+import org.project.lottery.v1.dto.LotterySnapshot;
 import org.project.lottery.v1.dto.TicketResponse;
 import org.project.lottery.v1.entity.Lottery;
 import org.project.lottery.v1.entity.Ticket;
+import org.project.lottery.v1.entity.UuidV7Generator;
 import org.project.lottery.v1.repository.ITicketRepository;
 import org.project.lottery.v1.service.lottery.ILotteryService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
+@ConditionalOnProperty(name = "lottery.ticket.issuance-mode", havingValue = "lock", matchIfMissing = true)
 public class TicketService implements ITicketService {
     /**
      * The lock key for the lottery ticket resource.
      */
     private static final String LOTTERY_TICKET_LOCK_KEY = "lottery_%s_ticket_lock_key";
 
+    /**
+     * The number of seconds the lock is held for while a batch of tickets is issued.
+     */
+    private static final int BATCH_LOCK_TIMEOUT_SECONDS = 30;
+
+    /**
+     * The number of users checked for an existing ticket by one query.
+     */
+    private static final int ISSUED_USERS_QUERY_CHUNK_SIZE = 1000;
+
     /**
      * The ticket repository.
      */
@@ -39,7 +58,17 @@ public class TicketService implements ITicketService {
     /**
      * The Redis distributed locker.
      */
-    private final RedisDistributedLocker redisDistributedLocker;
+    private final IDistributedLocker redisDistributedLocker;
+
+    /**
+     * The Bloom filter of the users holding a ticket.
+     */
+    private final ParticipantBloomFilter participantBloomFilter;
+
+    /**
+     * The transaction template.
+     */
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * Constructs a new TicketService instance.
@@ -47,14 +76,20 @@ public class TicketService implements ITicketService {
      * @param ticketRepository       The ticket repository.
      * @param lotteryService         The lottery service.
      * @param redisDistributedLocker The Redis distributed locker.
+     * @param participantBloomFilter The Bloom filter of the users holding a ticket.
+     * @param transactionTemplate    The transaction template.
      */
     public TicketService(final ITicketRepository ticketRepository,
                          ILotteryService lotteryService,
-                         final RedisDistributedLocker redisDistributedLocker
+                         final IDistributedLocker redisDistributedLocker,
+                         final ParticipantBloomFilter participantBloomFilter,
+                         final TransactionTemplate transactionTemplate
     ) {
         this.lotteryService = lotteryService;
         this.ticketRepository = ticketRepository;
         this.redisDistributedLocker = redisDistributedLocker;
+        this.participantBloomFilter = participantBloomFilter;
+        this.transactionTemplate = transactionTemplate;
     }
 
     /**
@@ -70,11 +105,11 @@ public class TicketService implements ITicketService {
                 String.format(LOTTERY_TICKET_LOCK_KEY, request.lotteryId()),
                 5,
                 () -> {
-                    // Get the lottery by ID.
-                    Lottery lottery = lotteryService.findById(request.lotteryId());
+                    // Get the lottery by ID from the database, the cached copy may lag behind the other nodes.
+                    LotterySnapshot lottery = lotteryService.findCurrentById(request.lotteryId());
 
                     // Get the current ticket count.
-                    Long totalAvailableTickets = lottery.getTotalAvailableTickets();
+                    long totalAvailableTickets = lottery.totalAvailableTickets();
 
                     // If the new count is greater than the maximum number of tickets, throw an exception.
                     if (totalAvailableTickets == 0) {
@@ -83,31 +118,39 @@ public class TicketService implements ITicketService {
                     }
 
                     // If the user has already issued a ticket for given lottery, throw an exception.
-                    if (ticketRepository.findByUserIdAndLotteryId(request.userId(), request.lotteryId()).isPresent()) {
+                    // The database is only checked if the Bloom filter does not rule the user out.
+                    if (participantBloomFilter.mightContain(request.lotteryId(), request.userId())
+                            && ticketRepository.findByUserIdAndLotteryId(request.userId(), request.lotteryId()).isPresent()) {
                         log.info("Ticket issuance failed: user already issued a ticket");
                         throw new UserAlreadyIssuedTicketException("User already issued a ticket");
                     }
 
-                    // Create a new ticket.
-                    Ticket ticket = new Ticket(request.userId(), String.format("lottery_number_%d", totalAvailableTickets), lottery);
+                    // Create a new ticket, referencing the lottery without loading it.
+                    Ticket ticket = new Ticket(request.userId(), totalAvailableTickets,
+                            lotteryService.getReference(lottery.id()));
 
-                    // Save the ticket to the database.
-                    ticketRepository.save(ticket);
-                    log.info("Ticket issued successfully: ticket = {}", ticket);
-                    // Decrement the ticket total available tickets and save into database.
-                    lottery.setTotalAvailableTickets(totalAvailableTickets - 1);
+                    // Add the user to the Bloom filter first, so a failure can only cause a false positive.
+                    participantBloomFilter.add(request.lotteryId(), request.userId());
 
-                    // Update the ticket count in the database.
-                    lotteryService.save(lottery);
+                    // Save the ticket and decrement the ticket total available tickets in one transaction.
+                    // The lottery row was read under the lock, a decrement that misses means it was deleted or drifted.
+                    transactionTemplate.executeWithoutResult(status -> {
+                        ticketRepository.save(ticket);
+                        if (!lotteryService.decrementAvailableTickets(lottery.id(), 1)) {
+                            throw new IllegalStateException(String.format(
+                                    "Available tickets of lottery %s changed outside the lock", lottery.id()));
+                        }
+                    });
+                    log.info("Ticket issued successfully: ticket = {}", ticket);
 
                     // Return the ticket response.
                     return new TicketResponse(ticket.getId(), ticket.getUserId(),
                             ticket.getLotteryNumber(),
                             new LotteryResponse(
-                                    lottery.getName(),
-                                    lottery.getId(),
-                                    lottery.getTotalAllottedTickets(),
-                                    lottery.getTotalAvailableTickets()
+                                    lottery.name(),
+                                    lottery.id(),
+                                    lottery.totalAllottedTickets(),
+                                    totalAvailableTickets - 1
                             )
                     );
                 }
@@ -125,6 +168,116 @@ public class TicketService implements ITicketService {
         return result.getResultIfLockAcquired();
     }
 
+    /**
+     * Issues tickets to a batch of users, possibly of several lotteries. The lock of every lottery is
+     * taken once, the users already holding a ticket are found with set-based queries and the new
+     * tickets are inserted with a single JDBC batch.
+     *
+     * @param requests The issue ticket requests.
+     * @return The result of every request, in request order.
+     */
+    @Override
+    public List<IssueTicketResult> issueTickets(List<IssueTicketRequest> requests) {
+        // Group the positions of the requests by lottery.
+        Map<UUID, List<Integer>> positionsByLottery = new LinkedHashMap<>();
+        for (int position = 0; position < requests.size(); position++) {
+            positionsByLottery.computeIfAbsent(requests.get(position).lotteryId(), id -> new ArrayList<>()).add(position);
+        }
+
+        // Issue the tickets of every lottery under its lock. Every lottery commits on its own, so a failing
+        // lottery fails its own requests only and the tickets of the others are still reported as issued.
+        IssueTicketResult[] results = new IssueTicketResult[requests.size()];
+        positionsByLottery.forEach((lotteryId, positions) -> {
+            try {
+                issueTickets(lotteryId, positions, requests, results);
+            } catch (RuntimeException e) {
+                log.error("Failed to issue the {} requested tickets of lottery '{}'", positions.size(), lotteryId, e);
+                positions.forEach(position -> results[position] = IssueTicketResult.of(requests.get(position), IssueTicketStatus.FAILED));
+            }
+        });
+        return Arrays.asList(results);
+    }
+
+    private void issueTickets(UUID lotteryId,
+                              List<Integer> positions,
+                              List<IssueTicketRequest> requests,
+                              IssueTicketResult[] results) {
+        // Acquire a lock for the lottery ticket resource.
+        LockExecutionResult<Integer> result = redisDistributedLocker.lock(
+                String.format(LOTTERY_TICKET_LOCK_KEY, lotteryId),
+                BATCH_LOCK_TIMEOUT_SECONDS,
+                () -> {
+                    // Get the lottery by ID from the database, the cached copy may lag behind the other nodes.
+                    LotterySnapshot lottery = lotteryService.findCurrentById(lotteryId);
+                    Lottery lotteryReference = lotteryService.getReference(lotteryId);
+
+                    // Find the requested users already holding a ticket.
+                    List<UUID> userIds = positions.stream().map(position -> requests.get(position).userId()).distinct().toList();
+                    Set<UUID> issuedUserIds = new HashSet<>();
+                    for (int from = 0; from < userIds.size(); from += ISSUED_USERS_QUERY_CHUNK_SIZE) {
+                        List<UUID> chunk = userIds.subList(from, Math.min(from + ISSUED_USERS_QUERY_CHUNK_SIZE, userIds.size()));
+                        issuedUserIds.addAll(ticketRepository.findIssuedUserIds(lotteryId, chunk));
+                    }
+
+                    // Create a ticket for every user without one while tickets are available.
+                    long totalAvailableTickets = lottery.totalAvailableTickets();
+                    List<Ticket> tickets = new ArrayList<>();
+                    for (int position : positions) {
+                        IssueTicketRequest request = requests.get(position);
+                        if (!issuedUserIds.add(request.userId())) {
+                            results[position] = IssueTicketResult.of(request, IssueTicketStatus.ALREADY_ISSUED);
+                            continue;
+                        }
+                        if (totalAvailableTickets == 0) {
+                            results[position] = IssueTicketResult.of(request, IssueTicketStatus.OUT_OF_TICKETS);
+                            continue;
+                        }
+
+                        Ticket ticket = new Ticket(request.userId(), totalAvailableTickets, lotteryReference);
+                        ticket.setId(UuidV7Generator.next());
+                        tickets.add(ticket);
+                        totalAvailableTickets--;
+                        results[position] = new IssueTicketResult(request.userId(), lotteryId, IssueTicketStatus.ISSUED,
+                                new TicketResponse(ticket.getId(), ticket.getUserId(),
+                                        ticket.getLotteryNumber(),
+                                        new LotteryResponse(
+                                                lottery.name(),
+                                                lottery.id(),
+                                                lottery.totalAllottedTickets(),
+                                                totalAvailableTickets
+                                        )
+                                ));
+                    }
+                    if (tickets.isEmpty()) {
+                        return 0;
+                    }
+
+                    // Add the users to the Bloom filter first, so a failure can only cause false positives.
+                    participantBloomFilter.addAll(lotteryId, tickets.stream().map(Ticket::getUserId).toList());
+
+                    // Insert the tickets and decrement the available tickets in one transaction.
+                    transactionTemplate.executeWithoutResult(status -> {
+                        ticketRepository.insertAll(tickets);
+                        if (!lotteryService.decrementAvailableTickets(lotteryId, tickets.size())) {
+                            throw new IllegalStateException(String.format(
+                                    "Available tickets of lottery %s changed outside the lock", lotteryId));
+                        }
+                    });
+                    return tickets.size();
+                }
+        );
+
+        // A missing lottery fails all of its requests, any other failure fails the requests of the lottery.
+        if (result.hasException()) {
+            if (result.exception instanceof NotFoundException) {
+                positions.forEach(position -> results[position] = IssueTicketResult.of(requests.get(position), IssueTicketStatus.NOT_FOUND));
+                return;
+            }
+            throw new RuntimeException(result.exception);
+        }
+        log.info("Issued {} of {} requested tickets of lottery '{}'", result.getResultIfLockAcquired(), positions.size(), lotteryId);
+    }
+
     /**
      * Get the ticket by ID from the repository.
      *
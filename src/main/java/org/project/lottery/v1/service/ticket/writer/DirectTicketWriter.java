@@ -0,0 +1,53 @@
+package org.project.lottery.v1.service.ticket.writer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.project.lottery.v1.entity.Ticket;
+import org.project.lottery.v1.repository.ITicketRepository;
+import org.project.lottery.v1.service.lottery.ILotteryService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Saves each ticket synchronously in its own transaction.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "lottery.ticket.writer", havingValue = "direct", matchIfMissing = true)
+public class DirectTicketWriter implements ITicketWriter {
+
+    /**
+     * The ticket repository.
+     */
+    private final ITicketRepository ticketRepository;
+
+    /**
+     * The lottery service.
+     */
+    private final ILotteryService lotteryService;
+
+    /**
+     * Constructs a new DirectTicketWriter instance.
+     *
+     * @param ticketRepository The ticket repository.
+     * @param lotteryService   The lottery service.
+     */
+    public DirectTicketWriter(final ITicketRepository ticketRepository, final ILotteryService lotteryService) {
+        this.ticketRepository = ticketRepository;
+        this.lotteryService = lotteryService;
+    }
+
+    @Override
+    @Transactional
+    public void write(Ticket ticket) {
+        // Save the ticket to the database.
+        ticketRepository.save(ticket);
+
+        // Decrement the available tickets of the lottery, rolling the ticket back if the lottery row disagrees,
+        // so the caller gives its reservation back.
+        if (!lotteryService.decrementAvailableTickets(ticket.getLottery().getId(), 1)) {
+            throw new IllegalStateException(String.format(
+                    "Available tickets of lottery %s could not be decremented", ticket.getLottery().getId()));
+        }
+    }
+}
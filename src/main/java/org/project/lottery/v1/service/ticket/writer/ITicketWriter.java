@@ -0,0 +1,29 @@
+package org.project.lottery.v1.service.ticket.writer;
+
+import org.project.lottery.v1.entity.Ticket;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Persists tickets whose issuance was already decided, e.g. by a Redis script, together with the
+ * decrement of the available tickets of their lottery.
+ */
+public interface ITicketWriter {
+    /**
+     * Persists the given ticket. The ticket id is assigned once this method returns.
+     *
+     * @param ticket The ticket.
+     */
+    void write(Ticket ticket);
+
+    /**
+     * Persists the given ticket without blocking the subscribing thread. Writers that can only block
+     * run {@link #write(Ticket)} on the bounded elastic scheduler.
+     *
+     * @param ticket The ticket.
+     * @return Completes once the ticket was persisted.
+     */
+    default Mono<Void> writeAsync(Ticket ticket) {
+        return Mono.<Void>fromRunnable(() -> write(ticket)).subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,15 @@
+package org.project.lottery.v1.service.ticket.writer;
+
+import java.util.UUID;
+
+/**
+ * An issued ticket as recorded in the {@link TicketJournal}.
+ *
+ * @param ticketId     The ticket id.
+ * @param userId       The user id.
+ * @param lotteryId    The lottery id.
+ * @param ticketNumber The ticket number within the lottery.
+ * @param timestamp    The time the ticket was issued, in epoch milliseconds.
+ */
+record JournalRecord(UUID ticketId, UUID userId, UUID lotteryId, long ticketNumber, long timestamp) {
+}
@@ -0,0 +1,300 @@
+package org.project.lottery.v1.service.ticket.writer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.project.lottery.v1.entity.Ticket;
+import org.project.lottery.v1.entity.UuidV7Generator;
+import org.project.lottery.v1.repository.ITicketRepository;
+import org.project.lottery.v1.service.lottery.ILotteryService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Acknowledges tickets once they are appended to the memory-mapped {@link TicketJournal} of this node and
+ * replays the journal into Postgres in order, in batches of {@code lottery.ticket.journal.batch-size}, every
+ * {@code lottery.ticket.journal.replay-interval-ms}, at most {@code lottery.ticket.journal.max-batches-per-replay}
+ * batches per run so the other scheduled jobs are not held up by a backlog. The checkpoint only moves past a
+ * batch after it committed, so a node restarting after a crash replays whatever it had not persisted yet. A
+ * failed batch is replayed ticket by ticket; a ticket failing on its own in
+ * {@code lottery.ticket.journal.max-attempts} runs, other than for the database being unreachable, is
+ * appended to the dead-letter file of the journal directory and skipped, so it does not hold the checkpoint. With
+ * {@code lottery.ticket.journal.force-on-write}, the default, a ticket is acknowledged once its record is on
+ * the disk, the tickets written at the same time sharing one flush; without it, appended records only
+ * survive a crash of the process, not of the machine.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "lottery.ticket.writer", havingValue = "journal")
+public class JournalTicketWriter implements ITicketWriter {
+    /**
+     * The file of the journal directory the tickets that could not be replayed are appended to.
+     */
+    private static final String DEAD_LETTER_FILE = "dead-letter.csv";
+
+    private final TicketJournal journal;
+    private final Path deadLetterFile;
+    private final Counter deadLetters;
+    private final ITicketRepository ticketRepository;
+    private final ILotteryService lotteryService;
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantLock replayLock = new ReentrantLock();
+    private final boolean forceOnWrite;
+
+    @Value("${lottery.ticket.journal.batch-size:500}")
+    private int batchSize;
+
+    @Value("${lottery.ticket.journal.max-batches-per-replay:20}")
+    private int maxBatchesPerReplay;
+
+    @Value("${lottery.ticket.journal.max-attempts:3}")
+    private int maxAttempts;
+
+    /**
+     * The ticket that failed on its own in the previous runs, and in how many of them.
+     */
+    private UUID failingTicketId;
+    private int failedAttempts;
+
+    /**
+     * Constructs a new JournalTicketWriter instance.
+     *
+     * @param ticketRepository    The ticket repository.
+     * @param lotteryService      The lottery service.
+     * @param transactionTemplate The transaction template.
+     * @param meterRegistry       The meter registry.
+     * @param directory           The directory of the journal of this node.
+     * @param segmentSizeBytes    The size of a journal segment file.
+     * @param forceOnWrite        Whether every ticket is written through to the disk before it is acknowledged.
+     */
+    public JournalTicketWriter(final ITicketRepository ticketRepository,
+                               final ILotteryService lotteryService,
+                               final TransactionTemplate transactionTemplate,
+                               final MeterRegistry meterRegistry,
+                               @Value("${lottery.ticket.journal.directory:journal}") final String directory,
+                               @Value("${lottery.ticket.journal.segment-size-bytes:67108864}") final long segmentSizeBytes,
+                               @Value("${lottery.ticket.journal.force-on-write:true}") final boolean forceOnWrite) {
+        this.ticketRepository = ticketRepository;
+        this.lotteryService = lotteryService;
+        this.transactionTemplate = transactionTemplate;
+        this.forceOnWrite = forceOnWrite;
+        this.journal = new TicketJournal(Path.of(directory), segmentSizeBytes / TicketJournal.RECORD_SIZE, forceOnWrite);
+        this.deadLetterFile = Path.of(directory, DEAD_LETTER_FILE);
+        Gauge.builder("lottery.ticket.journal.pending", journal, TicketJournal::pending)
+                .description("Journaled tickets not replayed into the database yet")
+                .register(meterRegistry);
+        this.deadLetters = Counter.builder("lottery.ticket.journal.dead_letters")
+                .description("Journaled tickets that kept failing to replay, moved to the dead-letter file")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void write(Ticket ticket) {
+        // Assign the ticket id up front, the ticket is only inserted later.
+        ticket.setId(UuidV7Generator.next());
+
+        journal.append(new JournalRecord(ticket.getId(), ticket.getUserId(), ticket.getLottery().getId(),
+                ticket.getTicketNumber(), System.currentTimeMillis()));
+    }
+
+    @Override
+    public Mono<Void> writeAsync(Ticket ticket) {
+        // The append is a memory copy, but waiting for the disk flush must not block the subscribing thread.
+        Mono<Void> append = Mono.fromRunnable(() -> write(ticket));
+        return forceOnWrite ? append.subscribeOn(Schedulers.boundedElastic()) : append;
+    }
+
+    /**
+     * Replays the tickets journaled before the node restarted.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        replay(maxBatchesPerReplay);
+    }
+
+    /**
+     * Replays the journal on a fixed interval.
+     */
+    @Scheduled(fixedDelayString = "${lottery.ticket.journal.replay-interval-ms:200}")
+    public void scheduledReplay() {
+        replay(maxBatchesPerReplay);
+    }
+
+    /**
+     * Replays what is left in the journal and writes it to the disk when the node shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        replay(Integer.MAX_VALUE);
+        journal.close();
+    }
+
+    /**
+     * Inserts the journaled tickets batch by batch, moving the checkpoint after every committed batch. A failed
+     * batch is replayed ticket by ticket, and the run stops at the first ticket to retry.
+     *
+     * @param maxBatches The number of batches to replay at most.
+     */
+    void replay(final int maxBatches) {
+        replayLock.lock();
+        int replayed = 0;
+        try {
+            for (int batches = 0; batches < maxBatches; batches++) {
+                List<JournalRecord> batch = journal.readFromCheckpoint(batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                int done;
+                try {
+                    replayBatch(batch);
+                    done = batch.size();
+                } catch (RuntimeException e) {
+                    log.warn("Journal batch failed, replaying its tickets one by one", e);
+                    done = replayOneByOne(batch);
+                }
+                if (done > 0) {
+                    journal.advance(done);
+                }
+                replayed += done;
+                if (done < batch.size()) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Journal replay failed, retrying from the checkpoint", e);
+        } finally {
+            replayLock.unlock();
+        }
+        if (replayed > 0) {
+            log.info("Journal replayed {} tickets", replayed);
+        }
+    }
+
+    /**
+     * Replays the tickets of a failed batch each in a transaction of its own, moving the tickets that failed
+     * too often to the dead-letter file.
+     *
+     * @param batch The journal records.
+     * @return The number of leading records replayed or dead-lettered, the checkpoint moves past them.
+     */
+    private int replayOneByOne(final List<JournalRecord> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            JournalRecord record = batch.get(i);
+            try {
+                replayBatch(List.of(record));
+            } catch (RuntimeException e) {
+                // An unreachable database fails every ticket, it does not count against this one.
+                if (unavailable(e)) {
+                    log.error("Journal replay failed, retrying from the checkpoint", e);
+                    return i;
+                }
+                failedAttempts = record.ticketId().equals(failingTicketId) ? failedAttempts + 1 : 1;
+                failingTicketId = record.ticketId();
+                if (failedAttempts < maxAttempts) {
+                    log.error("Journaled ticket '{}' failed to replay {} times, retrying from the checkpoint",
+                            record.ticketId(), failedAttempts, e);
+                    return i;
+                }
+                deadLetter(record, e);
+            }
+        }
+        return batch.size();
+    }
+
+    private static boolean unavailable(final RuntimeException e) {
+        return e instanceof CannotCreateTransactionException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof TransientDataAccessException;
+    }
+
+    /**
+     * Appends a ticket to the dead-letter file and writes it through to the disk, before the checkpoint moves
+     * past it.
+     *
+     * @param record The journal record.
+     * @param cause  The last replay failure of the ticket.
+     */
+    private void deadLetter(final JournalRecord record, final RuntimeException cause) {
+        String line = String.join(",", record.ticketId().toString(), record.userId().toString(),
+                record.lotteryId().toString(), String.valueOf(record.ticketNumber()), String.valueOf(record.timestamp()),
+                String.valueOf(NestedExceptionUtils.getMostSpecificCause(cause)).replaceAll("[\\r\\n,]", " ")) + System.lineSeparator();
+        try {
+            Files.writeString(deadLetterFile, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to dead-letter journaled ticket " + record.ticketId(), e);
+        }
+        deadLetters.increment();
+        failingTicketId = null;
+        failedAttempts = 0;
+        log.error("Journaled ticket '{}' of lottery '{}' failed to replay {} times, moved to {}",
+                record.ticketId(), record.lotteryId(), maxAttempts, deadLetterFile, cause);
+    }
+
+    /**
+     * Inserts one batch of tickets and decrements the available tickets of their lotteries. Tickets
+     * already inserted by a replay that died before its checkpoint are skipped, and so are the tickets of
+     * deleted lotteries, which would fail the batch over and over.
+     *
+     * @param batch The journal records.
+     */
+    private void replayBatch(final List<JournalRecord> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<UUID> lotteryIds = lotteryService.findExistingIds(
+                    batch.stream().map(JournalRecord::lotteryId).collect(Collectors.toSet()));
+            Set<UUID> existing = new HashSet<>(ticketRepository.findExistingIds(lotteryIds,
+                    batch.stream().map(JournalRecord::ticketId).toList()));
+
+            // Skip the tickets already inserted and the tickets of lotteries deleted in the meantime.
+            List<Ticket> pending = batch.stream()
+                    .filter(record -> !existing.contains(record.ticketId()) && lotteryIds.contains(record.lotteryId()))
+                    .map(this::toTicket)
+                    .toList();
+
+            // Insert the tickets with a single JDBC batch.
+            ticketRepository.insertAll(pending);
+
+            // Decrement the available tickets once per lottery. The tickets were acknowledged already and are kept
+            // when a lottery row has fewer tickets left, which is counted and logged as drift.
+            Map<UUID, Long> issuedPerLottery = pending.stream()
+                    .collect(Collectors.groupingBy(ticket -> ticket.getLottery().getId(), Collectors.counting()));
+            issuedPerLottery.forEach((lotteryId, issued) -> {
+                if (!lotteryService.decrementAvailableTickets(lotteryId, issued)) {
+                    log.error("Lottery '{}' has fewer available tickets than the {} tickets persisted for it", lotteryId, issued);
+                }
+            });
+        });
+    }
+
+    private Ticket toTicket(final JournalRecord record) {
+        Ticket ticket = new Ticket(record.userId(), record.ticketNumber(),
+                lotteryService.getReference(record.lotteryId()));
+        ticket.setId(record.ticketId());
+        return ticket;
+    }
+}
@@ -0,0 +1,348 @@
+package org.project.lottery.v1.service.ticket.writer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of issued tickets in memory-mapped segment files of a local directory. Every
+ * record has the same size, so record {@code i} lives in segment {@code i / recordsPerSegment} at a fixed
+ * offset, and a checkpoint file holds the index of the first record not replayed yet. Records carry a
+ * magic number and a CRC32; on open, the records after the checkpoint are scanned up to the first one that
+ * is missing or torn, and appending continues from there.
+ * <p>
+ * Appends are serialized by the journal with a {@link ReentrantLock} rather than a monitor, so virtual threads
+ * waiting for the disk do not pin their carrier. When appends are forced, they are committed in groups: an
+ * append waits for the records up to its own to reach the storage device, and the first waiter forces every
+ * record appended so far at once, so concurrent appends share one flush and appending goes on meanwhile.
+ * Reading and checkpointing are meant for a single tailer thread, which sees every record published by
+ * {@link #append(JournalRecord)} before it returned.
+ */
+@Slf4j
+class TicketJournal implements AutoCloseable {
+    /**
+     * The size of a record: magic, ticket id, user id, lottery id, ticket number, timestamp and CRC32.
+     */
+    static final int RECORD_SIZE = 4 + 16 + 16 + 16 + 8 + 8 + 4;
+
+    /**
+     * Marks a written record, zeroed space is free; an unwritten segment is sparse and reads as zeros.
+     */
+    private static final int RECORD_MAGIC = 0x4C4A5231;
+
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String SEGMENT_FILE = "tickets-%020d.journal";
+
+    private final Path directory;
+    private final long recordsPerSegment;
+    private final boolean forceOnAppend;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock forceLock = new ReentrantLock();
+
+    private MappedByteBuffer writeSegment;
+    private long writeSegmentIndex = -1;
+    private MappedByteBuffer readSegment;
+    private long readSegmentIndex = -1;
+
+    /**
+     * The index of the next record to append, published after the record was written.
+     */
+    private volatile long writeIndex;
+
+    /**
+     * The index of the first record not forced to the storage device yet.
+     */
+    private volatile long forcedIndex;
+    private long checkpoint;
+
+    /**
+     * Opens the journal in the given directory, creating it if necessary.
+     *
+     * @param directory         The journal directory.
+     * @param recordsPerSegment The number of records of a segment file.
+     * @param forceOnAppend     Whether every append is forced to the storage device, together with the appends
+     *                          running at the same time, before it returns.
+     */
+    TicketJournal(final Path directory, final long recordsPerSegment, final boolean forceOnAppend) {
+        if (recordsPerSegment < 1 || recordsPerSegment * RECORD_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Ticket journal segments must hold between 1 record and 2 GB");
+        }
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        this.forceOnAppend = forceOnAppend;
+        try {
+            Files.createDirectories(directory);
+            checkpoint = readCheckpoint();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the ticket journal in " + directory, e);
+        }
+
+        // Continue after the last complete record.
+        long index = checkpoint;
+        while (read(index) != null) {
+            index++;
+        }
+        writeIndex = index;
+        forcedIndex = index;
+
+        // Clear what a crash left behind the last complete record, so it cannot turn valid again later.
+        if (readSegment(index / recordsPerSegment) != null) {
+            MappedByteBuffer segment = writeSegment(index / recordsPerSegment);
+            byte[] empty = new byte[RECORD_SIZE];
+            for (long offset = index % recordsPerSegment * RECORD_SIZE; offset < segment.capacity(); offset += RECORD_SIZE) {
+                if (segment.getInt((int) offset) != 0) {
+                    segment.put((int) offset, empty);
+                }
+            }
+        }
+        log.info("Opened ticket journal {} at record {}, {} records to replay", directory, writeIndex, writeIndex - checkpoint);
+    }
+
+    /**
+     * Appends a record, and if appends are forced waits until it is on the storage device.
+     *
+     * @param record The record.
+     */
+    void append(final JournalRecord record) {
+        long end;
+        writeLock.lock();
+        try {
+            end = appendLocked(record);
+        } finally {
+            writeLock.unlock();
+        }
+        if (forceOnAppend) {
+            awaitForced(end);
+        }
+    }
+
+    private long appendLocked(final JournalRecord record) {
+        long index = writeIndex;
+        MappedByteBuffer segment = writeSegment(index / recordsPerSegment);
+        int offset = (int) (index % recordsPerSegment * RECORD_SIZE);
+
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        buffer.putInt(RECORD_MAGIC);
+        putUuid(buffer, record.ticketId());
+        putUuid(buffer, record.userId());
+        putUuid(buffer, record.lotteryId());
+        buffer.putLong(record.ticketNumber());
+        buffer.putLong(record.timestamp());
+        buffer.putInt(crc(buffer.array()));
+        segment.put(offset, buffer.array());
+
+        writeIndex = index + 1;
+        return writeIndex;
+    }
+
+    /**
+     * Waits until the records before the given index are on the storage device. The waiter holding the force
+     * lock forces every record appended by then, the waiters behind it usually find their records forced.
+     *
+     * @param end The index after the last record to wait for.
+     */
+    private void awaitForced(final long end) {
+        forceLock.lock();
+        try {
+            if (forcedIndex >= end) {
+                return;
+            }
+
+            // Take the records appended so far, the appends go on while they are forced.
+            long target;
+            long segmentIndex;
+            MappedByteBuffer segment;
+            writeLock.lock();
+            try {
+                target = writeIndex;
+                segmentIndex = writeSegmentIndex;
+                segment = writeSegment;
+            } finally {
+                writeLock.unlock();
+            }
+
+            // The earlier segments were forced when the journal moved on to the next one.
+            long from = Math.max(forcedIndex, segmentIndex * recordsPerSegment);
+            segment.force((int) (from % recordsPerSegment * RECORD_SIZE), (int) ((target - from) * RECORD_SIZE));
+            forcedIndex = target;
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    /**
+     * Reads the records from the checkpoint on, up to the given number.
+     *
+     * @param max The maximum number of records.
+     * @return The records, in append order.
+     */
+    List<JournalRecord> readFromCheckpoint(final int max) {
+        long end = Math.min(writeIndex, checkpoint + max);
+        List<JournalRecord> records = new ArrayList<>((int) (end - checkpoint));
+        for (long index = checkpoint; index < end; index++) {
+            JournalRecord record = read(index);
+            if (record == null) {
+                throw new IllegalStateException("Ticket journal record " + index + " is corrupt");
+            }
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Moves the checkpoint past the given number of records and deletes the segments before it.
+     *
+     * @param count The number of records replayed.
+     */
+    void advance(final long count) {
+        checkpoint += count;
+        try {
+            writeCheckpoint();
+            for (long segment = checkpoint / recordsPerSegment - 1; segment >= 0; segment--) {
+                if (!Files.deleteIfExists(segmentPath(segment))) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to checkpoint the ticket journal", e);
+        }
+    }
+
+    /**
+     * Returns the number of records not replayed yet.
+     *
+     * @return The replay lag.
+     */
+    long pending() {
+        return writeIndex - checkpoint;
+    }
+
+    /**
+     * Forces the appended records to the storage device.
+     */
+    void force() {
+        writeLock.lock();
+        try {
+            if (writeSegment != null) {
+                writeSegment.force();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        force();
+    }
+
+    private JournalRecord read(final long index) {
+        MappedByteBuffer segment = readSegment(index / recordsPerSegment);
+        if (segment == null) {
+            return null;
+        }
+
+        byte[] bytes = new byte[RECORD_SIZE];
+        segment.get((int) (index % recordsPerSegment * RECORD_SIZE), bytes);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt() != RECORD_MAGIC || buffer.getInt(RECORD_SIZE - 4) != crc(bytes)) {
+            return null;
+        }
+        return new JournalRecord(getUuid(buffer), getUuid(buffer), getUuid(buffer), buffer.getLong(), buffer.getLong());
+    }
+
+    private MappedByteBuffer writeSegment(final long segmentIndex) {
+        if (segmentIndex != writeSegmentIndex) {
+            if (writeSegment != null) {
+                writeSegment.force();
+            }
+            writeSegment = map(segmentIndex, true);
+            writeSegmentIndex = segmentIndex;
+        }
+        return writeSegment;
+    }
+
+    private MappedByteBuffer readSegment(final long segmentIndex) {
+        if (segmentIndex != readSegmentIndex) {
+            if (!Files.exists(segmentPath(segmentIndex))) {
+                return null;
+            }
+            readSegment = map(segmentIndex, false);
+            readSegmentIndex = segmentIndex;
+        }
+        return readSegment;
+    }
+
+    private MappedByteBuffer map(final long segmentIndex, final boolean create) {
+        // The mapping stays valid after the channel is closed.
+        try (FileChannel channel = create
+                ? FileChannel.open(segmentPath(segmentIndex), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(segmentPath(segmentIndex), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, recordsPerSegment * RECORD_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map ticket journal segment " + segmentIndex, e);
+        }
+    }
+
+    private Path segmentPath(final long segmentIndex) {
+        return directory.resolve(String.format(SEGMENT_FILE, segmentIndex));
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path path = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(path)) {
+            try (Stream<Path> files = Files.list(directory)) {
+                if (files.anyMatch(file -> file.getFileName().toString().endsWith(".journal"))) {
+                    throw new IllegalStateException("Ticket journal " + directory + " has segments but no checkpoint");
+                }
+            }
+            writeCheckpoint();
+            return 0;
+        }
+
+        String[] fields = Files.readString(path, StandardCharsets.US_ASCII).trim().split(" ");
+        if (Long.parseLong(fields[1]) != recordsPerSegment) {
+            throw new IllegalStateException("Ticket journal " + directory + " was written with " + fields[1]
+                    + " records per segment, replay it before changing the segment size");
+        }
+        return Long.parseLong(fields[0]);
+    }
+
+    private void writeCheckpoint() throws IOException {
+        // Replace the checkpoint file atomically, so it is never half written.
+        Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        Files.writeString(temporary, checkpoint + " " + recordsPerSegment, StandardCharsets.US_ASCII,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.SYNC);
+        Files.move(temporary, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int crc(final byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, RECORD_SIZE - 4);
+        return (int) crc.getValue();
+    }
+
+    private static void putUuid(final ByteBuffer buffer, final UUID value) {
+        buffer.putLong(value.getMostSignificantBits());
+        buffer.putLong(value.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(final ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
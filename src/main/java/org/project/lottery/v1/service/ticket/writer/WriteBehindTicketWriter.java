@@ -0,0 +1,253 @@
+package org.project.lottery.v1.service.ticket.writer;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.project.lottery.exceptions.FailedToAcquireLockException;
+import org.project.lottery.exceptions.WriteBehindQueueFullException;
+import org.project.lottery.locker.LockExecutionResult;
+import org.project.lottery.locker.RedisDistributedLocker;
+import org.project.lottery.v1.entity.Ticket;
+import org.project.lottery.v1.entity.UuidV7Generator;
+import org.project.lottery.v1.repository.ITicketRepository;
+import org.project.lottery.v1.service.lottery.ILotteryService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Acknowledges tickets once they are appended to a bounded queue in Redis and inserts them into
+ * Postgres in batches, either every {@code lottery.ticket.write-behind.flush-interval-ms} or as soon as
+ * a full batch is waiting. Tickets are only removed from the queue after their batch committed, so
+ * whatever was not flushed when a node died is replayed by the next flush of any node.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "lottery.ticket.writer", havingValue = "write-behind")
+public class WriteBehindTicketWriter implements ITicketWriter {
+    /**
+     * The key of the write-behind queue.
+     */
+    private static final String WRITE_BEHIND_QUEUE_KEY = "tickets_write_behind_queue";
+
+    /**
+     * The lock key serializing flushes across nodes.
+     */
+    private static final String WRITE_BEHIND_FLUSH_LOCK_KEY = "tickets_write_behind_flush_lock_key";
+
+    private static final RedisScript<Long> ENQUEUE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/enqueue_write_behind.lua"), Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+    private final ITicketRepository ticketRepository;
+    private final ILotteryService lotteryService;
+    private final RedisDistributedLocker redisDistributedLocker;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    @Value("${lottery.ticket.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${lottery.ticket.write-behind.max-pending:100000}")
+    private long maxPending;
+
+    @Value("${lottery.ticket.write-behind.flush-lock-timeout-seconds:30}")
+    private int flushLockTimeoutSeconds;
+
+    /**
+     * Constructs a new WriteBehindTicketWriter instance.
+     *
+     * @param redisTemplate          The Redis template.
+     * @param reactiveRedisTemplate  The reactive Redis template.
+     * @param ticketRepository       The ticket repository.
+     * @param lotteryService         The lottery service.
+     * @param redisDistributedLocker The Redis distributed locker.
+     * @param transactionTemplate    The transaction template.
+     */
+    public WriteBehindTicketWriter(final StringRedisTemplate redisTemplate,
+                                   final ReactiveStringRedisTemplate reactiveRedisTemplate,
+                                   final ITicketRepository ticketRepository,
+                                   final ILotteryService lotteryService,
+                                   final RedisDistributedLocker redisDistributedLocker,
+                                   final TransactionTemplate transactionTemplate) {
+        this.redisTemplate = redisTemplate;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.ticketRepository = ticketRepository;
+        this.lotteryService = lotteryService;
+        this.redisDistributedLocker = redisDistributedLocker;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void write(Ticket ticket) {
+        // Assign the ticket id up front, the ticket is only inserted later.
+        ticket.setId(UuidV7Generator.next());
+
+        // Append the ticket to the queue, rejecting it if too many tickets are waiting.
+        Long pending = redisTemplate.execute(ENQUEUE_SCRIPT, List.of(WRITE_BEHIND_QUEUE_KEY),
+                serialize(ticket), String.valueOf(maxPending));
+        enqueued(ticket, pending);
+    }
+
+    @Override
+    public Mono<Void> writeAsync(Ticket ticket) {
+        // Assign the ticket id up front, the ticket is only inserted later.
+        ticket.setId(UuidV7Generator.next());
+
+        // Append the ticket to the queue without blocking, the flush itself stays on its own thread.
+        return reactiveRedisTemplate.execute(ENQUEUE_SCRIPT, List.of(WRITE_BEHIND_QUEUE_KEY),
+                        List.of(serialize(ticket), String.valueOf(maxPending)))
+                .next()
+                .doOnNext(pending -> enqueued(ticket, pending))
+                .then();
+    }
+
+    private void enqueued(final Ticket ticket, final Long pending) {
+        if (pending == null || pending == 0) {
+            log.warn("Write-behind queue is full, rejecting ticket {}", ticket.getId());
+            throw new WriteBehindQueueFullException("Too many tickets waiting to be persisted");
+        }
+
+        // Flush right away once a full batch is waiting.
+        if (pending >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            flushExecutor.execute(() -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    /**
+     * Replays the tickets left in the queue when the node starts.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void replay() {
+        flushExecutor.execute(this::flush);
+    }
+
+    /**
+     * Flushes the queue on a fixed interval.
+     */
+    @Scheduled(fixedDelayString = "${lottery.ticket.write-behind.flush-interval-ms:200}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * Flushes what is left in the queue when the node shuts down.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flushExecutor.shutdown();
+        flushExecutor.awaitTermination(flushLockTimeoutSeconds, TimeUnit.SECONDS);
+        flush();
+    }
+
+    /**
+     * Inserts the queued tickets batch by batch while holding the flush lock.
+     */
+    void flush() {
+        if (Boolean.FALSE.equals(redisTemplate.hasKey(WRITE_BEHIND_QUEUE_KEY))) {
+            return;
+        }
+
+        try {
+            LockExecutionResult<Integer> result = redisDistributedLocker.lock(
+                    WRITE_BEHIND_FLUSH_LOCK_KEY,
+                    flushLockTimeoutSeconds,
+                    () -> {
+                        // Stay well within the lock timeout, the next flush picks up the rest.
+                        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(flushLockTimeoutSeconds) / 2;
+                        int flushed = 0;
+                        List<String> batch;
+                        while (System.currentTimeMillis() < deadline
+                                && !(batch = redisTemplate.opsForList().range(WRITE_BEHIND_QUEUE_KEY, 0, batchSize - 1)).isEmpty()) {
+                            flushBatch(batch);
+                            // Only drop the batch from the queue once it committed.
+                            redisTemplate.opsForList().trim(WRITE_BEHIND_QUEUE_KEY, batch.size(), -1);
+                            flushed += batch.size();
+                        }
+                        return flushed;
+                    }
+            );
+            if (result.hasException()) {
+                log.error("Write-behind flush failed", result.exception);
+            } else if (result.getResultIfLockAcquired() > 0) {
+                log.info("Write-behind flushed {} tickets", result.getResultIfLockAcquired());
+            }
+        } catch (FailedToAcquireLockException e) {
+            log.debug("Write-behind flush skipped, another node is flushing");
+        }
+    }
+
+    /**
+     * Inserts one batch of tickets and decrements the available tickets of their lotteries. Tickets
+     * already inserted by a flush that died before trimming the queue are skipped, and so are the tickets
+     * of deleted lotteries, which would fail the batch over and over.
+     *
+     * @param batch The serialized tickets.
+     */
+    private void flushBatch(final List<String> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Ticket> tickets = batch.stream().map(this::deserialize).toList();
+            Set<UUID> lotteryIds = lotteryService.findExistingIds(
+                    tickets.stream().map(ticket -> ticket.getLottery().getId()).collect(Collectors.toSet()));
+            Set<UUID> existing = new HashSet<>(ticketRepository.findExistingIds(lotteryIds,
+                    tickets.stream().map(Ticket::getId).toList()));
+
+            // Skip the tickets already inserted and the tickets of lotteries deleted in the meantime.
+            List<Ticket> pending = tickets.stream()
+                    .filter(ticket -> !existing.contains(ticket.getId()) && lotteryIds.contains(ticket.getLottery().getId()))
+                    .toList();
+
+            // Insert the tickets with a single JDBC batch.
+            ticketRepository.insertAll(pending);
+
+            // Decrement the available tickets once per lottery. The tickets were acknowledged already and are kept
+            // when a lottery row has fewer tickets left, which is counted and logged as drift.
+            Map<UUID, Long> issuedPerLottery = pending.stream()
+                    .collect(Collectors.groupingBy(ticket -> ticket.getLottery().getId(), Collectors.counting()));
+            issuedPerLottery.forEach((lotteryId, issued) -> {
+                if (!lotteryService.decrementAvailableTickets(lotteryId, issued)) {
+                    log.error("Lottery '{}' has fewer available tickets than the {} tickets persisted for it", lotteryId, issued);
+                }
+            });
+        });
+    }
+
+    private String serialize(final Ticket ticket) {
+        return String.join(",",
+                ticket.getId().toString(),
+                ticket.getUserId().toString(),
+                ticket.getLottery().getId().toString(),
+                ticket.getLotteryNumber());
+    }
+
+    private Ticket deserialize(final String value) {
+        String[] fields = value.split(",");
+        Ticket ticket = new Ticket(UUID.fromString(fields[1]), Ticket.ticketNumber(fields[3]), lotteryService.getReference(UUID.fromString(fields[2])));
+        ticket.setId(UUID.fromString(fields[0]));
+        return ticket;
+    }
+}
@@ -0,0 +1,68 @@
+package org.project.lottery.v2.handlers;
+
+import org.project.lottery.exceptions.FailedToAcquireLockException;
+import org.project.lottery.exceptions.IdempotentRequestInProgressException;
+import org.project.lottery.exceptions.InvalidIdempotencyKeyException;
+import org.project.lottery.exceptions.NotFoundException;
+import org.project.lottery.exceptions.OutOfTicketsException;
+import org.project.lottery.exceptions.TooManyRequestsException;
+import org.project.lottery.exceptions.UserAlreadyIssuedTicketException;
+import org.project.lottery.exceptions.WriteBehindQueueFullException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Maps the lottery exceptions to the same responses the v1 controllers get from the global exception
+ * handler, which does not apply to functional endpoints.
+ */
+public final class ErrorResponses {
+
+    /**
+     * The response status of each handled exception.
+     */
+    private static final Map<Class<? extends RuntimeException>, HttpStatus> STATUSES = Map.of(
+            NotFoundException.class, HttpStatus.NOT_FOUND,
+            FailedToAcquireLockException.class, HttpStatus.LOCKED,
+            OutOfTicketsException.class, HttpStatus.GONE,
+            UserAlreadyIssuedTicketException.class, HttpStatus.FORBIDDEN,
+            WriteBehindQueueFullException.class, HttpStatus.SERVICE_UNAVAILABLE,
+            TooManyRequestsException.class, HttpStatus.TOO_MANY_REQUESTS,
+            InvalidIdempotencyKeyException.class, HttpStatus.UNPROCESSABLE_ENTITY,
+            IdempotentRequestInProgressException.class, HttpStatus.CONFLICT
+    );
+
+    private ErrorResponses() {
+    }
+
+    /**
+     * Builds the error response for the given exception or, for locker results, its cause.
+     *
+     * @param ex The exception.
+     * @return The error response, or empty if the exception is not handled.
+     */
+    public static Optional<ServerResponse> of(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            HttpStatus status = STATUSES.get(t.getClass());
+            if (status != null) {
+                // Create a map to store the error message and status code
+                Map<String, Object> body = new HashMap<>();
+                body.put("message", t.getMessage());
+                body.put("status", status);
+                ServerResponse.BodyBuilder response = ServerResponse.status(status);
+                if (t instanceof TooManyRequestsException tooManyRequests) {
+                    response.header(HttpHeaders.RETRY_AFTER, String.valueOf(tooManyRequests.getRetryAfterSeconds()));
+                }
+                if (t instanceof IdempotentRequestInProgressException inProgress) {
+                    response.header(HttpHeaders.RETRY_AFTER, String.valueOf(inProgress.getRetryAfterSeconds()));
+                }
+                return Optional.of(response.body(body));
+            }
+        }
+        return Optional.empty();
+    }
+}
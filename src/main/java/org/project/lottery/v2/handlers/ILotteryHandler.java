@@ -0,0 +1,17 @@
+package org.project.lottery.v2.handlers;
+
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+/**
+ * Handles the functional v2 ticket endpoints.
+ */
+public interface ILotteryHandler {
+    /**
+     * Issues a ticket for the user and lottery in the request body.
+     *
+     * @param req The server request.
+     * @return The created ticket with its location.
+     */
+    ServerResponse issueTicket(ServerRequest req) throws Exception;
+}
@@ -3,26 +3,38 @@ package org.project.lottery.v2.handlers;
 import lombok.AllArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.project.lottery.idempotency.IdempotencyService;
+import org.project.lottery.idempotency.IdempotentResult;
 import org.project.lottery.v1.dto.IssueTicketRequest;
+import org.project.lottery.v1.dto.TicketResponse;
 import org.project.lottery.v1.service.ticket.ITicketService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.function.ServerRequest;
 import org.springframework.web.servlet.function.ServerResponse;
 
-import static org.springframework.web.servlet.function.ServerResponse.ok;
+import static org.springframework.web.servlet.function.ServerResponse.created;
 
 @Component
 @AllArgsConstructor
 @Slf4j
-public class LotteryHandler {
+@ConditionalOnExpression("'${lottery.ticket.issuance-mode:lock}' != 'script'")
+public class LotteryHandler implements ILotteryHandler {
     private final ITicketService lotteryService;
+    private final IdempotencyService idempotencyService;
     @SneakyThrows
     public ServerResponse issueTicket(ServerRequest req) {
 
         var body = req.body(IssueTicketRequest.class);
         log.info(String.format("Inside create method, Request received with body %s", body));
 
-        lotteryService.issueTicket(body);
-        return ok().build();
+        IdempotentResult result = idempotencyService.issue(
+                req.headers().firstHeader(IdempotencyService.KEY_HEADER), body, () -> lotteryService.issueTicket(body));
+        TicketResponse ticketResponse = result.response();
+        ServerResponse.BodyBuilder response = created(req.uriBuilder().replacePath("/api/v1/ticket/{id}").build(ticketResponse.id()));
+        if (result.replayed()) {
+            response.header(IdempotencyService.REPLAYED_HEADER, "true");
+        }
+        return response.body(ticketResponse);
     }
 }
@@ -0,0 +1,180 @@
+package org.project.lottery.v2.handlers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.project.lottery.admission.AdmissionGate;
+import org.project.lottery.exceptions.OutOfTicketsException;
+import org.project.lottery.idempotency.IdempotencyService;
+import org.project.lottery.idempotency.IdempotentResult;
+import org.project.lottery.soldout.SoldOutRegistry;
+import org.project.lottery.statistics.IssuanceStatistics;
+import org.project.lottery.v1.dto.IssueTicketRequest;
+import org.project.lottery.v1.dto.LotteryResponse;
+import org.project.lottery.v1.dto.LotterySnapshot;
+import org.project.lottery.v1.dto.TicketResponse;
+import org.project.lottery.v1.entity.Ticket;
+import org.project.lottery.v1.service.lottery.ILotteryService;
+import org.project.lottery.v1.service.ticket.RedisTicketInventory;
+import org.project.lottery.v1.service.ticket.TicketReservation;
+import org.project.lottery.v1.service.ticket.writer.ITicketWriter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URI;
+
+import static org.springframework.web.servlet.function.ServerResponse.created;
+
+/**
+ * Issues tickets without holding the request thread while Redis or the ticket writer are working.
+ * The reservation runs as a non-blocking Lettuce command and the response is completed
+ * asynchronously, so the servlet thread goes back to the pool right after the body was read.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "lottery.ticket.issuance-mode", havingValue = "script")
+public class ReactiveLotteryHandler implements ILotteryHandler {
+
+    /**
+     * The lottery service.
+     */
+    private final ILotteryService lotteryService;
+
+    /**
+     * The Redis ticket inventory.
+     */
+    private final RedisTicketInventory ticketInventory;
+
+    /**
+     * The ticket writer.
+     */
+    private final ITicketWriter ticketWriter;
+
+    /**
+     * The sold-out registry.
+     */
+    private final SoldOutRegistry soldOutRegistry;
+
+    /**
+     * The admission gate.
+     */
+    private final AdmissionGate admissionGate;
+
+    /**
+     * The idempotency service.
+     */
+    private final IdempotencyService idempotencyService;
+
+    /**
+     * The issuance statistics.
+     */
+    private final IssuanceStatistics issuanceStatistics;
+
+    /**
+     * Constructs a new ReactiveLotteryHandler instance.
+     *
+     * @param lotteryService     The lottery service.
+     * @param ticketInventory    The Redis ticket inventory.
+     * @param ticketWriter       The ticket writer.
+     * @param soldOutRegistry    The sold-out registry.
+     * @param admissionGate      The admission gate.
+     * @param idempotencyService The idempotency service.
+     * @param issuanceStatistics The issuance statistics.
+     */
+    public ReactiveLotteryHandler(final ILotteryService lotteryService,
+                                  final RedisTicketInventory ticketInventory,
+                                  final ITicketWriter ticketWriter,
+                                  final SoldOutRegistry soldOutRegistry,
+                                  final AdmissionGate admissionGate,
+                                  final IdempotencyService idempotencyService,
+                                  final IssuanceStatistics issuanceStatistics) {
+        this.lotteryService = lotteryService;
+        this.ticketInventory = ticketInventory;
+        this.ticketWriter = ticketWriter;
+        this.soldOutRegistry = soldOutRegistry;
+        this.admissionGate = admissionGate;
+        this.idempotencyService = idempotencyService;
+        this.issuanceStatistics = issuanceStatistics;
+    }
+
+    @Override
+    public ServerResponse issueTicket(ServerRequest req) throws Exception {
+        var body = req.body(IssueTicketRequest.class);
+        log.info("Inside create method, Request received with body {}", body);
+
+        // Issue the ticket. With an idempotency key, the record of the key is read and written with blocking
+        // Redis calls, so it runs on the bounded elastic scheduler.
+        String idempotencyKey = req.headers().firstHeader(IdempotencyService.KEY_HEADER);
+        Mono<IdempotentResult> result = idempotencyKey == null
+                ? issue(body).map(ticketResponse -> new IdempotentResult(ticketResponse, false))
+                : Mono.fromCallable(() -> idempotencyService.issue(idempotencyKey, body, () -> issue(body).block()))
+                        .subscribeOn(Schedulers.boundedElastic());
+
+        Mono<ServerResponse> response = result
+                .map(issued -> {
+                    URI location = req.uriBuilder().replacePath("/api/v1/ticket/{id}").build(issued.response().id());
+                    ServerResponse.BodyBuilder builder = created(location);
+                    if (issued.replayed()) {
+                        builder.header(IdempotencyService.REPLAYED_HEADER, "true");
+                    }
+                    return builder.body(issued.response());
+                })
+                .onErrorResume(e -> ErrorResponses.of(e).map(Mono::just).orElseGet(() -> Mono.error(e)));
+
+        return ServerResponse.async(response);
+    }
+
+    private Mono<TicketResponse> issue(final IssueTicketRequest request) {
+        // Refuse the request if the lottery is sold out, the ticket service aspects do not cover this handler.
+        SoldOutRegistry.Admission admission = soldOutRegistry.admit(request.lotteryId());
+        if (!admission.admitted()) {
+            OutOfTicketsException outOfTickets = new OutOfTicketsException("Out of tickets");
+            issuanceStatistics.refused(request.lotteryId(), request.userId(), outOfTickets);
+            return Mono.error(outOfTickets);
+        }
+
+        // Wait for a slot of the lottery without holding a thread, then get the lottery by ID, the lookup may
+        // hit the database so it must not run on a Lettuce thread.
+        return Mono.usingWhen(admissionGate.enterAsync(request.lotteryId()),
+                        permit -> Mono.fromCallable(() -> lotteryService.findById(request.lotteryId()))
+                                .subscribeOn(Schedulers.boundedElastic())
+                                .flatMap(lottery -> ticketInventory.reserveReactive(lottery, request.userId())
+                                        .flatMap(reservation -> issue(lottery, request, reservation))),
+                        permit -> Mono.fromRunnable(permit::close))
+                .doOnNext(ticketResponse -> {
+                    soldOutRegistry.issued(request.lotteryId(), ticketResponse.lotteryResponse().totalAvailableTickets(), admission);
+                    issuanceStatistics.issued(request.lotteryId(), request.userId());
+                })
+                .doOnError(e -> {
+                    soldOutRegistry.failed(request.lotteryId(), e);
+                    issuanceStatistics.refused(request.lotteryId(), request.userId(), e);
+                });
+    }
+
+    private Mono<TicketResponse> issue(final LotterySnapshot lottery,
+                                       final IssueTicketRequest request,
+                                       final TicketReservation reservation) {
+        // Create a new ticket.
+        Ticket ticket = new Ticket(request.userId(), reservation.ticketNumber(),
+                lotteryService.getReference(lottery.id()));
+
+        // Persist the ticket, giving the reservation back if that fails.
+        return ticketWriter.writeAsync(ticket)
+                .onErrorResume(e -> ticketInventory.releaseReactive(lottery.id(), request.userId(), reservation.ticketNumber())
+                        .then(Mono.error(e)))
+                .then(Mono.fromSupplier(() -> {
+                    log.info("Ticket issued successfully: ticket = {}", ticket);
+                    return new TicketResponse(ticket.getId(), ticket.getUserId(),
+                            ticket.getLotteryNumber(),
+                            new LotteryResponse(
+                                    lottery.name(),
+                                    lottery.id(),
+                                    lottery.totalAllottedTickets(),
+                                    reservation.remainingTickets()
+                            )
+                    );
+                }));
+    }
+}
@@ -1,6 +1,7 @@
 package org.project.lottery.v2.routes;
 
-import org.project.lottery.v2.handlers.LotteryHandler;
+import org.project.lottery.v2.handlers.ErrorResponses;
+import org.project.lottery.v2.handlers.ILotteryHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.function.RouterFunction;
@@ -14,7 +15,14 @@ public class LotteryRoutes {
 
     // Functional endpoint - We can also use function routers to build.
     @Bean
-    public RouterFunction<ServerResponse> useLotteryRoutes(LotteryHandler lotteryHandler) {
-        return route(POST("/api/v2/ticket"), lotteryHandler::issueTicket);
+    public RouterFunction<ServerResponse> useLotteryRoutes(ILotteryHandler lotteryHandler) {
+        return route(POST("/api/v2/ticket"), lotteryHandler::issueTicket)
+                .filter((request, next) -> {
+                    try {
+                        return next.handle(request);
+                    } catch (RuntimeException e) {
+                        return ErrorResponses.of(e).orElseThrow(() -> e);
+                    }
+                });
     }
 }
@@ -0,0 +1,10 @@
+-- Finishes compact-ticket-schema.sql with psql once no node of the old version is left.
+
+-- 1. Drop the string and the trigger keeping it.
+drop trigger if exists tickets_fill_ticket_number on tickets;
+drop function if exists tickets_fill_ticket_number();
+alter table tickets drop column if exists lottery_number;
+
+-- 2. Rebuild the indexes without the fragmentation of the random ids, and refresh the statistics.
+reindex table concurrently tickets;
+vacuum analyze tickets;
@@ -0,0 +1,65 @@
+-- Moves an existing database to the compact ticket schema: a bigint ticket number instead of the
+-- 'lottery_number_%d' string, and a unique constraint on (lottery_id, user_uuid). Existing ticket and lottery
+-- ids are kept, they are part of the API; only new rows get time-ordered UUIDv7 ids. Run it with psql while
+-- the old version keeps running, roll out the new version, then run compact-ticket-schema-finish.sql. No step
+-- locks the table for longer than a catalog change.
+
+-- 1. The numeric column, nullable until it is filled.
+alter table tickets add column if not exists ticket_number bigint;
+
+-- 2. Keep both columns filled while old and new nodes run side by side: the old version only writes the
+--    string, the new one only the number.
+create or replace function tickets_fill_ticket_number() returns trigger as $$
+begin
+    if new.ticket_number is null and new.lottery_number is not null then
+        new.ticket_number := substring(new.lottery_number from length('lottery_number_') + 1)::bigint;
+    elsif new.lottery_number is null and new.ticket_number is not null then
+        new.lottery_number := 'lottery_number_' || new.ticket_number;
+    end if;
+    return new;
+end $$ language plpgsql;
+
+drop trigger if exists tickets_fill_ticket_number on tickets;
+create trigger tickets_fill_ticket_number before insert or update on tickets
+    for each row execute function tickets_fill_ticket_number();
+
+-- 3. Fill the rows written before the trigger, walking the primary key in ranges of 100,000 rows, each
+--    committed on its own, so every batch costs the same however far the walk got.
+do $$
+declare
+    last_id uuid := '00000000-0000-0000-0000-000000000000';
+    next_id uuid;
+begin
+    loop
+        -- The last id of the next range, none if fewer rows are left.
+        select id into next_id from tickets where id > last_id order by id offset 99999 limit 1;
+        if next_id is null then
+            update tickets set ticket_number = substring(lottery_number from length('lottery_number_') + 1)::bigint
+            where id > last_id and ticket_number is null and lottery_number is not null;
+            exit;
+        end if;
+        update tickets set ticket_number = substring(lottery_number from length('lottery_number_') + 1)::bigint
+        where id > last_id and id <= next_id and ticket_number is null and lottery_number is not null;
+        last_id := next_id;
+        commit;
+    end loop;
+end $$;
+
+-- 4. Make the column not null without holding a lock while the table is scanned: the validated check lets
+--    set not null skip its own scan.
+alter table tickets drop constraint if exists tickets_ticket_number_not_null;
+alter table tickets add constraint tickets_ticket_number_not_null check (ticket_number is not null) not valid;
+alter table tickets validate constraint tickets_ticket_number_not_null;
+alter table tickets alter column ticket_number set not null;
+alter table tickets drop constraint tickets_ticket_number_not_null;
+
+-- 5. One ticket per user and lottery, also the index of the duplicate user lookup. The index is built without
+--    blocking writes, then promoted to the constraint the application and partition-tickets.sql expect.
+create unique index concurrently if not exists uk_tickets_lottery_user on tickets (lottery_id, user_uuid);
+do $$
+begin
+    if not exists (select 1 from pg_constraint where conname = 'uk_tickets_lottery_user'
+                   and conrelid = 'tickets'::regclass) then
+        alter table tickets add constraint uk_tickets_lottery_user unique using index uk_tickets_lottery_user;
+    end if;
+end $$;
@@ -0,0 +1,46 @@
+-- Partitions the tickets table by lottery (LIST on lottery_id), for lottery.ticket.partitioning.enabled=true. Run it
+-- with psql after compact-ticket-schema.sql, while no node is running; on a new database, after the first start
+-- created the tables. No ticket is copied: the old table becomes the partition of every lottery that exists now,
+-- and every lottery created afterwards gets a partition of its own, created by the application.
+begin;
+
+alter table tickets rename to tickets_legacy;
+-- Free the name of the unique constraint. A database migrated by an earlier compact-ticket-schema.sql may only
+-- have the unique index, which is promoted to the constraint under the new name, so attaching reuses it.
+do $$
+begin
+    if exists (select 1 from pg_constraint where conname = 'uk_tickets_lottery_user'
+               and conrelid = 'tickets_legacy'::regclass) then
+        alter table tickets_legacy rename constraint uk_tickets_lottery_user to tickets_legacy_lottery_user_key;
+    else
+        alter table tickets_legacy add constraint tickets_legacy_lottery_user_key unique
+            using index uk_tickets_lottery_user;
+    end if;
+end $$;
+-- Attaching builds the primary key of the partitioned table, (id, lottery_id), in place of this one.
+alter table tickets_legacy drop constraint tickets_pkey;
+
+-- The primary key of a partitioned table must contain the partition key.
+create table tickets (
+    id            uuid   not null,
+    user_uuid     uuid,
+    ticket_number bigint not null,
+    lottery_id    uuid   not null references lotteries (id),
+    constraint tickets_pkey primary key (id, lottery_id),
+    constraint uk_tickets_lottery_user unique (lottery_id, user_uuid)
+) partition by list (lottery_id);
+
+-- Attach the old table as the partition of the existing lotteries, which checks it holds no other lottery in one scan.
+do $$
+declare
+    lottery_ids text;
+begin
+    select string_agg(quote_literal(id), ', ') into lottery_ids from lotteries;
+    if lottery_ids is null then
+        drop table tickets_legacy;
+    else
+        execute format('alter table tickets attach partition tickets_legacy for values in (%s)', lottery_ids);
+    end if;
+end $$;
+
+commit;
@@ -0,0 +1,14 @@
+-- Sets the given bits of an existing Bloom filter.
+--
+-- KEYS[1] the Bloom filter bitmap
+-- ARGV    the bit offsets
+--
+-- Returns 1 when the bits were set, 0 when the filter does not exist.
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return 0
+end
+
+for i = 1, #ARGV do
+    redis.call('SETBIT', KEYS[1], ARGV[i], 1)
+end
+return 1
@@ -0,0 +1,16 @@
+-- Checks whether all given bits of a Bloom filter are set.
+--
+-- KEYS[1] the Bloom filter bitmap
+-- ARGV    the bit offsets
+--
+-- Returns 1 when all bits are set, 0 when one is not and -1 when the filter does not exist.
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return -1
+end
+
+for i = 1, #ARGV do
+    if redis.call('GETBIT', KEYS[1], ARGV[i]) == 0 then
+        return 0
+    end
+end
+return 1
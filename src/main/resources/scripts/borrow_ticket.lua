@@ -0,0 +1,24 @@
+-- Takes a ticket from a shard of a lottery for a user recorded as participant in another shard.
+--
+-- KEYS[1] the available tickets counter of the shard
+-- KEYS[2] the list of ticket numbers returned to the shard
+--
+-- Returns {shard ticket number, remaining tickets of the shard}. The ticket number is 0 when the
+-- shard is out of tickets and -2 when its counter has not been seeded yet.
+local available = redis.call('GET', KEYS[1])
+if not available then
+    return {-2, 0}
+end
+
+available = tonumber(available)
+local returned = redis.call('LLEN', KEYS[2])
+if available + returned <= 0 then
+    return {0, 0}
+end
+
+if returned > 0 then
+    return {tonumber(redis.call('LPOP', KEYS[2])), available + returned - 1}
+end
+
+redis.call('DECR', KEYS[1])
+return {available, available - 1}
@@ -0,0 +1,27 @@
+-- Records a user as participant of a lottery and counts the issued ticket.
+--
+-- KEYS[1] the participants set of the lottery
+-- KEYS[2] the remaining tickets counter of the lottery
+-- KEYS[3] the sorted set of the leases of all lotteries
+-- KEYS[4] the set of the ticket numbers claimed from the lease
+-- ARGV[1] the user id
+-- ARGV[2] the lease, as "lottery id:low:high"
+-- ARGV[3] the ticket number
+--
+-- Returns the remaining tickets after the claim, -1 when the user already holds a ticket, -2 when the
+-- counter has not been seeded yet and -3 when the lease was released or reclaimed, its unclaimed numbers
+-- being back in the pool.
+if redis.call('EXISTS', KEYS[2]) == 0 then
+    return -2
+end
+
+if not redis.call('ZSCORE', KEYS[3], ARGV[2]) then
+    return -3
+end
+
+if redis.call('SADD', KEYS[1], ARGV[1]) == 0 then
+    return -1
+end
+
+redis.call('SADD', KEYS[4], ARGV[3])
+return redis.call('DECR', KEYS[2])
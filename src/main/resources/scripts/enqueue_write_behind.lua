@@ -0,0 +1,12 @@
+-- Appends a ticket to the write-behind queue unless the queue is full.
+--
+-- KEYS[1] the write-behind queue
+-- ARGV[1] the serialized ticket
+-- ARGV[2] the maximum queue length
+--
+-- Returns the queue length after the append, or 0 when the queue is full.
+if redis.call('LLEN', KEYS[1]) >= tonumber(ARGV[2]) then
+    return 0
+end
+
+return redis.call('RPUSH', KEYS[1], ARGV[1])
@@ -0,0 +1,55 @@
+-- Takes a lock in the order its waiters queued up for it.
+--
+-- KEYS[1] the lock
+-- KEYS[2] the queue of the waiting tokens
+-- KEYS[3] the hash of the deadline of every waiting token
+-- ARGV[1] the token of the caller
+-- ARGV[2] the lock timeout in milliseconds
+-- ARGV[3] the time in milliseconds the caller keeps waiting
+-- ARGV[4] the number of waiters looked at to find the position of the caller
+--
+-- Returns 0 when the caller took the lock, otherwise its position in the queue (1 = next), or
+-- ARGV[4] + 1 when it is further back.
+redis.replicate_commands()
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+-- Queue the caller, or refresh its deadline if it is already queued.
+if redis.call('HSET', KEYS[3], ARGV[1], now + tonumber(ARGV[3])) == 1 then
+    redis.call('RPUSH', KEYS[2], ARGV[1])
+end
+
+-- Keep the queue until its last waiter gave up.
+local ttl = tonumber(ARGV[3]) + tonumber(ARGV[2])
+if redis.call('PTTL', KEYS[2]) < ttl then
+    redis.call('PEXPIRE', KEYS[2], ttl)
+    redis.call('PEXPIRE', KEYS[3], ttl)
+end
+
+-- Drop the waiters at the head of the queue that are past their deadline.
+local head = redis.call('LINDEX', KEYS[2], 0)
+while head do
+    local deadline = tonumber(redis.call('HGET', KEYS[3], head))
+    if deadline and deadline >= now then
+        break
+    end
+    redis.call('LPOP', KEYS[2])
+    redis.call('HDEL', KEYS[3], head)
+    head = redis.call('LINDEX', KEYS[2], 0)
+end
+
+-- Only the head of the queue may take the lock.
+if head == ARGV[1] and redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then
+    redis.call('LPOP', KEYS[2])
+    redis.call('HDEL', KEYS[3], ARGV[1])
+    return 0
+end
+
+local limit = tonumber(ARGV[4])
+local waiting = redis.call('LRANGE', KEYS[2], 0, limit - 1)
+for i = 1, #waiting do
+    if waiting[i] == ARGV[1] then
+        return i
+    end
+end
+return limit + 1
@@ -0,0 +1,39 @@
+-- Releases the lock held by the caller, or removes the caller from the queue of its waiters, and
+-- wakes up the waiter at the head of the queue if the lock is free.
+--
+-- KEYS[1] the lock
+-- KEYS[2] the queue of the waiting tokens
+-- KEYS[3] the hash of the deadline of every waiting token
+-- ARGV[1] the token of the caller
+-- ARGV[2] the channel the token of the next waiter is published to
+--
+-- Returns 1 when the caller released the lock, 0 otherwise.
+redis.replicate_commands()
+local released = 0
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    redis.call('DEL', KEYS[1])
+    released = 1
+else
+    redis.call('LREM', KEYS[2], 1, ARGV[1])
+    redis.call('HDEL', KEYS[3], ARGV[1])
+end
+
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    return released
+end
+
+-- Drop the waiters at the head of the queue that are past their deadline and wake up the next one.
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local head = redis.call('LINDEX', KEYS[2], 0)
+while head do
+    local deadline = tonumber(redis.call('HGET', KEYS[3], head))
+    if deadline and deadline >= now then
+        redis.call('PUBLISH', ARGV[2], head)
+        break
+    end
+    redis.call('LPOP', KEYS[2])
+    redis.call('HDEL', KEYS[3], head)
+    head = redis.call('LINDEX', KEYS[2], 0)
+end
+return released
@@ -0,0 +1,46 @@
+-- Leases a contiguous block of ticket numbers to a node.
+--
+-- KEYS[1] the available tickets counter of the lottery
+-- KEYS[2] the list of ticket blocks returned to the pool, as "low:high"
+-- KEYS[3] the sorted set of the leases of all lotteries, as "lottery id:low:high" scored by their deadline
+-- ARGV[1] the maximum block size
+-- ARGV[2] the minimum number of blocks the remaining pool is split into
+-- ARGV[3] the lottery id
+-- ARGV[4] the time in milliseconds after which any node may reclaim the lease
+--
+-- Returns {low, high} of the leased block, {0, 0} when the pool is empty and {-2, 0} when the counter
+-- has not been seeded yet. Numbers are handed out from the top of the pool downwards.
+local size = tonumber(ARGV[1])
+
+local function lease(low, high)
+    local time = redis.call('TIME')
+    local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+    redis.call('ZADD', KEYS[3], now + tonumber(ARGV[4]), ARGV[3] .. ':' .. low .. ':' .. high)
+    return {low, high}
+end
+
+local block = redis.call('LPOP', KEYS[2])
+if block then
+    local separator = string.find(block, ':')
+    local low = tonumber(string.sub(block, 1, separator - 1))
+    local high = tonumber(string.sub(block, separator + 1))
+    if high - low + 1 > size then
+        redis.call('LPUSH', KEYS[2], low .. ':' .. (high - size))
+        low = high - size + 1
+    end
+    return lease(low, high)
+end
+
+local available = redis.call('GET', KEYS[1])
+if not available then
+    return {-2, 0}
+end
+
+available = tonumber(available)
+if available <= 0 then
+    return {0, 0}
+end
+
+size = math.min(size, math.max(1, math.floor(available / tonumber(ARGV[2]))))
+redis.call('DECRBY', KEYS[1], size)
+return lease(available - size + 1, available)
@@ -0,0 +1,11 @@
+-- Releases the idempotency key of a request that failed, if the request still holds it. The key may
+-- have expired and been claimed by a retry meanwhile, which keeps it.
+--
+-- KEYS[1] the idempotency record
+-- ARGV[1] the in-progress record written by the request
+--
+-- Returns 1 when the key was released, 0 when the request no longer held it.
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
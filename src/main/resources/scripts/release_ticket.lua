@@ -0,0 +1,14 @@
+-- Gives a reserved ticket back to the pool, e.g. when persisting it failed.
+--
+-- KEYS[1] the participants set of the lottery
+-- KEYS[2] the list of ticket numbers returned to the pool
+-- ARGV[1] the user id
+-- ARGV[2] the ticket number
+--
+-- Returns 1 when the ticket was released, 0 when the user held no reservation.
+if redis.call('SREM', KEYS[1], ARGV[1]) == 0 then
+    return 0
+end
+
+redis.call('RPUSH', KEYS[2], ARGV[2])
+return 1
@@ -0,0 +1,50 @@
+-- Ends a lease and returns the numbers of its block that were not claimed to the pool.
+--
+-- KEYS[1] the sorted set of the leases of all lotteries
+-- KEYS[2] the set of the ticket numbers claimed from the lease
+-- KEYS[3] the list of ticket blocks returned to the pool, as "low:high"
+-- ARGV[1] the lease, as "lottery id:low:high"
+-- ARGV[2] the lowest ticket number of the block
+-- ARGV[3] the highest ticket number of the block
+-- ARGV[4] 1 to only end the lease once its deadline passed, e.g. when reclaiming the lease of another node
+--
+-- Returns the number of tickets returned to the pool, -1 when the lease was already ended or has not
+-- expired yet.
+local deadline = redis.call('ZSCORE', KEYS[1], ARGV[1])
+if not deadline then
+    return -1
+end
+
+if ARGV[4] == '1' then
+    local time = redis.call('TIME')
+    local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+    if tonumber(deadline) > now then
+        return -1
+    end
+end
+
+redis.call('ZREM', KEYS[1], ARGV[1])
+
+local claimed = {}
+for i, number in ipairs(redis.call('SMEMBERS', KEYS[2])) do
+    claimed[i] = tonumber(number)
+end
+table.sort(claimed)
+redis.call('DEL', KEYS[2])
+
+-- Return the gaps between the claimed numbers.
+local returned = 0
+local from = tonumber(ARGV[2])
+local high = tonumber(ARGV[3])
+for _, number in ipairs(claimed) do
+    if number > from then
+        redis.call('RPUSH', KEYS[3], from .. ':' .. (number - 1))
+        returned = returned + number - from
+    end
+    from = math.max(from, number + 1)
+end
+if from <= high then
+    redis.call('RPUSH', KEYS[3], from .. ':' .. high)
+    returned = returned + high - from + 1
+end
+return returned
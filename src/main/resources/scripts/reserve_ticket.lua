@@ -0,0 +1,31 @@
+-- Atomically reserves a ticket for a user.
+--
+-- KEYS[1] the available tickets counter of the lottery
+-- KEYS[2] the participants set of the lottery
+-- KEYS[3] the list of ticket numbers returned to the pool
+-- ARGV[1] the user id
+--
+-- Returns {ticket number, remaining tickets}. The ticket number is 0 when the lottery is out of
+-- tickets, -1 when the user already holds a ticket and -2 when the counter has not been seeded yet.
+local available = redis.call('GET', KEYS[1])
+if not available then
+    return {-2, 0}
+end
+
+available = tonumber(available)
+local returned = redis.call('LLEN', KEYS[3])
+if available + returned <= 0 then
+    return {0, 0}
+end
+
+if redis.call('SISMEMBER', KEYS[2], ARGV[1]) == 1 then
+    return {-1, available + returned}
+end
+
+redis.call('SADD', KEYS[2], ARGV[1])
+if returned > 0 then
+    return {tonumber(redis.call('LPOP', KEYS[3])), available + returned - 1}
+end
+
+redis.call('DECR', KEYS[1])
+return {available, available - 1}
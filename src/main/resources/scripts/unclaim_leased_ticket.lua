@@ -0,0 +1,25 @@
+-- Reverts a claim, e.g. when persisting the ticket failed.
+--
+-- KEYS[1] the participants set of the lottery
+-- KEYS[2] the remaining tickets counter of the lottery
+-- KEYS[3] the sorted set of the leases of all lotteries
+-- KEYS[4] the set of the ticket numbers claimed from the lease
+-- KEYS[5] the list of ticket blocks returned to the pool, as "low:high"
+-- ARGV[1] the user id
+-- ARGV[2] the lease, as "lottery id:low:high"
+-- ARGV[3] the ticket number
+--
+-- Returns 1 when the claim was reverted and the number belongs to the lease again, 2 when the claim was
+-- reverted and the number went back to the pool as the lease is gone, and 0 when the user held no claim.
+if redis.call('SREM', KEYS[1], ARGV[1]) == 0 then
+    return 0
+end
+
+redis.call('INCR', KEYS[2])
+if redis.call('ZSCORE', KEYS[3], ARGV[2]) then
+    redis.call('SREM', KEYS[4], ARGV[3])
+    return 1
+end
+
+redis.call('RPUSH', KEYS[5], ARGV[3] .. ':' .. ARGV[3])
+return 2
@@ -0,0 +1,114 @@
+package org.project.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.project.lottery.admission.AdmissionGate;
+import org.project.lottery.exceptions.TooManyRequestsException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionGateTests {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AdmissionGate gate;
+
+    @BeforeEach
+    public void setUp() {
+        gate = new AdmissionGate(meterRegistry);
+        ReflectionTestUtils.setField(gate, "enabled", true);
+        ReflectionTestUtils.setField(gate, "maxInFlight", 1);
+        ReflectionTestUtils.setField(gate, "maxQueued", 1);
+        ReflectionTestUtils.setField(gate, "queueTimeoutMs", 50L);
+    }
+
+    @Test
+    public void refuses_requests_beyond_the_running_and_waiting_caps() {
+        UUID lotteryId = UUID.randomUUID();
+
+        AdmissionGate.Permit permit = gate.enter(lotteryId);
+        assertEquals(1, meterRegistry.get("lottery.admission.in-flight").gauge().value());
+
+        // The second request waits for the slot until its time in the queue is up.
+        TooManyRequestsException ex = assertThrows(TooManyRequestsException.class, () -> gate.enter(lotteryId));
+        assertTrue(ex.getRetryAfterSeconds() >= 1);
+        assertEquals(1, meterRegistry.get("lottery.admission.rejected").counter().count());
+
+        // Other lotteries have their own slots.
+        gate.enter(UUID.randomUUID()).close();
+
+        permit.close();
+        permit.close();
+        gate.enter(lotteryId).close();
+        assertEquals(0, meterRegistry.get("lottery.admission.in-flight").gauge().value());
+        assertEquals(0, meterRegistry.get("lottery.admission.queued").gauge().value());
+    }
+
+    @Test
+    public void blocking_requests_wait_for_a_slot_in_arrival_order() {
+        UUID lotteryId = UUID.randomUUID();
+        ReflectionTestUtils.setField(gate, "queueTimeoutMs", 5_000L);
+
+        AdmissionGate.Permit permit = gate.enter(lotteryId);
+
+        // The second request waits on its own thread, the third finds the queue full.
+        CompletableFuture<AdmissionGate.Permit> waiting = CompletableFuture.supplyAsync(() -> gate.enter(lotteryId));
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (meterRegistry.get("lottery.admission.queued").gauge().value() < 1) {
+                Thread.sleep(5);
+            }
+        });
+        assertThrows(TooManyRequestsException.class, () -> gate.enter(lotteryId));
+
+        // A reactive request arriving while the first one waits queues behind it instead of taking the slot.
+        ReflectionTestUtils.setField(gate, "maxQueued", 2);
+        CompletableFuture<AdmissionGate.Permit> behind = gate.enterAsync(lotteryId).toFuture();
+        permit.close();
+        AdmissionGate.Permit next = waiting.join();
+        assertFalse(behind.isDone());
+
+        next.close();
+        behind.join().close();
+        assertEquals(0, meterRegistry.get("lottery.admission.in-flight").gauge().value());
+        assertEquals(0, meterRegistry.get("lottery.admission.queued").gauge().value());
+    }
+
+    @Test
+    public void queues_reactive_requests_without_blocking() {
+        UUID lotteryId = UUID.randomUUID();
+        ReflectionTestUtils.setField(gate, "queueTimeoutMs", 5_000L);
+
+        AdmissionGate.Permit permit = gate.enterAsync(lotteryId).block();
+
+        // The second request waits for the slot, the third finds the queue full.
+        CompletableFuture<AdmissionGate.Permit> waiting = gate.enterAsync(lotteryId).toFuture();
+        assertFalse(waiting.isDone());
+        assertEquals(1, meterRegistry.get("lottery.admission.queued").gauge().value());
+        assertThrows(TooManyRequestsException.class, () -> gate.enterAsync(lotteryId).block());
+
+        // Closing the permit hands the slot to the waiting request.
+        permit.close();
+        AdmissionGate.Permit next = waiting.join();
+        assertEquals(0, meterRegistry.get("lottery.admission.queued").gauge().value());
+        assertEquals(1, meterRegistry.get("lottery.admission.in-flight").gauge().value());
+        next.close();
+    }
+
+    @Test
+    public void refuses_reactive_requests_waiting_too_long() {
+        UUID lotteryId = UUID.randomUUID();
+
+        AdmissionGate.Permit permit = gate.enterAsync(lotteryId).block();
+        assertThrows(TooManyRequestsException.class,
+                () -> gate.enterAsync(lotteryId).block(Duration.ofSeconds(5)));
+        assertEquals(0, meterRegistry.get("lottery.admission.queued").gauge().value());
+
+        permit.close();
+        assertEquals(0, meterRegistry.get("lottery.admission.in-flight").gauge().value());
+    }
+}
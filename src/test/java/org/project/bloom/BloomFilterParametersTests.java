@@ -0,0 +1,55 @@
+package org.project.bloom;
+
+import org.junit.jupiter.api.Test;
+import org.project.lottery.bloom.BloomFilterParameters;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BloomFilterParametersTests {
+
+    @Test
+    public void sizes_filter_from_expected_elements_and_false_positive_probability() {
+        BloomFilterParameters parameters = BloomFilterParameters.of(1_000_000, 0.01);
+
+        // ~9.6 bits and ~7 hashes per element for a 1% false positive probability.
+        assertEquals(9_585_059, parameters.bits());
+        assertEquals(7, parameters.hashes());
+    }
+
+    @Test
+    public void caps_filter_at_redis_bitmap_limit() {
+        BloomFilterParameters parameters = BloomFilterParameters.of(1_000_000_000, 0.0001);
+
+        assertEquals(1L << 32, parameters.bits());
+    }
+
+    @Test
+    public void added_users_are_always_found_and_false_positives_stay_near_target() {
+        BloomFilterParameters parameters = BloomFilterParameters.of(10_000, 0.01);
+        BitSet bitmap = new BitSet((int) parameters.bits());
+
+        UUID[] users = IntStream.range(0, 10_000).mapToObj(i -> UUID.randomUUID()).toArray(UUID[]::new);
+        for (UUID user : users) {
+            for (long offset : parameters.offsets(user)) {
+                bitmap.set((int) offset);
+            }
+        }
+
+        for (UUID user : users) {
+            for (long offset : parameters.offsets(user)) {
+                assertTrue(bitmap.get((int) offset));
+            }
+        }
+
+        long falsePositives = IntStream.range(0, 100_000)
+                .mapToObj(i -> parameters.offsets(UUID.randomUUID()))
+                .filter(offsets -> Arrays.stream(offsets).allMatch(offset -> bitmap.get((int) offset)))
+                .count();
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+}
@@ -2,6 +2,7 @@ package org.project.controllers;
 
 import org.junit.jupiter.api.Test;
 import org.project.LotteryApplication;
+import org.project.lottery.statistics.IssuanceStatistics;
 import org.project.lottery.v1.dto.CreateLotteryRequest;
 import org.project.lottery.v1.dto.IssueTicketRequest;
 import org.project.lottery.v1.dto.LotteryResponse;
@@ -14,9 +15,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.test.web.servlet.MvcResult;
 import org.testcontainers.containers.GenericContainer;
 
+import java.util.List;
 import java.util.UUID;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -38,6 +41,8 @@ public class LotteryControllerTests {
     private MockMvc mvc;
     @Autowired
     private ObjectMapper objectMapper;
+    @Autowired
+    private IssuanceStatistics issuanceStatistics;
 
     @Test
     public void issueTicket_returns_not_found_error_if_lottery_does_not_exist() throws Exception {
@@ -210,4 +215,187 @@ public class LotteryControllerTests {
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.length()", is(30)));
     }
+
+    @Test
+    public void list_tickets_by_pages_and_stream_them() throws Exception {
+        // Create a lottery with 10 tickets and issue all of them.
+        MvcResult mvcResult = mvc.perform(post("/api/v1/lottery")
+                        .content(objectMapper.writeValueAsString(CreateLotteryRequest.builder().lotteryName("Paged Lottery").totalLotteryTicketAllotted(10).build()))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated()).andReturn();
+        LotteryResponse lotteryResponse
+                = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), LotteryResponse.class);
+        for (int i = 0; i < 10; i++) {
+            mvc.perform(post("/api/v1/ticket")
+                            .content(objectMapper.writeValueAsString(IssueTicketRequest.builder().userId(UUID.randomUUID()).lotteryId(lotteryResponse.id()).build()))
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isCreated());
+        }
+
+        // Page through the tickets 4 at a time, following the cursor.
+        String cursor = mvc.perform(get("/api/v1/lottery/{uuid}/ticket/list", lotteryResponse.id()).param("limit", "4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(4)))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+        cursor = mvc.perform(get("/api/v1/lottery/{uuid}/ticket/list", lotteryResponse.id()).param("limit", "4").param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(4)))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+        mvc.perform(get("/api/v1/lottery/{uuid}/ticket/list", lotteryResponse.id()).param("limit", "4").param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(2)))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        // Stream all tickets as newline delimited JSON.
+        String lines = mvc.perform(get("/api/v1/lottery/{uuid}/ticket/stream", lotteryResponse.id()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(10, lines.lines().count());
+    }
+
+    @Test
+    public void issue_tickets_in_batch_returns_result_per_user() throws Exception {
+        // Create a lottery with 2 tickets.
+        MvcResult mvcResult = mvc.perform(post("/api/v1/lottery")
+                        .content(objectMapper.writeValueAsString(CreateLotteryRequest.builder().lotteryName("Batch Lottery").totalLotteryTicketAllotted(2).build()))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated()).andReturn();
+        LotteryResponse lotteryResponse
+                = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), LotteryResponse.class);
+
+        // Request tickets for a repeated user, more users than tickets and a missing lottery.
+        UUID firstUser = UUID.randomUUID();
+        List<IssueTicketRequest> requests = List.of(
+                IssueTicketRequest.builder().userId(firstUser).lotteryId(lotteryResponse.id()).build(),
+                IssueTicketRequest.builder().userId(firstUser).lotteryId(lotteryResponse.id()).build(),
+                IssueTicketRequest.builder().userId(UUID.randomUUID()).lotteryId(lotteryResponse.id()).build(),
+                IssueTicketRequest.builder().userId(UUID.randomUUID()).lotteryId(lotteryResponse.id()).build(),
+                IssueTicketRequest.builder().userId(UUID.randomUUID()).lotteryId(UUID.randomUUID()).build()
+        );
+
+        mvc.perform(post("/api/v1/ticket/batch")
+                        .content(objectMapper.writeValueAsString(requests))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status", is("ISSUED")))
+                .andExpect(jsonPath("$[1].status", is("ALREADY_ISSUED")))
+                .andExpect(jsonPath("$[2].status", is("ISSUED")))
+                .andExpect(jsonPath("$[3].status", is("OUT_OF_TICKETS")))
+                .andExpect(jsonPath("$[4].status", is("NOT_FOUND")));
+
+        // The batch used up the lottery.
+        mvc.perform(get("/api/v1/lottery/{uuid}", lotteryResponse.id()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total_available_tickets", is(0)));
+    }
+
+    @Test
+    public void retry_with_idempotency_key_replays_the_issued_ticket() throws Exception {
+
+        // Create a lottery with 2 tickets
+        String name = "idempotent_retry_lottery";
+        MvcResult mvcResult = mvc.perform(post("/api/v1/lottery")
+                        .content(objectMapper.writeValueAsString(CreateLotteryRequest.builder().lotteryName(name).totalLotteryTicketAllotted(2L).build()))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andReturn();
+        LotteryResponse lotteryResponse
+                = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), LotteryResponse.class);
+
+        String idempotencyKey = UUID.randomUUID().toString();
+        String request = objectMapper.writeValueAsString(IssueTicketRequest.builder().userId(UUID.randomUUID()).lotteryId(lotteryResponse.id()).build());
+
+        // Issue a ticket, then retry with the same key and get the same ticket back
+        String issued = mvc.perform(post("/api/v1/ticket")
+                        .header("Idempotency-Key", idempotencyKey)
+                        .content(request)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                .andReturn().getResponse().getContentAsString();
+
+        mvc.perform(post("/api/v1/ticket")
+                        .header("Idempotency-Key", idempotencyKey)
+                        .content(request)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(content().json(issued, true));
+
+        // The key cannot be reused for another user
+        mvc.perform(post("/api/v1/ticket")
+                        .header("Idempotency-Key", idempotencyKey)
+                        .content(objectMapper.writeValueAsString(IssueTicketRequest.builder().userId(UUID.randomUUID()).lotteryId(lotteryResponse.id()).build()))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.status", is("UNPROCESSABLE_ENTITY")));
+    }
+
+    @Test
+    public void delete_lottery_removes_it_with_its_tickets() throws Exception {
+
+        // Create a lottery with 1 ticket and issue it
+        MvcResult mvcResult = mvc.perform(post("/api/v1/lottery")
+                        .content(objectMapper.writeValueAsString(CreateLotteryRequest.builder().lotteryName("deleted_lottery").totalLotteryTicketAllotted(1L).build()))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andReturn();
+        LotteryResponse lotteryResponse
+                = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), LotteryResponse.class);
+        mvc.perform(post("/api/v1/ticket")
+                        .content(objectMapper.writeValueAsString(IssueTicketRequest.builder().userId(UUID.randomUUID()).lotteryId(lotteryResponse.id()).build()))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated());
+
+        // Delete the lottery, after which it is gone
+        mvc.perform(delete("/api/v1/lottery/{uuid}", lotteryResponse.id()))
+                .andDo(print())
+                .andExpect(status().isNoContent());
+        mvc.perform(get("/api/v1/lottery/{uuid}", lotteryResponse.id()))
+                .andExpect(status().isNotFound());
+        mvc.perform(delete("/api/v1/lottery/{uuid}", lotteryResponse.id()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void statistics_count_issued_tickets_and_participants() throws Exception {
+
+        // Create a lottery with 2 tickets
+        MvcResult mvcResult = mvc.perform(post("/api/v1/lottery")
+                        .content(objectMapper.writeValueAsString(CreateLotteryRequest.builder().lotteryName("statistics_lottery").totalLotteryTicketAllotted(2L).build()))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andReturn();
+        LotteryResponse lotteryResponse
+                = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), LotteryResponse.class);
+
+        // Three users ask for a ticket, the last one is refused because the lottery ran out of tickets
+        for (int i = 0; i < 2; i++) {
+            mvc.perform(post("/api/v1/ticket")
+                            .content(objectMapper.writeValueAsString(IssueTicketRequest.builder().userId(UUID.randomUUID()).lotteryId(lotteryResponse.id()).build()))
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isCreated());
+        }
+        mvc.perform(post("/api/v1/ticket")
+                        .content(objectMapper.writeValueAsString(IssueTicketRequest.builder().userId(UUID.randomUUID()).lotteryId(lotteryResponse.id()).build()))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isGone());
+
+        // Publish the statistics of this node and read them back
+        issuanceStatistics.publish();
+        mvc.perform(get("/api/v1/lottery/{uuid}/statistics", lotteryResponse.id()))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.issued_tickets", is(2)))
+                .andExpect(jsonPath("$.remaining_tickets", is(0)))
+                .andExpect(jsonPath("$.unique_participants", is(2)))
+                .andExpect(jsonPath("$.unique_requesters", is(3)))
+                .andExpect(jsonPath("$.seconds_to_sell_out", is(0)));
+        mvc.perform(get("/api/v1/lottery/{uuid}/statistics", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
 }
@@ -0,0 +1,189 @@
+package org.project.journal;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.project.lottery.v1.entity.Lottery;
+import org.project.lottery.v1.entity.Ticket;
+import org.project.lottery.v1.repository.ITicketRepository;
+import org.project.lottery.v1.service.lottery.ILotteryService;
+import org.project.lottery.v1.service.ticket.writer.JournalTicketWriter;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class JournalTicketWriterTests {
+    /**
+     * Three records per segment.
+     */
+    private static final long SEGMENT_SIZE = 3 * 72;
+
+    @TempDir
+    Path directory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ITicketRepository ticketRepository;
+    private ILotteryService lotteryService;
+    private TransactionTemplate transactionTemplate;
+    private List<Ticket> inserted;
+    private Lottery lottery;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ticketRepository = mock(ITicketRepository.class);
+        lotteryService = mock(ILotteryService.class);
+        transactionTemplate = mock(TransactionTemplate.class);
+        inserted = new ArrayList<>();
+        lottery = new Lottery();
+        lottery.setId(UUID.randomUUID());
+
+        when(lotteryService.getReference(lottery.getId())).thenReturn(lottery);
+        when(lotteryService.findExistingIds(anySet())).thenReturn(Set.of(lottery.getId()));
+        when(ticketRepository.findExistingIds(anySet(), anyList())).thenReturn(List.of());
+        doAnswer(invocation -> inserted.addAll(invocation.getArgument(0))).when(ticketRepository).insertAll(anyList());
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    public void replays_tickets_in_order_and_resumes_from_the_checkpoint_after_a_restart() {
+        JournalTicketWriter writer = writer();
+        write(writer, 1, 2, 3, 4);
+        writer.scheduledReplay();
+        assertEquals(List.of("lottery_number_1", "lottery_number_2", "lottery_number_3", "lottery_number_4"),
+                inserted.stream().map(Ticket::getLotteryNumber).toList());
+
+        // Tickets journaled but not replayed before the node died.
+        write(writer, 5, 6);
+        inserted.clear();
+
+        JournalTicketWriter restarted = writer();
+        restarted.recover();
+        assertEquals(List.of("lottery_number_5", "lottery_number_6"),
+                inserted.stream().map(Ticket::getLotteryNumber).toList());
+        verify(lotteryService, times(3)).decrementAvailableTickets(lottery.getId(), 2L);
+    }
+
+    @Test
+    public void keeps_the_checkpoint_when_the_database_is_down() {
+        JournalTicketWriter writer = writer();
+        write(writer, 1);
+        CannotGetJdbcConnectionException down = new CannotGetJdbcConnectionException("database down");
+        doThrow(down).doThrow(down).doAnswer(invocation -> inserted.addAll(invocation.getArgument(0)))
+                .when(ticketRepository).insertAll(anyList());
+
+        writer.scheduledReplay();
+        assertTrue(inserted.isEmpty());
+
+        writer.scheduledReplay();
+        assertEquals(1, inserted.size());
+        assertEquals(0, meterRegistry.get("lottery.ticket.journal.dead_letters").counter().count());
+    }
+
+    @Test
+    public void moves_a_ticket_that_keeps_failing_to_the_dead_letter_file() throws Exception {
+        JournalTicketWriter writer = writer();
+        write(writer, 1, 2);
+        doAnswer(invocation -> {
+            List<Ticket> tickets = invocation.getArgument(0);
+            if (tickets.stream().anyMatch(ticket -> ticket.getTicketNumber() == 2)) {
+                throw new DataIntegrityViolationException("uk_tickets_lottery_user");
+            }
+            return inserted.addAll(tickets);
+        }).when(ticketRepository).insertAll(anyList());
+
+        // The first ticket of the failed batch is replayed on its own, the second one is retried once.
+        writer.scheduledReplay();
+        assertEquals(List.of("lottery_number_1"), inserted.stream().map(Ticket::getLotteryNumber).toList());
+        assertFalse(Files.exists(directory.resolve("dead-letter.csv")));
+
+        // Failing again, it is dead-lettered and the tickets after it go on.
+        write(writer, 3);
+        writer.scheduledReplay();
+        assertEquals(List.of("lottery_number_1", "lottery_number_3"), inserted.stream().map(Ticket::getLotteryNumber).toList());
+        List<String> deadLetters = Files.readAllLines(directory.resolve("dead-letter.csv"));
+        assertEquals(1, deadLetters.size());
+        assertTrue(deadLetters.get(0).contains(lottery.getId() + ",2,"));
+        assertEquals(1, meterRegistry.get("lottery.ticket.journal.dead_letters").counter().count());
+    }
+
+    @Test
+    public void replays_a_bounded_number_of_batches_per_run() {
+        JournalTicketWriter writer = writer();
+        ReflectionTestUtils.setField(writer, "maxBatchesPerReplay", 2);
+        write(writer, 1, 2, 3, 4, 5);
+
+        writer.scheduledReplay();
+        assertEquals(4, inserted.size());
+
+        writer.scheduledReplay();
+        assertEquals(5, inserted.size());
+    }
+
+    @Test
+    public void deletes_replayed_segments() throws Exception {
+        JournalTicketWriter writer = writer();
+        write(writer, 1, 2, 3, 4, 5, 6, 7);
+        writer.scheduledReplay();
+
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of("tickets-00000000000000000002.journal"),
+                    files.map(file -> file.getFileName().toString()).filter(name -> name.endsWith(".journal")).toList());
+        }
+    }
+
+    @Test
+    public void forces_concurrent_tickets_to_the_disk_across_segments() throws Exception {
+        JournalTicketWriter writer = writer(true);
+        List<Thread> threads = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            long first = thread * 5L + 1;
+            Thread writing = new Thread(() -> write(writer, first, first + 1, first + 2, first + 3, first + 4));
+            writing.start();
+            threads.add(writing);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        writer().recover();
+        assertEquals(20, inserted.stream().map(Ticket::getTicketNumber).distinct().count());
+    }
+
+    private JournalTicketWriter writer() {
+        return writer(false);
+    }
+
+    private JournalTicketWriter writer(final boolean forceOnWrite) {
+        JournalTicketWriter writer = new JournalTicketWriter(ticketRepository, lotteryService, transactionTemplate,
+                meterRegistry, directory.toString(), SEGMENT_SIZE, forceOnWrite);
+        ReflectionTestUtils.setField(writer, "batchSize", 2);
+        ReflectionTestUtils.setField(writer, "maxBatchesPerReplay", 100);
+        ReflectionTestUtils.setField(writer, "maxAttempts", 2);
+        return writer;
+    }
+
+    private void write(final JournalTicketWriter writer, final long... numbers) {
+        for (long number : numbers) {
+            writer.write(new Ticket(UUID.randomUUID(), number, lottery));
+        }
+    }
+}
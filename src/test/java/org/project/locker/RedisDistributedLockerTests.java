@@ -0,0 +1,66 @@
+package org.project.locker;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.project.lottery.exceptions.FailedToAcquireLockException;
+import org.project.lottery.locker.LockExecutionResult;
+import org.project.lottery.locker.LockMetrics;
+import org.project.lottery.locker.RedisDistributedLocker;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RedisDistributedLockerTests {
+    private static final String LOCK = "lottery_{id}_ticket_lock_key";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ValueOperations<String, Object> valueOps;
+    private RedisDistributedLocker locker;
+    private String key;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        valueOps = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.getOperations()).thenReturn(redisTemplate);
+        locker = new RedisDistributedLocker(redisTemplate, new LockMetrics(meterRegistry));
+        key = String.format("lottery_%s_ticket_lock_key", UUID.randomUUID());
+    }
+
+    @Test
+    public void records_acquisition_hold_and_release_by_key_prefix() {
+        when(valueOps.setIfAbsent(eq(key), any(), anyLong(), any(TimeUnit.class))).thenReturn(true);
+
+        LockExecutionResult<String> result = locker.lock(key, 5, () -> {
+            throw new IllegalStateException("task failed");
+        });
+
+        assertTrue(result.hasException());
+        assertEquals(1, meterRegistry.get("lottery.lock.attempts").tags("lock", LOCK, "outcome", "acquired").counter().count());
+        assertEquals(1, meterRegistry.get("lottery.lock.acquire").tags("lock", LOCK, "outcome", "acquired").timer().count());
+        assertEquals(1, meterRegistry.get("lottery.lock.held").tags("lock", LOCK, "outcome", "failure").timer().count());
+        assertEquals(1, meterRegistry.get("lottery.lock.release").tags("lock", LOCK).timer().count());
+    }
+
+    @Test
+    public void records_contention_and_exhaustion_without_retries() {
+        when(valueOps.setIfAbsent(eq(key), any(), anyLong(), any(TimeUnit.class))).thenReturn(false);
+
+        assertThrows(FailedToAcquireLockException.class, () -> locker.lock(key, 5, () -> "never"));
+
+        assertEquals(1, meterRegistry.get("lottery.lock.attempts").tags("lock", LOCK, "outcome", "contended").counter().count());
+        assertEquals(1, meterRegistry.get("lottery.lock.exhausted").tags("lock", LOCK).counter().count());
+        assertNull(meterRegistry.find("lottery.lock.held").timer());
+    }
+}
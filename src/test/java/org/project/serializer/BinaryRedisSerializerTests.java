@@ -0,0 +1,104 @@
+package org.project.serializer;
+
+import org.junit.jupiter.api.Test;
+import org.project.lottery.config.RedisConfiguration;
+import org.project.lottery.serializer.BinaryRedisSerializer;
+import org.project.lottery.serializer.IRedisValueCodec;
+import org.project.lottery.serializer.RedisTypeRegistry;
+import org.project.lottery.v1.dto.LotterySnapshot;
+import org.project.lottery.v1.entity.Lottery;
+import org.project.lottery.v1.entity.Ticket;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryRedisSerializerTests {
+    private final RedisTypeRegistry registry = new RedisConfiguration().redisTypeRegistry();
+    private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+    private final BinaryRedisSerializer binary = new BinaryRedisSerializer(registry, json, true);
+
+    @Test
+    public void round_trips_registered_types_smaller_than_json() {
+        LotterySnapshot snapshot = new LotterySnapshot(UUID.randomUUID(), "Summer draw", 100_000, 99_873, 127);
+        Lottery lottery = new Lottery(snapshot.id(), snapshot.name(), 100_000L, 99_873L, 127L, true);
+        Ticket ticket = new Ticket(UUID.randomUUID(), UUID.randomUUID(), 99874L, lottery);
+
+        for (Object value : new Object[]{snapshot, ticket}) {
+            byte[] bytes = binary.serialize(value);
+            assertEquals(0xB7, bytes[0] & 0xFF);
+            assertTrue(bytes.length < json.serialize(value).length, value.getClass().getSimpleName());
+        }
+
+        String token = "lottery_" + snapshot.id() + "_ticket_lock_key";
+        assertEquals(token, binary.deserialize(binary.serialize(token)));
+        assertEquals(snapshot, binary.deserialize(binary.serialize(snapshot)));
+        assertSame(NullValue.INSTANCE, binary.deserialize(binary.serialize(NullValue.INSTANCE)));
+
+        Ticket read = (Ticket) binary.deserialize(binary.serialize(ticket));
+        assertEquals(ticket.getId(), read.getId());
+        assertEquals(ticket.getUserId(), read.getUserId());
+        assertEquals(ticket.getLotteryNumber(), read.getLotteryNumber());
+        assertEquals(lottery.getId(), read.getLottery().getId());
+        assertEquals(lottery.getName(), read.getLottery().getName());
+        assertEquals(lottery.getTotalAvailableTickets(), read.getLottery().getTotalAvailableTickets());
+        assertEquals(lottery.getVersion(), read.getLottery().getVersion());
+    }
+
+    @Test
+    public void reads_json_and_falls_back_to_json_for_other_types() {
+        LotterySnapshot snapshot = new LotterySnapshot(UUID.randomUUID(), null, 10, 0, 0);
+        assertEquals(snapshot, binary.deserialize(json.serialize(snapshot)));
+        assertEquals(snapshot, new BinaryRedisSerializer(registry, json, false).deserialize(binary.serialize(snapshot)));
+
+        Map<String, Integer> other = new HashMap<>(Map.of("tickets", 3));
+        assertArrayEquals(json.serialize(other), binary.serialize(other));
+        assertEquals(other, binary.deserialize(binary.serialize(other)));
+    }
+
+    @Test
+    public void reads_tickets_written_with_the_lottery_number_string() throws IOException {
+        UUID ticketId = UUID.randomUUID();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(0xB7);
+        out.writeByte(1);
+        out.writeByte(4);
+        IRedisValueCodec.writeUuid(ticketId, out);
+        IRedisValueCodec.writeUuid(UUID.randomUUID(), out);
+        IRedisValueCodec.writeString("lottery_number_99874", out);
+        out.writeBoolean(false);
+
+        Ticket read = (Ticket) binary.deserialize(bytes.toByteArray());
+        assertEquals(ticketId, read.getId());
+        assertEquals(99874L, read.getTicketNumber());
+        assertEquals("lottery_number_99874", read.getLotteryNumber());
+    }
+
+    @Test
+    public void versions_every_type_on_its_own() {
+        LotterySnapshot snapshot = new LotterySnapshot(UUID.randomUUID(), "Summer draw", 100, 99, 1);
+        Ticket ticket = new Ticket(UUID.randomUUID(), UUID.randomUUID(), 2L, null);
+
+        // Raising the version of tickets leaves the other types readable by nodes not upgraded yet.
+        assertEquals(1, binary.serialize(snapshot)[1]);
+        assertEquals(1, binary.serialize("token")[1]);
+        assertEquals(2, binary.serialize(ticket)[1]);
+    }
+
+    @Test
+    public void rejects_newer_format_versions() {
+        byte[] bytes = binary.serialize("token");
+        bytes[1]++;
+
+        assertThrows(SerializationException.class, () -> binary.deserialize(bytes));
+    }
+}
@@ -0,0 +1,80 @@
+package org.project.soldout;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.project.lottery.bloom.ParticipantBloomFilter;
+import org.project.lottery.exceptions.OutOfTicketsException;
+import org.project.lottery.soldout.SoldOutRegistry;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SoldOutRegistryTests {
+    private static final String CHANNEL = "lottery_sold_out";
+
+    private StringRedisTemplate redisTemplate;
+    private SoldOutRegistry registry;
+    private UUID lotteryId;
+
+    @BeforeEach
+    public void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        registry = new SoldOutRegistry(redisTemplate, mock(RedisMessageListenerContainer.class),
+                mock(ParticipantBloomFilter.class));
+        ReflectionTestUtils.setField(registry, "enabled", true);
+        ReflectionTestUtils.setField(registry, "recheckIntervalMs", 0L);
+        lotteryId = UUID.randomUUID();
+    }
+
+    @Test
+    public void flags_the_lottery_once_and_lets_one_recheck_through() {
+        registry.failed(lotteryId, new RuntimeException(new OutOfTicketsException("Out of tickets")));
+        registry.issued(lotteryId, 0, SoldOutRegistry.Admission.SERVE);
+
+        verify(redisTemplate, times(1)).convertAndSend(eq(CHANNEL), endsWith("sold-out " + lotteryId));
+
+        ReflectionTestUtils.setField(registry, "recheckIntervalMs", 60_000L);
+        assertEquals(SoldOutRegistry.Admission.RECHECK, registry.admit(lotteryId));
+        assertEquals(SoldOutRegistry.Admission.REFUSE, registry.admit(lotteryId));
+
+        registry.issued(lotteryId, 5, SoldOutRegistry.Admission.RECHECK);
+        verify(redisTemplate).convertAndSend(eq(CHANNEL), endsWith("available " + lotteryId));
+        assertEquals(SoldOutRegistry.Admission.SERVE, registry.admit(lotteryId));
+    }
+
+    @Test
+    public void a_request_admitted_before_the_sell_out_does_not_reopen_the_lottery() {
+        registry.failed(lotteryId, new OutOfTicketsException("Out of tickets"));
+
+        // A request served before the lottery was flagged completes afterwards.
+        registry.issued(lotteryId, 5, SoldOutRegistry.Admission.SERVE);
+
+        ReflectionTestUtils.setField(registry, "recheckIntervalMs", 60_000L);
+        assertEquals(SoldOutRegistry.Admission.RECHECK, registry.admit(lotteryId));
+        assertEquals(SoldOutRegistry.Admission.REFUSE, registry.admit(lotteryId));
+        verify(redisTemplate, never()).convertAndSend(eq(CHANNEL), endsWith("available " + lotteryId));
+    }
+
+    @Test
+    public void applies_the_changes_of_other_nodes_without_republishing() {
+        registry.onMessage(message("other sold-out " + lotteryId), null);
+        ReflectionTestUtils.setField(registry, "recheckIntervalMs", 60_000L);
+        registry.admit(lotteryId);
+        assertFalse(registry.admit(lotteryId).admitted());
+
+        registry.onMessage(message("other available " + lotteryId), null);
+        assertTrue(registry.admit(lotteryId).admitted());
+        verify(redisTemplate, never()).convertAndSend(anyString(), anyString());
+    }
+
+    private static DefaultMessage message(final String body) {
+        return new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8));
+    }
+}